@@ -32,22 +32,47 @@ import org.apache.maven.artifact.versioning.DefaultArtifactVersion;
 import org.bstats.bukkit.Metrics;
 import org.bstats.charts.SimplePie;
 
+import org.bukkit.event.HandlerList;
 import org.bukkit.plugin.java.JavaPlugin;
 
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+
 import com.hidethemonkey.pathinator.commands.CommandRegistrar;
-import com.hidethemonkey.pathinator.commands.PathCommands;
+import com.hidethemonkey.pathinator.helpers.BlueprintStore;
 import com.hidethemonkey.pathinator.helpers.ConsoleHelper;
+import com.hidethemonkey.pathinator.helpers.DesirePathTracker;
+import com.hidethemonkey.pathinator.helpers.FlightEvents;
 import com.hidethemonkey.pathinator.helpers.FollowRegistry;
+import com.hidethemonkey.pathinator.helpers.MetricsExporter;
+import com.hidethemonkey.pathinator.helpers.PathIndex;
+import com.hidethemonkey.pathinator.helpers.PlanningExecutor;
 import com.hidethemonkey.pathinator.helpers.VersionChecker;
 import com.hidethemonkey.pathinator.helpers.VersionData;
+import com.hidethemonkey.pathinator.jobs.BuildScheduler;
+import com.hidethemonkey.pathinator.jobs.JobManager;
+import com.hidethemonkey.pathinator.jobs.PreviewManager;
+import com.hidethemonkey.pathinator.jobs.QuotaManager;
 import com.hidethemonkey.pathinator.listeners.PlayerJoinListener;
+import com.hidethemonkey.pathinator.listeners.PlayerMoveListener;
 import com.hidethemonkey.pathinator.listeners.PlayerQuitListener;
 
 public class Pathinator extends JavaPlugin {
 
-    private PathinatorConfig pConfig;
+    // Swapped as a whole on reload, never modified in place
+    private volatile PathinatorConfig pConfig;
+    private PlayerMoveListener moveListener;
     private Metrics metrics;
     private final FollowRegistry followRegistry = new FollowRegistry();
+    private final DesirePathTracker desirePaths = new DesirePathTracker(this);
+    private final MetricsExporter metricsExporter = new MetricsExporter(this);
+    private final JobManager jobManager = new JobManager(this);
+    private final BuildScheduler buildScheduler = new BuildScheduler(this);
+    private final PreviewManager previewManager = new PreviewManager(this);
+    private final QuotaManager quotaManager = new QuotaManager(this);
+    private final PathIndex pathIndex = new PathIndex(this);
+    private BlueprintStore blueprintStore;
+    private ExecutorService planningExecutor;
 
     /**
      * 
@@ -68,22 +93,53 @@ public class Pathinator extends JavaPlugin {
 
         pConfig = new PathinatorConfig(getConfig());
 
-        // Check for new versions asynchronously to avoid blocking startup
-        getServer().getScheduler().runTaskAsynchronously(this,
-                () -> compareVersions(VersionChecker.getLatestReleaseVersion()));
+        // Check for new versions without blocking startup, the result is cached between restarts
+        if (pConfig.getVersionCheckEnabled()) {
+            new VersionChecker(getDataFolder(), pConfig.getVersionCheckEndpoint(),
+                    Duration.ofHours(pConfig.getVersionCheckCacheHours()))
+                    .getLatestReleaseVersion()
+                    .thenAccept(versionData -> {
+                        if (isEnabled()) {
+                            getServer().getScheduler().runTask(this, () -> compareVersions(versionData));
+                        }
+                    });
+        }
 
         // Store name on config for easy access later (not saved to file)
         pConfig.setPluginName(this.getName());
 
         // Initialize bStats metrics
         setupMetrics(pConfig);
+        FlightEvents.setEnabled(pConfig.getJfrEvents());
+
+        blueprintStore = new BlueprintStore(getDataFolder());
+        pathIndex.start();
+
+        // Fixed for the lifetime of the plugin, a reload doesn't swap it
+        planningExecutor = PlanningExecutor.create(getName(), pConfig.getPlanningThreads(),
+                pConfig.getPlanningVirtualThreads(), getLogger());
 
         // Register Player Join and Quit Listeners
         getServer().getPluginManager().registerEvents(new PlayerJoinListener(this), this);
-        getServer().getPluginManager().registerEvents(new PlayerQuitListener(followRegistry), this);
+        getServer().getPluginManager().registerEvents(new PlayerQuitListener(followRegistry, previewManager,
+                quotaManager), this);
 
         CommandAPI.onEnable();
-        CommandRegistrar.register(this, pConfig, followRegistry);
+        CommandRegistrar.register(this, followRegistry);
+        setFollowListener(pConfig.getFollowEnabled());
+
+        buildScheduler.start();
+
+        // Resume any jobs that were interrupted by a shutdown or crash
+        jobManager.start();
+
+        if (pConfig.getDesirePathsEnabled()) {
+            desirePaths.start(pConfig);
+        }
+
+        if (pConfig.getMetricsEnabled()) {
+            metricsExporter.start(pConfig);
+        }
     }
 
     /**
@@ -92,7 +148,17 @@ public class Pathinator extends JavaPlugin {
     @Override
     public void onDisable() {
         CommandAPI.onDisable();
+        desirePaths.stop();
+        metricsExporter.stop();
+        previewManager.stop();
+        buildScheduler.stop();
         getServer().getScheduler().cancelTasks(this);
+        if (planningExecutor != null) {
+            planningExecutor.shutdownNow();
+        }
+        // Unfinished jobs stay in the build log and resume on the next start
+        jobManager.stop();
+        pathIndex.save();
     }
 
     /**
@@ -103,16 +169,107 @@ public class Pathinator extends JavaPlugin {
         return pConfig;
     }
 
+    /**
+     * 
+     * @return the job manager
+     */
+    public JobManager getJobManager() {
+        return jobManager;
+    }
+
+    /**
+     * 
+     * @return the build scheduler
+     */
+    public BuildScheduler getBuildScheduler() {
+        return buildScheduler;
+    }
+
+    /**
+     * 
+     * @return the preview manager
+     */
+    public PreviewManager getPreviewManager() {
+        return previewManager;
+    }
+
+    /**
+     * 
+     * @return the per-player build limits
+     */
+    public QuotaManager getQuotaManager() {
+        return quotaManager;
+    }
+
+    /**
+     * 
+     * @return the executor planning work runs on
+     */
+    public ExecutorService getPlanningExecutor() {
+        return planningExecutor;
+    }
+
+    /**
+     * 
+     * @return the blueprint store
+     */
+    public BlueprintStore getBlueprintStore() {
+        return blueprintStore;
+    }
+
+    /**
+     * 
+     * @return the index of built paths
+     */
+    public PathIndex getPathIndex() {
+        return pathIndex;
+    }
+
+    /**
+     * Reload config.yml. A complete new config snapshot is built first and then swapped
+     * in with a single write, so commands and listeners never see a half loaded config.
+     * Commands stay registered; the follow listener is only added or removed when
+     * follow.enabled actually changes.
+     */
     public void reloadPlugin() {
         reloadConfig();
-        pConfig = new PathinatorConfig(getConfig());
-        pConfig.setPluginName(this.getName());
-        CommandAPI.unregister(PathCommands.BASIC);
-        CommandAPI.unregister(PathCommands.TRACKS);
-        CommandAPI.unregister(PathCommands.CUSTOM);
-        CommandAPI.unregister(PathCommands.FOLLOW);
-        CommandAPI.unregister(PathCommands.DIG);
-        CommandRegistrar.register(this, pConfig, followRegistry);
+        PathinatorConfig newConfig = new PathinatorConfig(getConfig());
+        newConfig.setPluginName(this.getName());
+        PathinatorConfig oldConfig = pConfig;
+        pConfig = newConfig;
+        FlightEvents.setEnabled(newConfig.getJfrEvents());
+
+        if (oldConfig.getFollowEnabled() != newConfig.getFollowEnabled()) {
+            setFollowListener(newConfig.getFollowEnabled());
+        }
+
+        // Restart so the new desire path settings take effect
+        desirePaths.stop();
+        if (newConfig.getDesirePathsEnabled()) {
+            desirePaths.start(newConfig);
+        }
+
+        metricsExporter.stop();
+        if (newConfig.getMetricsEnabled()) {
+            metricsExporter.start(newConfig);
+        }
+    }
+
+    /**
+     * Add or remove the PlayerMoveEvent listener used by path:follow. Safe to call
+     * repeatedly, there is never more than one listener registered.
+     *
+     * @param enabled
+     */
+    private void setFollowListener(boolean enabled) {
+        if (enabled && moveListener == null) {
+            moveListener = new PlayerMoveListener(this, followRegistry);
+            getServer().getPluginManager().registerEvents(moveListener, this);
+        } else if (!enabled && moveListener != null) {
+            HandlerList.unregisterAll(moveListener);
+            moveListener = null;
+            followRegistry.clear();
+        }
     }
 
     /**
@@ -24,6 +24,7 @@
 
 package com.hidethemonkey.pathinator;
 
+import org.bukkit.configuration.ConfigurationSection;
 import org.bukkit.configuration.InvalidConfigurationException;
 import org.bukkit.configuration.MemorySection;
 import org.bukkit.configuration.file.FileConfiguration;
@@ -36,6 +37,13 @@ import java.util.List;
 import java.util.Set;
 import java.util.logging.Level;
 
+import com.hidethemonkey.pathinator.helpers.VersionChecker;
+import com.hidethemonkey.pathinator.jobs.QuotaManager;
+
+/**
+ * Read-only view of config.yml. A reload builds a new instance rather than changing
+ * this one, so a reference to it is a consistent snapshot.
+ */
 public class PathinatorConfig {
     private final FileConfiguration config;
     private String pluginName = "";
@@ -105,6 +113,24 @@ public class PathinatorConfig {
         return config.getInt("lighting.interval");
     }
 
+    /**
+     * Gets whether lights are placed by light level instead of every interval blocks.
+     *
+     * @return true if lighting.mode is "level"
+     */
+    public boolean getLightingByLevel() {
+        return "level".equalsIgnoreCase(config.getString("lighting.mode", "interval"));
+    }
+
+    /**
+     * Gets the light level paths are kept at when lighting.mode is "level".
+     *
+     * @return the lighting.minLevel configuration value
+     */
+    public int getLightingMinLevel() {
+        return Math.max(1, Math.min(15, config.getInt("lighting.minLevel", 8)));
+    }
+
     /**
      * Gets the powered rail interval configuration value.
      *
@@ -194,6 +220,347 @@ public class PathinatorConfig {
         return config.getBoolean("follow.enabled");
     }
 
+    /**
+     * Gets whether desire paths are enabled.
+     *
+     * @return true if footsteps should be tracked and paved, false otherwise
+     */
+    public boolean getDesirePathsEnabled() {
+        return config.getBoolean("desirePaths.enabled");
+    }
+
+    /**
+     * Gets the number of ticks between footstep samples.
+     *
+     * @return the sample interval in ticks
+     */
+    public int getDesirePathSampleInterval() {
+        return config.getInt("desirePaths.sampleInterval");
+    }
+
+    /**
+     * Gets the number of footsteps needed before a column is paved.
+     *
+     * @return the footstep threshold
+     */
+    public int getDesirePathThreshold() {
+        return config.getInt("desirePaths.threshold");
+    }
+
+    /**
+     * Gets the material used to pave desire paths.
+     *
+     * @return the desire path material as a string
+     */
+    public String getDesirePathMaterial() {
+        return config.getString("desirePaths.material");
+    }
+
+    /**
+     * Gets the materials that may be replaced by a desire path.
+     *
+     * @return the replaceable materials as a list of strings
+     */
+    public List<String> getDesirePathReplaceable() {
+        return config.getStringList("desirePaths.replaceable");
+    }
+
+    /**
+     * Gets the maximum number of chunks tracked per world.
+     *
+     * @return the chunk cap
+     */
+    public int getDesirePathMaxChunks() {
+        return config.getInt("desirePaths.maxChunks");
+    }
+
+    /**
+     * Gets the maximum number of desire path blocks paved per tick.
+     *
+     * @return the paving budget per tick
+     */
+    public int getDesirePathBlocksPerTick() {
+        return config.getInt("desirePaths.blocksPerTick");
+    }
+
+    /**
+     * Gets whether Pathinator should check for new versions.
+     *
+     * @return true if version checks are enabled, false otherwise
+     */
+    public boolean getVersionCheckEnabled() {
+        return config.getBoolean("versionCheck.enabled", true);
+    }
+
+    /**
+     * Gets the URL used to look up the latest release.
+     *
+     * @return the version check endpoint
+     */
+    public String getVersionCheckEndpoint() {
+        return config.getString("versionCheck.endpoint", VersionChecker.DEFAULT_ENDPOINT);
+    }
+
+    /**
+     * Gets how long a version check result is cached.
+     *
+     * @return the cache time in hours
+     */
+    public int getVersionCheckCacheHours() {
+        return config.getInt("versionCheck.cacheHours", 24);
+    }
+
+    /**
+     * Gets the number of blocks the build scheduler may change per tick, shared by all jobs.
+     *
+     * @return the scheduler.blocksPerTick configuration value
+     */
+    public int getBlocksPerTick() {
+        return Math.max(1, config.getInt("scheduler.blocksPerTick", 256));
+    }
+
+    /**
+     * Gets the maximum distance (in blocks along either axis) of a route.
+     *
+     * @return the route.maxDistance configuration value
+     */
+    public int getRouteMaxDistance() {
+        return config.getInt("route.maxDistance", 256);
+    }
+
+    /**
+     * Gets the maximum number of nodes a route search may expand.
+     *
+     * @return the route.maxNodes configuration value
+     */
+    public int getRouteMaxNodes() {
+        return config.getInt("route.maxNodes", 200000);
+    }
+
+    /**
+     * Gets the maximum height change between two steps of a route.
+     *
+     * @return the route.maxStep configuration value
+     */
+    public int getRouteMaxStep() {
+        return Math.max(0, config.getInt("route.maxStep", 1));
+    }
+
+    /**
+     * Gets the cost of each block of height change.
+     *
+     * @return the route.slopeCost configuration value
+     */
+    public int getRouteSlopeCost() {
+        return Math.max(0, config.getInt("route.slopeCost", 2));
+    }
+
+    /**
+     * Gets the cost of crossing a water column.
+     *
+     * @return the route.waterCost configuration value
+     */
+    public int getRouteWaterCost() {
+        return Math.max(0, config.getInt("route.waterCost", 8));
+    }
+
+    /**
+     * Gets the cost of each block carved or filled beyond the step limit.
+     *
+     * @return the route.carveCost configuration value
+     */
+    public int getRouteCarveCost() {
+        return Math.max(0, config.getInt("route.carveCost", 4));
+    }
+
+    /**
+     * Gets how far around the start and goal the planner may wander.
+     *
+     * @return the route.margin configuration value
+     */
+    public int getRouteMargin() {
+        return Math.max(0, config.getInt("route.margin", 32));
+    }
+
+    /**
+     * Gets the largest terrain sample (in KB) a route may load.
+     *
+     * @return the route.maxSampleKb configuration value
+     */
+    public int getRouteMaxSampleKb() {
+        return Math.max(0, config.getInt("route.maxSampleKb", 1024));
+    }
+
+    /**
+     * Gets the maximum height change between two steps of a terrain following path.
+     *
+     * @return the terrain.maxStep configuration value
+     */
+    public int getTerrainMaxStep() {
+        return Math.max(0, config.getInt("terrain.maxStep", 1));
+    }
+
+    /**
+     * Gets whether per-player build limits are enforced.
+     *
+     * @return the limits.enabled configuration value
+     */
+    public boolean getLimitsEnabled() {
+        return config.getBoolean("limits.enabled", true);
+    }
+
+    /**
+     * Gets the names of the limit groups, in the order they are checked.
+     *
+     * @return the keys of the limits.groups configuration section
+     */
+    public Set<String> getLimitGroups() {
+        ConfigurationSection groups = config.getConfigurationSection("limits.groups");
+        return groups != null ? groups.getKeys(false) : Set.of();
+    }
+
+    /**
+     * Gets a set of build limits. Missing values fall back to limits.default.
+     *
+     * @param path the configuration section holding the limits
+     * @return the limits
+     */
+    public QuotaManager.Limits getLimits(String path) {
+        return new QuotaManager.Limits(
+                Math.max(0.001, config.getDouble(path + ".blocksPerSecond",
+                        config.getDouble("limits.default.blocksPerSecond", 500))),
+                Math.max(1, config.getLong(path + ".burst", config.getLong("limits.default.burst", 20000))),
+                Math.max(1, config.getInt(path + ".maxJobs", config.getInt("limits.default.maxJobs", 2))),
+                Math.max(1, config.getLong(path + ".maxQueuedCells",
+                        config.getLong("limits.default.maxQueuedCells", 200000))));
+    }
+
+    /**
+     * Gets whether the build scheduler adjusts its budget to the server's tick time.
+     *
+     * @return the scheduler.adaptive configuration value
+     */
+    public boolean getAdaptiveBudget() {
+        return config.getBoolean("scheduler.adaptive", true);
+    }
+
+    /**
+     * Gets the tick time (in milliseconds) the adaptive budget aims for.
+     *
+     * @return the scheduler.targetMspt configuration value
+     */
+    public double getTargetMspt() {
+        return Math.max(1.0, config.getDouble("scheduler.targetMspt", 40.0));
+    }
+
+    /**
+     * Gets the smallest budget the adaptive scheduler drops to.
+     *
+     * @return the scheduler.minBlocksPerTick configuration value
+     */
+    public int getMinBlocksPerTick() {
+        return Math.max(1, config.getInt("scheduler.minBlocksPerTick", 16));
+    }
+
+    /**
+     * Gets how much the adaptive budget grows by each second while under the target.
+     *
+     * @return the scheduler.increase configuration value
+     */
+    public int getBudgetIncrease() {
+        return Math.max(1, config.getInt("scheduler.increase", 32));
+    }
+
+    /**
+     * Gets how far (in blocks) ahead of a build the chunks it needs are loaded.
+     *
+     * @return the scheduler.readAhead configuration value
+     */
+    public int getReadAhead() {
+        return Math.max(0, config.getInt("scheduler.readAhead", 48));
+    }
+
+    /**
+     * Gets whether planning runs on virtual threads when the Java runtime has them.
+     *
+     * @return the planning.virtualThreads configuration value
+     */
+    public boolean getPlanningVirtualThreads() {
+        return config.getBoolean("planning.virtualThreads", true);
+    }
+
+    /**
+     * Gets the number of planning threads used when virtual threads are not available.
+     *
+     * @return the planning.threads configuration value, 0 for automatic
+     */
+    public int getPlanningThreads() {
+        return Math.max(0, config.getInt("planning.threads", 0));
+    }
+
+    /**
+     * Gets whether Java Flight Recorder events are emitted for jobs, plans, batches and follow painting.
+     *
+     * @return the stats.jfrEvents configuration value
+     */
+    public boolean getJfrEvents() {
+        return config.getBoolean("stats.jfrEvents", false);
+    }
+
+    /**
+     * Gets whether metrics are exported in Prometheus text format.
+     *
+     * @return the metrics.enabled configuration value
+     */
+    public boolean getMetricsEnabled() {
+        return config.getBoolean("metrics.enabled", false);
+    }
+
+    /**
+     * Gets how often (in seconds) the exported metrics are updated.
+     *
+     * @return the metrics.interval configuration value
+     */
+    public int getMetricsInterval() {
+        return config.getInt("metrics.interval", 15);
+    }
+
+    /**
+     * Gets the file in the data folder that metrics are written to.
+     *
+     * @return the metrics.file configuration value, empty to not write a file
+     */
+    public String getMetricsFile() {
+        return config.getString("metrics.file", "");
+    }
+
+    /**
+     * Gets the localhost port metrics are served on at /metrics.
+     *
+     * @return the metrics.port configuration value, 0 to not serve them
+     */
+    public int getMetricsPort() {
+        return config.getInt("metrics.port", 0);
+    }
+
+    /**
+     * Gets how long (in seconds) a preview is shown before it expires.
+     *
+     * @return the preview.timeout configuration value
+     */
+    public int getPreviewTimeout() {
+        return Math.max(1, config.getInt("preview.timeout", 60));
+    }
+
+    /**
+     * Gets the largest number of blocks a single preview may show.
+     *
+     * @return the preview.maxBlocks configuration value
+     */
+    public int getPreviewMaxBlocks() {
+        return Math.max(1, config.getInt("preview.maxBlocks", 65536));
+    }
+
     /**
      * Updates the configuration file.
      *
@@ -28,7 +28,6 @@ import dev.jorel.commandapi.executors.CommandArguments;
 
 import java.util.ArrayList;
 
-import org.bukkit.Location;
 import org.bukkit.Material;
 import org.bukkit.block.Block;
 import org.bukkit.block.BlockFace;
@@ -39,7 +38,7 @@ import org.bukkit.inventory.ItemStack;
 import com.hidethemonkey.pathinator.Pathinator;
 import com.hidethemonkey.pathinator.helpers.BlockHelper;
 import com.hidethemonkey.pathinator.helpers.PlayerHelper;
-import com.hidethemonkey.pathinator.helpers.SegmentData;
+import com.hidethemonkey.pathinator.jobs.PathJob;
 
 public class BasicCommands extends PathCommands {
 
@@ -94,26 +93,16 @@ public class BasicCommands extends PathCommands {
 
         final ArrayList<ItemStack> lightingStack = getLightingStack(args, playerHelper);
 
-        Location placedLocation = targetBlock.getLocation().clone();
-
-        for (int i = 0; i < blockCount; i++) {
-            placedLocation = blockHelper.adjustLocationForward(placedLocation, facing);
-
-            SegmentData segmentData = new SegmentData();
-            segmentData.setWorld(player.getWorld());
-            segmentData.setBaseFacing(facing);
-            segmentData.setBaseMaterial(targetBlock.getBlockData().getMaterial());
-            segmentData.setBaseLocation(placedLocation);
-            segmentData.setClearance(config.getClearance());
-            segmentData.setClearanceMaterial(Material.getMaterial(config.getClearanceMaterial()));
-
-            if (getWithLights(args) && i != 0 && (i % config.getLightingInterval()) == 0) {
-                segmentData.addLightingStacks(lightingStack);
-                segmentData.addLighting();
-            }
+        PathJob job = new PathJob(PathJob.Type.BASIC, player.getUniqueId(), targetBlock.getLocation(), facing,
+                targetBlock.getBlockData().getMaterial(), blockCount);
+        job.setClearance(getConfig().getClearance(), Material.getMaterial(getConfig().getClearanceMaterial()));
+        if (getWithLights(args)) {
+            job.setLighting(getConfig().getLightingInterval(), lightingStack);
+        }
 
-            // This is where the magic happens
-            blockHelper.placeBlock(segmentData, i, playerHelper);
+        // This is where the magic happens
+        if (!submitJob(job, playerHelper, getFollowTerrain(args))) {
+            return;
         }
 
         if (requestedCount != blockCount) {
@@ -122,7 +111,8 @@ public class BasicCommands extends PathCommands {
                             + ", but only able to place "
                             + blockCount + ".");
         } else {
-            String prefix = playerHelper.isInSurvival() ? "Attempting to place " : "Placed ";
+            String prefix = isPreviewing(playerHelper) ? "Planned "
+                    : playerHelper.isInSurvival() ? "Attempting to place " : "Placed ";
             playerHelper.msg(prefix + blockCount + " blocks of " + targetBlock.getType().name() + ".");
         }
     }
@@ -0,0 +1,182 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2024 HideTheMonkey
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.hidethemonkey.pathinator.commands;
+
+import dev.jorel.commandapi.executors.CommandArguments;
+
+import java.io.IOException;
+import java.util.logging.Level;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.bukkit.block.BlockFace;
+import org.bukkit.command.CommandSender;
+import org.bukkit.entity.Player;
+
+import com.hidethemonkey.pathinator.Pathinator;
+import com.hidethemonkey.pathinator.helpers.BlockHelper;
+import com.hidethemonkey.pathinator.helpers.Blueprint;
+import com.hidethemonkey.pathinator.helpers.BlueprintStore;
+import com.hidethemonkey.pathinator.helpers.CrossSection;
+import com.hidethemonkey.pathinator.helpers.PlayerHelper;
+import com.hidethemonkey.pathinator.helpers.SurvivalLedger;
+import com.hidethemonkey.pathinator.jobs.SweepJob;
+
+public class BlueprintCommands extends PathCommands {
+
+    public static final int MAX_SIZE = 64;
+
+    private final BlueprintStore store;
+
+    public BlueprintCommands(Pathinator pathPlugin, BlueprintStore store) {
+        super(pathPlugin);
+        this.store = store;
+    }
+
+    /**
+     * Save the cross-section around the player as a blueprint
+     * 
+     * @param sender
+     * @param args
+     */
+    public void saveBlueprint(CommandSender sender, CommandArguments args) {
+        Player player = (Player) sender;
+        PlayerHelper playerHelper = new PlayerHelper(player, plugin);
+        BlockHelper blockHelper = new BlockHelper(plugin);
+
+        if (!permissionCheck(playerHelper, PERM_BLUEPRINT)) {
+            return;
+        }
+
+        String name = getBlueprintName(args);
+        if (!BlueprintStore.isValidName(name)) {
+            playerHelper.msg("Blueprint names may only contain a-z, 0-9, _ and - (max 32 characters).");
+            return;
+        }
+
+        Integer width = getWidth(args);
+        Integer height = getHeight(args, getConfig().getClearance() + 1);
+        if (width < 1 || height < 1 || width > MAX_SIZE || height > MAX_SIZE) {
+            playerHelper.msg("Width and height must be between 1 and " + MAX_SIZE + ".");
+            return;
+        }
+
+        Block targetBlock = findTargetBlock(blockHelper, playerHelper);
+        if (targetBlock == null) {
+            return;
+        }
+
+        Blueprint blueprint = Blueprint.capture(targetBlock, player.getFacing(), width, height);
+        try {
+            store.save(name, blueprint);
+        } catch (IOException e) {
+            plugin.getLogger().log(Level.WARNING, "Unable to save blueprint " + name, e);
+            playerHelper.msg("Unable to save blueprint " + name + ".");
+            return;
+        }
+        playerHelper.msg("Saved blueprint " + name + " (" + width + "x" + height + ", "
+                + blueprint.getPaletteSize() + " block types).");
+    }
+
+    /**
+     * Build a path using a saved blueprint as the cross-section
+     * 
+     * @param sender
+     * @param args
+     */
+    @Override
+    public void createPath(CommandSender sender, CommandArguments args) {
+        Player player = (Player) sender;
+        PlayerHelper playerHelper = new PlayerHelper(player, plugin);
+        BlockHelper blockHelper = new BlockHelper(plugin);
+
+        if (!permissionCheck(playerHelper, PERM_BLUEPRINT)) {
+            return;
+        }
+
+        // Check if the player is in a supported game mode
+        if (!modeCheck(playerHelper)) {
+            return;
+        }
+
+        if (!playerHelper.isInCreative()) {
+            playerHelper.msg("Building from a blueprint is only available in creative mode.");
+            return;
+        }
+
+        String name = getBlueprintName(args);
+        Blueprint blueprint;
+        try {
+            blueprint = BlueprintStore.isValidName(name) ? store.get(name) : null;
+        } catch (IOException e) {
+            plugin.getLogger().log(Level.WARNING, "Unable to read blueprint " + name, e);
+            playerHelper.msg("Blueprint " + name + " could not be read.");
+            return;
+        }
+        if (blueprint == null) {
+            playerHelper.msg("No blueprint named " + name + ".");
+            return;
+        }
+
+        Block targetBlock = findTargetBlock(blockHelper, playerHelper);
+        if (targetBlock == null) {
+            return;
+        }
+
+        Integer distance = getDistance(args);
+        if (distance <= 0) {
+            return;
+        }
+
+        BlockFace facing = player.getFacing();
+        // Rotate once up front, every slice reuses the same BlockData instances
+        CrossSection section = blueprint.toCrossSection(facing);
+        Location start = blockHelper.adjustLocationForward(targetBlock.getLocation(), facing);
+        SweepJob job = new SweepJob(section, start, facing, distance,
+                SweepJob.gatherExclusions(section, start, facing, distance), playerHelper,
+                new SurvivalLedger(playerHelper, blockHelper));
+        // Only what was actually built goes in the path index
+        World world = player.getWorld();
+        job.setOnPlaced((from, to) -> plugin.getPathIndex().recordStraight(world, player.getUniqueId(),
+                "blueprint:" + name, blueprint.getPathMaterial().name(), blueprint.getClearanceMaterial().name(),
+                blueprint.getWidth(), blueprint.getHeight(),
+                start.getBlockX() + facing.getModX() * from, start.getBlockY(),
+                start.getBlockZ() + facing.getModZ() * from,
+                start.getBlockX() + facing.getModX() * to, start.getBlockY(),
+                start.getBlockZ() + facing.getModZ() * to));
+        if (!submitSweep(job, playerHelper)) {
+            return;
+        }
+
+        playerHelper.msg((isPreviewing(playerHelper) ? "Planned " : "Placed ") + (distance * blueprint.getWidth() * blueprint.getHeight())
+                + " blocks from blueprint " + name + ".");
+    }
+
+    private String getBlueprintName(CommandArguments args) {
+        Object name = args.get(NAME);
+        return name != null ? name.toString().toLowerCase() : null;
+    }
+}
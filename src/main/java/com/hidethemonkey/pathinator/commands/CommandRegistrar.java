@@ -2,6 +2,7 @@ package com.hidethemonkey.pathinator.commands;
 
 import dev.jorel.commandapi.CommandAPICommand;
 import dev.jorel.commandapi.CommandTree;
+import dev.jorel.commandapi.arguments.Argument;
 import dev.jorel.commandapi.arguments.BlockStateArgument;
 import dev.jorel.commandapi.arguments.BooleanArgument;
 import dev.jorel.commandapi.arguments.IntegerArgument;
@@ -13,16 +14,24 @@ import net.kyori.adventure.text.Component;
 import com.hidethemonkey.pathinator.Pathinator;
 import com.hidethemonkey.pathinator.PathinatorConfig;
 import com.hidethemonkey.pathinator.helpers.FollowRegistry;
-import com.hidethemonkey.pathinator.listeners.PlayerMoveListener;
+import com.hidethemonkey.pathinator.jobs.BuildStats;
 
 public class CommandRegistrar {
 
-    public static void register(Pathinator plugin, PathinatorConfig config, FollowRegistry followRegistry) {
+    /**
+     * Register every command. This is only done once, on enable: commands read the
+     * current config snapshot each time they run, so a reload doesn't need to touch them.
+     *
+     * @param plugin
+     * @param followRegistry
+     */
+    public static void register(Pathinator plugin, FollowRegistry followRegistry) {
         BasicCommands basic = new BasicCommands(plugin);
         new CommandAPICommand(PathCommands.BASIC)
                 .withAliases("pb")
                 .withArguments(new IntegerArgument(PathCommands.DISTANCE))
                 .withOptionalArguments(new BooleanArgument(PathCommands.WITH_LIGHTS))
+                .withOptionalArguments(new BooleanArgument(PathCommands.FOLLOW_TERRAIN))
                 .executesPlayer((PlayerCommandExecutor) basic::createPath)
                 .register();
 
@@ -32,6 +41,7 @@ public class CommandRegistrar {
                 .withArguments(new IntegerArgument(PathCommands.DISTANCE))
                 .withOptionalArguments(new BooleanArgument(PathCommands.WITH_POWER))
                 .withOptionalArguments(new BooleanArgument(PathCommands.WITH_LIGHTS))
+                .withOptionalArguments(new BooleanArgument(PathCommands.FOLLOW_TERRAIN))
                 .executesPlayer((PlayerCommandExecutor) track::createPath)
                 .register();
 
@@ -46,52 +56,73 @@ public class CommandRegistrar {
                 .executesPlayer((PlayerCommandExecutor) custom::createPath)
                 .register();
 
-        if (config.getFollowEnabled()) {
-            plugin.getServer().getPluginManager().registerEvents(
-                    new PlayerMoveListener(plugin, followRegistry), plugin);
-            FollowCommands follow = new FollowCommands(plugin, followRegistry);
-            new CommandTree(PathCommands.FOLLOW).withAliases("pf")
-                    .thenNested(new LiteralArgument(PathCommands.START),
-                            new IntegerArgument(
-                                    PathCommands.RADIUS,
-                                    PathinatorConfig.MIN_RADIUS, PathinatorConfig.MAX_RADIUS),
-                            new BlockStateArgument(PathCommands.PATH_MATERIAL)
-                                    .executesPlayer((PlayerCommandExecutor) follow::createPath))
-                    .thenNested(new LiteralArgument(PathCommands.START),
-                            new IntegerArgument(PathCommands.RADIUS, PathinatorConfig.MIN_RADIUS,
-                                    PathinatorConfig.MAX_RADIUS)
-                                    .executesPlayer((PlayerCommandExecutor) follow::createPath))
-                    .then(new LiteralArgument(
-                            PathCommands.START)
-                            .executesPlayer((PlayerCommandExecutor) follow::createPath))
-                    .then(new LiteralArgument(
-                            PathCommands.STOP)
-                            .executesPlayer((PlayerCommandExecutor) follow::stopFollowing))
-                    .register();
-        }
+        FollowCommands follow = new FollowCommands(plugin, followRegistry);
+        new CommandTree(PathCommands.FOLLOW).withAliases("pf")
+                .thenNested(new LiteralArgument(PathCommands.START),
+                        new IntegerArgument(
+                                PathCommands.RADIUS,
+                                PathinatorConfig.MIN_RADIUS, PathinatorConfig.MAX_RADIUS),
+                        new BlockStateArgument(PathCommands.PATH_MATERIAL)
+                                .executesPlayer((PlayerCommandExecutor) follow::createPath))
+                .thenNested(new LiteralArgument(PathCommands.START),
+                        new IntegerArgument(PathCommands.RADIUS, PathinatorConfig.MIN_RADIUS,
+                                PathinatorConfig.MAX_RADIUS)
+                                .executesPlayer((PlayerCommandExecutor) follow::createPath))
+                .then(new LiteralArgument(
+                        PathCommands.START)
+                        .executesPlayer((PlayerCommandExecutor) follow::createPath))
+                .then(new LiteralArgument(
+                        PathCommands.STOP)
+                        .executesPlayer((PlayerCommandExecutor) follow::stopFollowing))
+                .register();
 
         DigCommands dig = new DigCommands(plugin);
         new CommandTree(PathCommands.DIG).withAliases("pd")
-                .then(new StringArgument(
-                        PathCommands.UP)
-                        .then(new IntegerArgument(PathCommands.DISTANCE)
-                                .executesPlayer((PlayerCommandExecutor) dig::createPath)))
-                .then(new StringArgument(
-                        PathCommands.DOWN)
-                        .then(new IntegerArgument(PathCommands.DISTANCE)
-                                .executesPlayer((PlayerCommandExecutor) dig::createPath)))
-                .then(new StringArgument(
-                        PathCommands.AHEAD)
-                        .then(new IntegerArgument(PathCommands.DISTANCE)
-                                .executesPlayer((PlayerCommandExecutor) dig::createPath)))
-                .then(new StringArgument(
-                        PathCommands.VUP)
-                        .then(new IntegerArgument(PathCommands.DISTANCE)
-                                .executesPlayer((PlayerCommandExecutor) dig::createPath)))
-                .then(new StringArgument(
-                        PathCommands.VDOWN)
-                        .then(new IntegerArgument(PathCommands.DISTANCE)
-                                .executesPlayer((PlayerCommandExecutor) dig::createPath)))
+                .then(digArguments(PathCommands.UP, dig))
+                .then(digArguments(PathCommands.DOWN, dig))
+                .then(digArguments(PathCommands.AHEAD, dig))
+                .then(digArguments(PathCommands.VUP, dig))
+                .then(digArguments(PathCommands.VDOWN, dig))
+                .register();
+
+        BlueprintCommands blueprint = new BlueprintCommands(plugin, plugin.getBlueprintStore());
+        new CommandTree(PathCommands.BLUEPRINT).withAliases("pbp")
+                .then(new LiteralArgument(PathCommands.SAVE)
+                        .then(new StringArgument(PathCommands.NAME)
+                                .then(new IntegerArgument(PathCommands.WIDTH, 1, BlueprintCommands.MAX_SIZE)
+                                        .then(new IntegerArgument(PathCommands.HEIGHT, 1, BlueprintCommands.MAX_SIZE)
+                                                .executesPlayer(
+                                                        (PlayerCommandExecutor) blueprint::saveBlueprint)))))
+                .then(new LiteralArgument(PathCommands.LOAD)
+                        .then(new StringArgument(PathCommands.NAME)
+                                .then(new IntegerArgument(PathCommands.DISTANCE)
+                                        .executesPlayer((PlayerCommandExecutor) blueprint::createPath))))
+                .register();
+
+        IndexCommands index = new IndexCommands(plugin, plugin.getPathIndex());
+        new CommandAPICommand(PathCommands.NEAR)
+                .withOptionalArguments(new IntegerArgument(PathCommands.RADIUS, 1, IndexCommands.MAX_NEAR_RADIUS))
+                .executesPlayer((PlayerCommandExecutor) index::findNear)
+                .register();
+        new CommandAPICommand(PathCommands.INFO)
+                .executesPlayer((PlayerCommandExecutor) index::createPath)
+                .register();
+
+        RouteCommands route = new RouteCommands(plugin);
+        new CommandAPICommand(PathCommands.ROUTE)
+                .withAliases("pr")
+                .withArguments(new IntegerArgument(PathCommands.X))
+                .withArguments(new IntegerArgument(PathCommands.Z))
+                .executesPlayer((PlayerCommandExecutor) route::createPath)
+                .register();
+
+        PreviewCommands preview = new PreviewCommands(plugin, plugin.getPreviewManager());
+        new CommandAPICommand(PathCommands.PREVIEW)
+                .withAliases("pp")
+                .executesPlayer((PlayerCommandExecutor) preview::createPath)
+                .register();
+        new CommandAPICommand(PathCommands.CONFIRM)
+                .executesPlayer((PlayerCommandExecutor) preview::confirm)
                 .register();
 
         new CommandAPICommand("pathinator")
@@ -101,6 +132,33 @@ public class CommandRegistrar {
                             plugin.reloadPlugin();
                             sender.sendMessage(Component.text("[" + plugin.getName() + "]: Config reloaded."));
                         }))
+                .withSubcommand(new CommandAPICommand("stats")
+                        .withPermission("pathinator.admin")
+                        .executesPlayer((PlayerCommandExecutor) (sender, args) -> {
+                            BuildStats stats = plugin.getBuildScheduler().getStats();
+                            sender.sendMessage(Component.text("[" + plugin.getName() + "]: " + stats.getBlocks()
+                                    + " blocks in " + stats.getBusyTicks() + " ticks, "
+                                    + String.format("%.1f blocks/tick (peak %d), %.0f ns/block, %.0f bytes/block",
+                                            stats.getBlocksPerTick(), stats.getPeakBlocksPerTick(),
+                                            stats.getNanosPerBlock(), stats.getBytesPerBlock())));
+                        }))
                 .register();
     }
+
+    /**
+     * path:dig <direction> <distance> [width] [height]
+     * 
+     * @param direction
+     * @param dig
+     * @return
+     */
+    private static Argument<?> digArguments(String direction, DigCommands dig) {
+        return new StringArgument(direction)
+                .then(new IntegerArgument(PathCommands.DISTANCE)
+                        .executesPlayer((PlayerCommandExecutor) dig::createPath)
+                        .then(new IntegerArgument(PathCommands.WIDTH, 1, DigCommands.MAX_SIZE)
+                                .executesPlayer((PlayerCommandExecutor) dig::createPath)
+                                .then(new IntegerArgument(PathCommands.HEIGHT, 1, DigCommands.MAX_SIZE)
+                                        .executesPlayer((PlayerCommandExecutor) dig::createPath))));
+    }
 }
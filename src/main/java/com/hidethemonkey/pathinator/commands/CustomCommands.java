@@ -30,6 +30,7 @@ import java.util.ArrayList;
 
 import org.bukkit.Location;
 import org.bukkit.Material;
+import org.bukkit.World;
 import org.bukkit.block.Block;
 import org.bukkit.block.BlockFace;
 import org.bukkit.command.CommandSender;
@@ -37,9 +38,10 @@ import org.bukkit.entity.Player;
 
 import com.hidethemonkey.pathinator.Pathinator;
 import com.hidethemonkey.pathinator.helpers.BlockHelper;
+import com.hidethemonkey.pathinator.helpers.CrossSection;
 import com.hidethemonkey.pathinator.helpers.PlayerHelper;
-import com.hidethemonkey.pathinator.helpers.SegmentData;
-import com.hidethemonkey.pathinator.helpers.SegmentData.Section;
+import com.hidethemonkey.pathinator.helpers.SurvivalLedger;
+import com.hidethemonkey.pathinator.jobs.SweepJob;
 
 public class CustomCommands extends PathCommands {
 
@@ -89,11 +91,10 @@ public class CustomCommands extends PathCommands {
 
         // Get the custom parameters
         Integer width = getWidth(args);
-        Integer height = getHeight(args, config.getClearance());
+        Integer height = getHeight(args, getConfig().getClearance());
         Material pathMaterial = getPathMaterial(args, targetBlock.getBlockData());
-        Material clearanceMaterial = getClearanceMaterial(args, config.getClearanceMaterial());
+        Material clearanceMaterial = getClearanceMaterial(args, getConfig().getClearanceMaterial());
 
-        Location placedLocation = targetBlock.getLocation().clone();
         BlockFace facing = player.getFacing();
 
         ArrayList<Material> leftMaterials = new ArrayList<Material>();
@@ -136,63 +137,38 @@ public class CustomCommands extends PathCommands {
             }
         }
 
-        for (int i = index; i < distance; i++) {
-            if (i >= 0) {
-                placedLocation = blockHelper.adjustLocationForward(placedLocation, facing);
-            }
-            SegmentData segmentData = new SegmentData();
-            segmentData.setWorld(player.getWorld());
-            segmentData.setBaseFacing(facing);
-            segmentData.setBaseMaterial(pathMaterial);
-            segmentData.setBaseLocation(placedLocation);
-            segmentData.setClearance(height);
-            segmentData.setClearanceMaterial(clearanceMaterial);
-            segmentData.setLeftMaterials(leftMaterials);
-            segmentData.setRightMaterials(rightMaterials);
-            segmentData.setNegativeSpace(blockHelper.getPlayerSpace(targetBlock));
-
-            // This is where the magic happens
-            blockHelper.placeBlock(segmentData, i, playerHelper);
-
-            if (width > 1) {
-                int blocksRight = Math.round((width - 1) / 2);
-                int blocksLeft = width - blocksRight - 1;
-
-                SegmentData rightSegmentData = new SegmentData(segmentData);
-                Location rightLocation = placedLocation.clone();
-                BlockFace rightFacing = BlockHelper.rotate90(facing, false);
-                rightSegmentData.setBaseFacing(rightFacing);
-                rightSegmentData.setCurrentSection(Section.RIGHT);
-
-                for (int j = 0; j < blocksRight; j++) {
-                    rightLocation = blockHelper.adjustLocationForward(rightLocation, rightFacing);
-                    rightSegmentData.setBaseLocation(rightLocation);
-                    rightSegmentData.setSideIndex(j);
-                    blockHelper.placeBlock(new SegmentData(rightSegmentData), i, playerHelper);
-                }
-
-                SegmentData leftSegmentData = new SegmentData(segmentData);
-                Location leftLocation = placedLocation.clone();
-                BlockFace leftFacing = BlockHelper.rotate90(facing, true);
-                leftSegmentData.setBaseFacing(leftFacing);
-                leftSegmentData.setCurrentSection(Section.LEFT);
-
-                for (int k = 0; k < blocksLeft; k++) {
-                    leftLocation = blockHelper.adjustLocationForward(leftLocation, leftFacing);
-                    leftSegmentData.setBaseLocation(leftLocation);
-                    leftSegmentData.setSideIndex(k);
-                    blockHelper.placeBlock(new SegmentData(leftSegmentData), i, playerHelper);
-                }
-            }
+        // Compile the cross-section once, every slice reuses it
+        CrossSection section = CrossSection.compile(pathMaterial, leftMaterials, rightMaterials, clearanceMaterial,
+                width, height);
+        int slices = distance - index;
+        Location first = index < 0 ? targetBlock.getLocation()
+                : blockHelper.adjustLocationForward(targetBlock.getLocation(), facing);
+
+        // This is where the magic happens
+        SweepJob job = new SweepJob(section, first, facing, slices,
+                SweepJob.gatherExclusions(section, first, facing, slices), playerHelper,
+                new SurvivalLedger(playerHelper, blockHelper));
+        // Only what was actually built goes in the path index
+        World world = player.getWorld();
+        job.setOnPlaced((from, to) -> plugin.getPathIndex().recordStraight(world, player.getUniqueId(), "custom",
+                pathMaterial.name(), clearanceMaterial.name(), width, height + 1,
+                first.getBlockX() + facing.getModX() * from, first.getBlockY(),
+                first.getBlockZ() + facing.getModZ() * from,
+                first.getBlockX() + facing.getModX() * to, first.getBlockY(),
+                first.getBlockZ() + facing.getModZ() * to));
+        if (!submitSweep(job, playerHelper)) {
+            return;
         }
 
+        String verb = isPreviewing(playerHelper) ? "Planned " : "Placed ";
+
         if (pathMaterial.name().equals(clearanceMaterial.name())) {
-            playerHelper.msg("Placed " + (distance * width * (height + 1)) + " blocks of " + pathMaterial.name() + ".");
+            playerHelper.msg(verb + (distance * width * (height + 1)) + " blocks of " + pathMaterial.name() + ".");
         } else if (width > 1) {
-            playerHelper.msg("Placed " + (distance * width) + " blocks on the path and " + (distance * width * height)
+            playerHelper.msg(verb + (distance * width) + " blocks on the path and " + (distance * width * height)
                     + " blocks in the air.");
         } else {
-            playerHelper.msg("Placed " + (distance * width) + " blocks of " + pathMaterial.name() + ".");
+            playerHelper.msg(verb + (distance * width) + " blocks of " + pathMaterial.name() + ".");
         }
 
     }
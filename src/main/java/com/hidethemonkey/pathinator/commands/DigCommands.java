@@ -4,17 +4,20 @@ import dev.jorel.commandapi.executors.CommandArguments;
 
 import org.bukkit.Location;
 import org.bukkit.block.Block;
-import org.bukkit.block.BlockFace;
 import org.bukkit.command.CommandSender;
 import org.bukkit.entity.Player;
 
 import com.hidethemonkey.pathinator.Pathinator;
 import com.hidethemonkey.pathinator.helpers.BlockHelper;
 import com.hidethemonkey.pathinator.helpers.PlayerHelper;
-import com.hidethemonkey.pathinator.helpers.SegmentData;
+import com.hidethemonkey.pathinator.helpers.SurvivalLedger;
+import com.hidethemonkey.pathinator.jobs.DigJob;
+import com.hidethemonkey.pathinator.jobs.QuotaManager;
 
 public class DigCommands extends PathCommands {
 
+    public static final int MAX_SIZE = 32;
+
     public DigCommands(Pathinator pathPlugin) {
         super(pathPlugin);
     }
@@ -42,42 +45,25 @@ public class DigCommands extends PathCommands {
             return;
         }
 
-        BlockFace facing = player.getFacing();
         Integer distance = getDistance(args);
-        Integer height = getHeight(args, config.getClearance() - 1);
-
-        Enum<?> digDirection = getDigDirection(args);
-
-        Location startingLocation = targetBlock.getLocation().clone().add(0, 1, 0);
-
-        if (digDirection == DigDirection.VUP || digDirection == DigDirection.VDOWN) {
-            startingLocation = blockHelper.adjustLocationForward(startingLocation, facing);
-            height = -1;
+        if (distance <= 0) {
+            return;
         }
+        Integer width = getWidth(args);
+        Integer height = getHeight(args, getConfig().getClearance());
 
-        for (int i = 0; i < distance; i++) {
-            if (digDirection != DigDirection.VUP && digDirection != DigDirection.VDOWN) {
-                startingLocation = blockHelper.adjustLocationForward(startingLocation, facing);
-            }
-
-            if (digDirection == DigDirection.UP) {
-                startingLocation = startingLocation.add(0, 1, 0);
-            } else if (digDirection == DigDirection.DOWN) {
-                startingLocation = startingLocation.subtract(0, 1, 0);
-            } else if (digDirection == DigDirection.VUP && i > 0) {
-                startingLocation = startingLocation.add(0, 1, 0);
-            } else if (digDirection == DigDirection.VDOWN && i > 0) {
-                startingLocation = startingLocation.subtract(0, 1, 0);
-            }
+        DigJob.Pattern pattern = DigJob.Pattern.valueOf(getDigDirection(args).name());
+        Location origin = targetBlock.getLocation().add(0, 1, 0);
 
-            SegmentData segmentData = new SegmentData();
-            segmentData.setWorld(player.getWorld());
-            segmentData.setBaseFacing(facing);
-            segmentData.setBaseLocation(startingLocation.clone());
-            segmentData.setClearance(height);
-
-            blockHelper.digBlocks(segmentData, i, playerHelper);
+        // The whole volume runs as one job, a budgeted number of blocks per tick
+        DigJob job = new DigJob(origin, player.getFacing(), pattern, width, height, distance, playerHelper,
+                new SurvivalLedger(playerHelper, blockHelper));
+        QuotaManager.Reservation reservation = quotaCheck(playerHelper, job.getTotal());
+        if (reservation == null) {
+            return;
         }
+        reservation.start();
+        plugin.getBuildScheduler().submit(job);
     }
 
 }
@@ -68,6 +68,11 @@ public class FollowCommands extends PathCommands {
             return;
         }
 
+        if (!getConfig().getFollowEnabled()) {
+            playerHelper.msg("/" + PathCommands.FOLLOW + " is disabled on this server.");
+            return;
+        }
+
         // Check if the player is in a supported game mode
         if (!playerHelper.isInCreative()) {
             playerHelper.msg("/" + PathCommands.FOLLOW + " does not work in " + playerHelper.getPlayer().getGameMode().name() + " mode.");
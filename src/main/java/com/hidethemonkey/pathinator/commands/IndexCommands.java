@@ -0,0 +1,123 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2024 HideTheMonkey
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.hidethemonkey.pathinator.commands;
+
+import dev.jorel.commandapi.executors.CommandArguments;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.List;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.OfflinePlayer;
+import org.bukkit.command.CommandSender;
+import org.bukkit.entity.Player;
+
+import com.hidethemonkey.pathinator.Pathinator;
+import com.hidethemonkey.pathinator.helpers.PathIndex;
+import com.hidethemonkey.pathinator.helpers.PathIndex.PathRecord;
+import com.hidethemonkey.pathinator.helpers.PlayerHelper;
+
+public class IndexCommands extends PathCommands {
+
+    public static final int DEFAULT_NEAR_RADIUS = 32;
+    public static final int MAX_NEAR_RADIUS = 256;
+    private static final int MAX_RESULTS = 10;
+
+    private final PathIndex pathIndex;
+
+    public IndexCommands(Pathinator pathPlugin, PathIndex pathIndex) {
+        super(pathPlugin);
+        this.pathIndex = pathIndex;
+    }
+
+    /**
+     * Show details of the path(s) the player is standing on (path:info)
+     * 
+     * @param sender
+     * @param args
+     */
+    @Override
+    public void createPath(CommandSender sender, CommandArguments args) {
+        Player player = (Player) sender;
+        PlayerHelper playerHelper = new PlayerHelper(player, plugin);
+
+        if (!permissionCheck(playerHelper, PERM_INFO)) {
+            return;
+        }
+
+        Location location = player.getLocation();
+        List<PathRecord> found = pathIndex.at(player.getWorld(), location.getBlockX(), location.getBlockY(),
+                location.getBlockZ());
+        if (found.isEmpty()) {
+            playerHelper.msg("You are not standing on a path built with Pathinator.");
+            return;
+        }
+        SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm");
+        for (PathRecord record : found) {
+            OfflinePlayer owner = Bukkit.getOfflinePlayer(record.ownerId());
+            playerHelper.msg("Path #" + record.id() + ": " + record.type() + ", " + record.getLength()
+                    + " blocks of " + record.material() + " (" + record.width() + "x" + record.height() + ")");
+            playerHelper.msg("  Built by " + (owner.getName() != null ? owner.getName() : record.ownerId())
+                    + " on " + dateFormat.format(new Date(record.createdAt())) + ", from "
+                    + record.xs()[0] + ", " + record.ys()[0] + ", " + record.zs()[0] + " to "
+                    + record.xs()[record.xs().length - 1] + ", " + record.ys()[record.ys().length - 1] + ", "
+                    + record.zs()[record.zs().length - 1]);
+        }
+    }
+
+    /**
+     * List the paths closest to the player (path:near)
+     * 
+     * @param sender
+     * @param args
+     */
+    public void findNear(CommandSender sender, CommandArguments args) {
+        Player player = (Player) sender;
+        PlayerHelper playerHelper = new PlayerHelper(player, plugin);
+
+        if (!permissionCheck(playerHelper, PERM_INFO)) {
+            return;
+        }
+
+        int radius = (Integer) args.getOrDefault(RADIUS, DEFAULT_NEAR_RADIUS);
+        Location location = player.getLocation();
+        List<PathRecord> found = pathIndex.near(player.getWorld(), location.getBlockX(), location.getBlockZ(),
+                radius);
+        if (found.isEmpty()) {
+            playerHelper.msg("No paths within " + radius + " blocks.");
+            return;
+        }
+        playerHelper.msg("Found " + found.size() + " path(s) within " + radius + " blocks:");
+        for (int i = 0; i < found.size() && i < MAX_RESULTS; i++) {
+            PathRecord record = found.get(i);
+            int distance = (int) Math.round(Math.sqrt(
+                    record.distanceSquared(location.getBlockX(), location.getBlockZ())));
+            playerHelper.msg("  #" + record.id() + " " + record.type() + " of " + record.material() + ", "
+                    + record.getLength() + " blocks long, " + distance + " blocks away");
+        }
+    }
+}
@@ -27,18 +27,35 @@ package com.hidethemonkey.pathinator.commands;
 import dev.jorel.commandapi.executors.CommandArguments;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 import org.bukkit.Material;
+import org.bukkit.World;
 import org.bukkit.block.Block;
+import org.bukkit.block.BlockFace;
 import org.bukkit.block.data.BlockData;
 import org.bukkit.command.CommandSender;
+import org.bukkit.entity.Player;
 import org.bukkit.inventory.ItemStack;
 
 import com.hidethemonkey.pathinator.Pathinator;
 import com.hidethemonkey.pathinator.PathinatorConfig;
 import com.hidethemonkey.pathinator.helpers.BlockHelper;
+import com.hidethemonkey.pathinator.helpers.FlightEvents;
+import com.hidethemonkey.pathinator.helpers.LightingPlanner;
+import com.hidethemonkey.pathinator.helpers.OpsMetrics;
 import com.hidethemonkey.pathinator.helpers.PlayerHelper;
+import com.hidethemonkey.pathinator.helpers.TerrainProfile;
+import com.hidethemonkey.pathinator.helpers.TerrainSampler;
+import com.hidethemonkey.pathinator.jobs.PathJob;
+import com.hidethemonkey.pathinator.jobs.QuotaManager;
+import com.hidethemonkey.pathinator.jobs.SweepJob;
+
+import io.papermc.paper.math.Position;
 
 public abstract class PathCommands {
 
@@ -48,6 +65,12 @@ public abstract class PathCommands {
     public static final String TRACKS = "path:tracks";
     public static final String FOLLOW = "path:follow";
     public static final String DIG = "path:dig";
+    public static final String BLUEPRINT = "path:blueprint";
+    public static final String NEAR = "path:near";
+    public static final String INFO = "path:info";
+    public static final String ROUTE = "path:route";
+    public static final String PREVIEW = "path:preview";
+    public static final String CONFIRM = "path:confirm";
 
     // permissions
     public static final String PERM_BASIC = "pathinator.basic";
@@ -55,6 +78,10 @@ public abstract class PathCommands {
     public static final String PERM_CUSTOM = "pathinator.custom";
     public static final String PERM_FOLLOW = "pathinator.follow";
     public static final String PERM_DIG = "pathinator.dig";
+    public static final String PERM_BLUEPRINT = "pathinator.blueprint";
+    public static final String PERM_INFO = "pathinator.info";
+    public static final String PERM_ROUTE = "pathinator.route";
+    public static final String PERM_PREVIEW = "pathinator.preview";
     public static final String PERM_ADMIN = "pathinator.admin";
 
     // parameters
@@ -65,6 +92,7 @@ public abstract class PathCommands {
     public static final String CLEARANCE_MATERIAL = "clearance material";
     public static final String WITH_LIGHTS = "with lights";
     public static final String WITH_POWER = "with power";
+    public static final String FOLLOW_TERRAIN = "follow terrain";
     public static final String RADIUS = "radius";
     public static final String START = "start";
     public static final String STOP = "stop";
@@ -73,9 +101,13 @@ public abstract class PathCommands {
     public static final String AHEAD = "ahead";
     public static final String VUP = "vup";
     public static final String VDOWN = "vdown";
+    public static final String SAVE = "save";
+    public static final String LOAD = "load";
+    public static final String NAME = "name";
+    public static final String X = "x";
+    public static final String Z = "z";
 
     protected Pathinator plugin;
-    protected PathinatorConfig config;
 
     enum DigDirection {
         UP,
@@ -105,7 +137,16 @@ public abstract class PathCommands {
      */
     public PathCommands(Pathinator pathPlugin) {
         this.plugin = pathPlugin;
-        this.config = pathPlugin.getPConfig();
+    }
+
+    /**
+     * Gets the current config snapshot. Commands are registered once, so always read
+     * the config through here to pick up reloads.
+     *
+     * @return the current config
+     */
+    protected PathinatorConfig getConfig() {
+        return plugin.getPConfig();
     }
 
     /**
@@ -146,7 +187,7 @@ public abstract class PathCommands {
      * @return The radius argument, or the default radius if not provided.
      */
     protected Integer getRadius(CommandArguments args) {
-        return config.ensureRadius((Integer) args.getOrDefault(RADIUS, config.getRadius()));
+        return getConfig().ensureRadius((Integer) args.getOrDefault(RADIUS, getConfig().getRadius()));
     }
 
     /**
@@ -195,6 +236,274 @@ public abstract class PathCommands {
         return (boolean) args.getOrDefault(WITH_POWER, false);
     }
 
+    /**
+     * Gets the followTerrain argument from the command arguments.
+     *
+     * @param args The command arguments.
+     * @return The followTerrain argument, or false if not provided.
+     */
+    protected boolean getFollowTerrain(CommandArguments args) {
+        return (boolean) args.getOrDefault(FOLLOW_TERRAIN, false);
+    }
+
+    /**
+     * Starts a path job. When following the terrain or placing lights by light level,
+     * the world along the path is read in the background first and the job is started
+     * once it has been planned. If planning fails the job falls back to a level path
+     * and lights every interval blocks.
+     *
+     * @param job           The job to start.
+     * @param playerHelper  The player helper instance.
+     * @param followTerrain Whether the path should follow the ground.
+     * @return False if the player's build limits don't allow the job.
+     */
+    protected boolean submitJob(PathJob job, PlayerHelper playerHelper, boolean followTerrain) {
+        QuotaManager.Reservation reservation = quotaCheck(playerHelper, job.countCells(job.getCursor()));
+        if (reservation == null) {
+            return false;
+        }
+        boolean planLights = job.getWithLights() && getConfig().getLightingByLevel();
+        if (!followTerrain && !planLights) {
+            startJob(job, playerHelper, reservation);
+            return true;
+        }
+        World world = playerHelper.getPlayer().getWorld();
+        // messages for the player, sent once planning is done
+        List<String> notes = Collections.synchronizedList(new ArrayList<>());
+        CompletableFuture<Void> planned = CompletableFuture.completedFuture(null);
+        FlightEvents.PlanComplete event = FlightEvents.beginPlan(followTerrain ? "terrain" : "lighting");
+
+        if (followTerrain) {
+            // rails can only climb one block at a time
+            int maxStep = job.getType() == PathJob.Type.TRACKS ? Math.min(1, getConfig().getTerrainMaxStep())
+                    : getConfig().getTerrainMaxStep();
+            BlockFace facing = job.getFacing();
+            int endX = job.getStartX() + facing.getModX() * job.getDistance();
+            int endZ = job.getStartZ() + facing.getModZ() * job.getDistance();
+            planned = planned
+                    .thenCompose(ignored -> TerrainSampler.sample(plugin, world, Math.min(job.getStartX(), endX),
+                            Math.min(job.getStartZ(), endZ), Math.max(job.getStartX(), endX),
+                            Math.max(job.getStartZ(), endZ)))
+                    .thenAcceptAsync(grid -> job.setProfile(TerrainProfile.follow(grid, job.getStartX(),
+                            job.getStartY(), job.getStartZ(), facing, job.getDistance(), maxStep)),
+                            plugin.getPlanningExecutor())
+                    .exceptionally(error -> {
+                        plugin.getLogger().warning("Unable to read terrain: " + error.getMessage());
+                        notes.add("Unable to read the terrain, building a level path instead.");
+                        return null;
+                    });
+        }
+
+        if (planLights) {
+            List<Material> stack = job.getLightingStack();
+            int[] emissions = new int[stack.size()];
+            for (int i = 0; i < emissions.length; i++) {
+                emissions[i] = stack.get(i).createBlockData().getLightEmission();
+            }
+            int minLevel = getConfig().getLightingMinLevel();
+            planned = planned
+                    .thenCompose(ignored -> planLighting(job, world, emissions, minLevel))
+                    .thenAccept(count -> notes.add("Placing " + count + " lights to keep the path at light level "
+                            + minLevel + "."))
+                    .exceptionally(error -> {
+                        plugin.getLogger().warning("Unable to plan lighting: " + error.getMessage());
+                        notes.add("Unable to read light levels, placing lights every "
+                                + getConfig().getLightingInterval() + " blocks instead.");
+                        return null;
+                    });
+        }
+
+        planned.thenRun(() -> {
+            // a failed step falls back and leaves an "Unable to ..." note for the player
+            FlightEvents.endPlan(event, job.getDistance(), notes.stream().anyMatch(note -> note.startsWith("Unable")));
+            if (!plugin.isEnabled()) {
+                return;
+            }
+            plugin.getServer().getScheduler().runTask(plugin, () -> {
+                if (!playerHelper.getPlayer().isOnline()) {
+                    reservation.release();
+                    return;
+                }
+                notes.forEach(playerHelper::msg);
+                startJob(job, playerHelper, reservation);
+            });
+        });
+        return true;
+    }
+
+    /**
+     * Build a planned path job, or only show it to the player if they are previewing.
+     *
+     * @param job          The planned job.
+     * @param playerHelper The player helper instance.
+     * @param reservation  The job's quota, charged when it is built.
+     */
+    private void startJob(PathJob job, PlayerHelper playerHelper, QuotaManager.Reservation reservation) {
+        Runnable build = () -> {
+            reservation.start();
+            plugin.getJobManager().submit(job, playerHelper);
+        };
+        if (!isPreviewing(playerHelper)) {
+            build.run();
+            return;
+        }
+        if (tooLargeToPreview(playerHelper, job.countCells(job.getCursor()), reservation)) {
+            return;
+        }
+        World world = playerHelper.getPlayer().getWorld();
+        BlockHelper blockHelper = new BlockHelper(plugin);
+        Map<Position, BlockData> changes = new HashMap<>();
+        for (int i = 0; i < job.getDistance(); i++) {
+            blockHelper.previewBlock(job.segmentAt(i, world), changes);
+        }
+        showPreview(playerHelper, changes, build, reservation);
+    }
+
+    /**
+     * Work out which steps of a job need a light, based on the light already there.
+     *
+     * @param job       The job, with its final heights.
+     * @param world     The world the job is in.
+     * @param emissions Light emitted by each block of the lighting stack.
+     * @param minLevel  The light level to keep the path at.
+     * @return The number of lights planned.
+     */
+    private CompletableFuture<Integer> planLighting(PathJob job, World world, int[] emissions, int minLevel) {
+        int distance = job.getDistance();
+        int[] xs = new int[distance];
+        int[] ys = new int[distance];
+        int[] feet = new int[distance];
+        int[] zs = new int[distance];
+        for (int i = 0; i < distance; i++) {
+            xs[i] = job.getStartX() + job.getFacing().getModX() * (i + 1);
+            ys[i] = job.getY(i);
+            feet[i] = ys[i] + 1;
+            zs[i] = job.getStartZ() + job.getFacing().getModZ() * (i + 1);
+        }
+        return TerrainSampler.sampleBlockLight(plugin, world, xs, feet, zs).thenApplyAsync(existing -> {
+            int[] steps = new LightingPlanner(ys, job.getClearance(), emissions).plan(existing, minLevel);
+            job.setLightSteps(steps);
+            return steps.length;
+        }, plugin.getPlanningExecutor());
+    }
+
+    /**
+     * Starts a sweep job. Cells that already hold what would be placed are found
+     * from chunk snapshots in the background and skipped before the job is queued.
+     *
+     * @param job          The job to start.
+     * @param playerHelper The player helper instance.
+     * @return False if the player's build limits don't allow the job.
+     */
+    protected boolean submitSweep(SweepJob job, PlayerHelper playerHelper) {
+        QuotaManager.Reservation reservation = quotaCheck(playerHelper, job.getTotal());
+        if (reservation == null) {
+            return false;
+        }
+        FlightEvents.PlanComplete event = FlightEvents.beginPlan("prune");
+        job.prune(plugin).whenComplete((pruned, error) -> {
+            FlightEvents.endPlan(event, job.getTotal(), error != null);
+            if (!plugin.isEnabled()) {
+                return;
+            }
+            plugin.getServer().getScheduler().runTask(plugin, () -> {
+                if (!playerHelper.getPlayer().isOnline()) {
+                    reservation.release();
+                    return;
+                }
+                if (error != null) {
+                    plugin.getLogger().warning("Unable to check existing blocks: " + error.getMessage());
+                } else if (pruned > 0) {
+                    playerHelper.msg("Skipping " + pruned + " of " + (job.getTotal() + pruned)
+                            + " blocks that are already in place.");
+                }
+                Runnable build = () -> {
+                    reservation.start();
+                    plugin.getBuildScheduler().submit(job);
+                };
+                if (!isPreviewing(playerHelper)) {
+                    build.run();
+                    return;
+                }
+                if (tooLargeToPreview(playerHelper, job.getTotal(), reservation)) {
+                    return;
+                }
+                Map<Position, BlockData> changes = new HashMap<>();
+                job.preview(changes);
+                showPreview(playerHelper, changes, build, reservation);
+            });
+        });
+        return true;
+    }
+
+    /**
+     * Checks the player's build limits. The blocks are taken from their quota when
+     * the returned reservation is started.
+     *
+     * @param playerHelper The player helper instance.
+     * @param cells        The number of blocks the build changes.
+     * @return The reservation if the build may go ahead, null otherwise.
+     */
+    protected QuotaManager.Reservation quotaCheck(PlayerHelper playerHelper, long cells) {
+        QuotaManager.Reservation reservation = plugin.getQuotaManager().acquire(playerHelper.getPlayer(), cells);
+        if (reservation.getRefusal() != null) {
+            OpsMetrics.QUOTA_REFUSALS.increment();
+            playerHelper.msg(reservation.getRefusal());
+            return null;
+        }
+        return reservation;
+    }
+
+    /**
+     * Checks if the player's builds are only being previewed.
+     *
+     * @param playerHelper The player helper instance.
+     * @return True if preview mode is on for the player.
+     */
+    protected boolean isPreviewing(PlayerHelper playerHelper) {
+        return plugin.getPreviewManager().isPreviewing(playerHelper.getPlayer());
+    }
+
+    /**
+     * Checks a build against the preview limit before any of its blocks are
+     * collected, and drops the build if it is over.
+     *
+     * @param playerHelper The player helper instance.
+     * @param cells        The number of blocks the build changes.
+     * @param reservation  The build's quota, released if it is too large.
+     * @return True if the build was dropped.
+     */
+    private boolean tooLargeToPreview(PlayerHelper playerHelper, long cells, QuotaManager.Reservation reservation) {
+        if (cells <= getConfig().getPreviewMaxBlocks()) {
+            return false;
+        }
+        reservation.release();
+        playerHelper.msg("That build is too large to preview (" + cells + " blocks, the limit is "
+                + getConfig().getPreviewMaxBlocks() + ").");
+        return true;
+    }
+
+    /**
+     * Sends a planned build to the player's client, to be built with /path:confirm.
+     *
+     * @param playerHelper The player helper instance.
+     * @param changes      The blocks the build would place.
+     * @param build        Starts the real build.
+     * @param reservation  The build's quota, released if it is never built.
+     */
+    private void showPreview(PlayerHelper playerHelper, Map<Position, BlockData> changes, Runnable build,
+            QuotaManager.Reservation reservation) {
+        Player player = playerHelper.getPlayer();
+        if (!plugin.getPreviewManager().show(player, changes, build, reservation::release)) {
+            reservation.release();
+            playerHelper.msg("That build is too large to preview (" + changes.size() + " blocks, the limit is "
+                    + getConfig().getPreviewMaxBlocks() + ").");
+            return;
+        }
+        playerHelper.msg("Previewing " + changes.size() + " blocks. Use /" + CONFIRM + " within "
+                + getConfig().getPreviewTimeout() + " seconds to build it.");
+    }
+
     /**
      * Checks if the player is in a supported game mode.
      *
@@ -216,7 +525,7 @@ public abstract class PathCommands {
             return false;
         }
         // Check if we're enabled in survival mode
-        if (playerHelper.isInSurvival() && !config.getEnabledInSurvival()) {
+        if (playerHelper.isInSurvival() && !getConfig().getEnabledInSurvival()) {
             playerHelper.msg("Pathinator is disabled in survival mode.");
             return false;
         }
@@ -250,8 +559,8 @@ public abstract class PathCommands {
     protected ArrayList<ItemStack> getLightingStack(CommandArguments args, PlayerHelper playerHelper) {
         ArrayList<ItemStack> lightingStack = new ArrayList<ItemStack>();
         if (getWithLights(args)) {
-            int clearance = config.getClearance();
-            List<String> configuredStack = config.getLightingStack();
+            int clearance = getConfig().getClearance();
+            List<String> configuredStack = getConfig().getLightingStack();
             for (int i = 0; i < configuredStack.size(); i++) {
                 // Don't allow the lighting stack to exceed the clearance height in survival
                 if (playerHelper.isInSurvival()) {
@@ -0,0 +1,88 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2024 HideTheMonkey
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.hidethemonkey.pathinator.commands;
+
+import dev.jorel.commandapi.executors.CommandArguments;
+
+import org.bukkit.command.CommandSender;
+import org.bukkit.entity.Player;
+
+import com.hidethemonkey.pathinator.Pathinator;
+import com.hidethemonkey.pathinator.helpers.PlayerHelper;
+import com.hidethemonkey.pathinator.jobs.PreviewManager;
+
+public class PreviewCommands extends PathCommands {
+
+    private final PreviewManager previews;
+
+    public PreviewCommands(Pathinator pathPlugin, PreviewManager previews) {
+        super(pathPlugin);
+        this.previews = previews;
+    }
+
+    /**
+     * Turn preview mode on or off (path:preview)
+     * 
+     * @param sender
+     * @param args
+     */
+    @Override
+    public void createPath(CommandSender sender, CommandArguments args) {
+        Player player = (Player) sender;
+        PlayerHelper playerHelper = new PlayerHelper(player, plugin);
+
+        if (!permissionCheck(playerHelper, PERM_PREVIEW)) {
+            return;
+        }
+
+        if (previews.toggle(player)) {
+            playerHelper.msg("Preview mode on. Your paths will only be shown to you until you use /" + CONFIRM
+                    + ".");
+        } else {
+            playerHelper.msg("Preview mode off.");
+        }
+    }
+
+    /**
+     * Build the last preview for real (path:confirm)
+     * 
+     * @param sender
+     * @param args
+     */
+    public void confirm(CommandSender sender, CommandArguments args) {
+        Player player = (Player) sender;
+        PlayerHelper playerHelper = new PlayerHelper(player, plugin);
+
+        if (!permissionCheck(playerHelper, PERM_PREVIEW)) {
+            return;
+        }
+
+        if (!previews.confirm(player)) {
+            playerHelper.msg("Nothing to confirm. Use /" + PREVIEW + " and then build a path to preview it.");
+            return;
+        }
+        playerHelper.msg("Building your preview.");
+    }
+}
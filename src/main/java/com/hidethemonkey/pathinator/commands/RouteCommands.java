@@ -0,0 +1,199 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2024 HideTheMonkey
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.hidethemonkey.pathinator.commands;
+
+import dev.jorel.commandapi.executors.CommandArguments;
+
+import java.util.Arrays;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.bukkit.block.BlockFace;
+import org.bukkit.command.CommandSender;
+import org.bukkit.entity.Player;
+
+import com.hidethemonkey.pathinator.Pathinator;
+import com.hidethemonkey.pathinator.PathinatorConfig;
+import com.hidethemonkey.pathinator.helpers.BlockHelper;
+import com.hidethemonkey.pathinator.helpers.FlightEvents;
+import com.hidethemonkey.pathinator.helpers.PlayerHelper;
+import com.hidethemonkey.pathinator.helpers.RoutePlanner;
+import com.hidethemonkey.pathinator.helpers.RoutePlanner.RoutePlan;
+import com.hidethemonkey.pathinator.helpers.TerrainGrid;
+import com.hidethemonkey.pathinator.helpers.TerrainSampler;
+import com.hidethemonkey.pathinator.jobs.PathJob;
+
+public class RouteCommands extends PathCommands {
+
+    // players with a route search in progress
+    private final Set<UUID> planning = ConcurrentHashMap.newKeySet();
+
+    public RouteCommands(Pathinator pathPlugin) {
+        super(pathPlugin);
+    }
+
+    /**
+     * Plan a route to the given x/z off the main thread, then build it (path:route)
+     * 
+     * @param sender
+     * @param args
+     */
+    @Override
+    public void createPath(CommandSender sender, CommandArguments args) {
+        Player player = (Player) sender;
+        PlayerHelper playerHelper = new PlayerHelper(player, plugin);
+        BlockHelper blockHelper = new BlockHelper(plugin);
+
+        if (!permissionCheck(playerHelper, PERM_ROUTE)) {
+            return;
+        }
+
+        // Check if the player is in a supported game mode
+        if (!modeCheck(playerHelper)) {
+            return;
+        }
+
+        Block targetBlock = findTargetBlock(blockHelper, playerHelper);
+        if (targetBlock == null) {
+            return;
+        }
+
+        PathinatorConfig config = getConfig();
+        int startX = targetBlock.getX();
+        int startY = targetBlock.getY();
+        int startZ = targetBlock.getZ();
+        int goalX = (Integer) args.get(X);
+        int goalZ = (Integer) args.get(Z);
+        int maxDistance = config.getRouteMaxDistance();
+        if (Math.abs(goalX - startX) > maxDistance || Math.abs(goalZ - startZ) > maxDistance) {
+            playerHelper.msg("Routes are limited to " + maxDistance + " blocks in each direction.");
+            return;
+        }
+        if (goalX == startX && goalZ == startZ) {
+            return;
+        }
+        int margin = config.getRouteMargin();
+        int minX = Math.min(startX, goalX) - margin;
+        int minZ = Math.min(startZ, goalZ) - margin;
+        int maxX = Math.max(startX, goalX) + margin;
+        int maxZ = Math.max(startZ, goalZ) + margin;
+        long sampleBytes = TerrainGrid.bytesFor(maxX - minX + 1, maxZ - minZ + 1);
+        if (sampleBytes > config.getRouteMaxSampleKb() * 1024L) {
+            playerHelper.msg("That route would need " + (sampleBytes / 1024) + "KB of terrain to plan, the limit is "
+                    + config.getRouteMaxSampleKb() + "KB.");
+            return;
+        }
+        if (!planning.add(player.getUniqueId())) {
+            playerHelper.msg("Still planning your last route, please wait.");
+            return;
+        }
+
+        RoutePlanner.Settings settings = new RoutePlanner.Settings(config.getRouteMaxNodes(),
+                config.getRouteMaxStep(), config.getRouteSlopeCost(), config.getRouteWaterCost(),
+                config.getRouteCarveCost());
+        World world = player.getWorld();
+        Material pathMaterial = targetBlock.getType();
+
+        playerHelper.msg("Planning a route to " + goalX + ", " + goalZ + "...");
+        FlightEvents.PlanComplete event = FlightEvents.beginPlan("route");
+        TerrainSampler.sample(plugin, world, minX, minZ, maxX, maxZ)
+                .thenApplyAsync(grid -> new RoutePlanner(grid, settings).plan(startX, startY, startZ, goalX, goalZ),
+                        plugin.getPlanningExecutor())
+                .whenComplete((plan, error) -> {
+                    planning.remove(player.getUniqueId());
+                    FlightEvents.endPlan(event, plan != null ? plan.expanded() : 0, plan == null || !plan.found());
+                    if (!plugin.isEnabled()) {
+                        return;
+                    }
+                    plugin.getServer().getScheduler().runTask(plugin, () -> {
+                        if (!player.isOnline()) {
+                            return;
+                        }
+                        if (error != null) {
+                            plugin.getLogger().warning("Route planning failed: " + error.getMessage());
+                            playerHelper.msg("Unable to plan a route.");
+                            return;
+                        }
+                        if (!plan.found()) {
+                            playerHelper.msg("No route found after checking " + plan.expanded() + " blocks.");
+                            return;
+                        }
+                        buildRoute(plan, world, pathMaterial, playerHelper, targetBlock);
+                    });
+                });
+    }
+
+    /**
+     * Queue a planned route on the build scheduler
+     * 
+     * @param plan
+     * @param world
+     * @param pathMaterial
+     * @param playerHelper
+     * @param targetBlock
+     */
+    private void buildRoute(RoutePlan plan, World world, Material pathMaterial, PlayerHelper playerHelper,
+            Block targetBlock) {
+        int blockCount = plan.getLength();
+        // Don't allow more blocks to be placed than are in the player's inventory
+        if (playerHelper.isInSurvival()) {
+            blockCount = Math.min(blockCount, playerHelper.getItemCount(targetBlock));
+        }
+        if (blockCount <= 0) {
+            playerHelper.msg("You don't have any " + pathMaterial.name() + " to build with.");
+            return;
+        }
+
+        BlockFace facing = facingOf(plan.xs()[0] - targetBlock.getX(), plan.zs()[0] - targetBlock.getZ());
+        PathJob job = new PathJob(PathJob.Type.ROUTE, playerHelper.getPlayer().getUniqueId(),
+                targetBlock.getLocation(), facing, pathMaterial, blockCount);
+        job.setClearance(getConfig().getClearance(), Material.getMaterial(getConfig().getClearanceMaterial()));
+        job.setRoute(Arrays.copyOf(plan.xs(), blockCount), Arrays.copyOf(plan.ys(), blockCount),
+                Arrays.copyOf(plan.zs(), blockCount));
+
+        // The path index is updated by the job manager once the route is finished
+        if (!submitJob(job, playerHelper, false)) {
+            return;
+        }
+
+        playerHelper.msg("Route planned in " + plan.elapsedMillis() + "ms (" + plan.expanded()
+                + " blocks checked), " + (isPreviewing(playerHelper) ? "showing " : "placing ") + blockCount
+                + " of " + plan.getLength() + " blocks of " + pathMaterial.name() + ".");
+    }
+
+    private static BlockFace facingOf(int dx, int dz) {
+        if (dx > 0) {
+            return BlockFace.EAST;
+        }
+        if (dx < 0) {
+            return BlockFace.WEST;
+        }
+        return dz > 0 ? BlockFace.SOUTH : BlockFace.NORTH;
+    }
+}
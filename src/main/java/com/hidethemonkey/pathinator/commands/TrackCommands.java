@@ -28,7 +28,6 @@ import dev.jorel.commandapi.executors.CommandArguments;
 
 import java.util.ArrayList;
 
-import org.bukkit.Location;
 import org.bukkit.Material;
 import org.bukkit.block.Block;
 import org.bukkit.block.BlockFace;
@@ -39,7 +38,7 @@ import org.bukkit.inventory.ItemStack;
 import com.hidethemonkey.pathinator.Pathinator;
 import com.hidethemonkey.pathinator.helpers.BlockHelper;
 import com.hidethemonkey.pathinator.helpers.PlayerHelper;
-import com.hidethemonkey.pathinator.helpers.SegmentData;
+import com.hidethemonkey.pathinator.jobs.PathJob;
 
 public class TrackCommands extends PathCommands {
 
@@ -93,31 +92,19 @@ public class TrackCommands extends PathCommands {
 
         final ArrayList<ItemStack> lightingStack = getLightingStack(args, playerHelper);
 
-        Location placedLocation = targetBlock.getLocation().clone();
-
-        for (int i = 0; i < blockCount; i++) {
-            placedLocation = blockHelper.adjustLocationForward(placedLocation, facing);
-
-            SegmentData segmentData = new SegmentData();
-            segmentData.setWorld(player.getWorld());
-            segmentData.setBaseFacing(facing);
-            segmentData.setBaseMaterial(targetBlock.getBlockData().getMaterial());
-            segmentData.setBaseLocation(placedLocation);
-            segmentData.setClearance(config.getClearance());
-            segmentData.setClearanceMaterial(Material.getMaterial(config.getClearanceMaterial()));
-            segmentData.setUseRails(true);
-
-            if (getWithPower(args) && i != 0 && (i % config.getPoweredInterval()) == 0) {
-                segmentData.addPower();
-            }
-
-            if (getWithLights(args) && i != 0 && (i % config.getLightingInterval()) == 0) {
-                segmentData.addLightingStacks(lightingStack);
-                segmentData.addLighting();
-            }
+        PathJob job = new PathJob(PathJob.Type.TRACKS, player.getUniqueId(), targetBlock.getLocation(), facing,
+                targetBlock.getBlockData().getMaterial(), blockCount);
+        job.setClearance(getConfig().getClearance(), Material.getMaterial(getConfig().getClearanceMaterial()));
+        if (getWithPower(args)) {
+            job.setPower(getConfig().getPoweredInterval());
+        }
+        if (getWithLights(args)) {
+            job.setLighting(getConfig().getLightingInterval(), lightingStack);
+        }
 
-            // This is where the magic happens
-            blockHelper.placeBlock(segmentData, i, playerHelper);
+        // This is where the magic happens
+        if (!submitJob(job, playerHelper, getFollowTerrain(args))) {
+            return;
         }
 
         if (requestedCount != blockCount) {
@@ -126,7 +113,8 @@ public class TrackCommands extends PathCommands {
                             + ", but only able to place "
                             + blockCount + ".");
         } else {
-            String prefix = playerHelper.isInSurvival() ? "Attempting to place " : "Placed ";
+            String prefix = isPreviewing(playerHelper) ? "Planned "
+                    : playerHelper.isInSurvival() ? "Attempting to place " : "Placed ";
             String suffix = getWithPower(args) ? " with powered RAILS." : " with RAILS.";
             playerHelper.msg(prefix + blockCount + " blocks of " + targetBlock.getType().name() + suffix);
         }
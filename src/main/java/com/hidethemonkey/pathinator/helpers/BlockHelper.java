@@ -25,25 +25,24 @@
 package com.hidethemonkey.pathinator.helpers;
 
 import java.util.ArrayList;
-import java.util.List;
+import java.util.Map;
 
-import org.bukkit.Bukkit;
 import org.bukkit.Location;
 import org.bukkit.Material;
 import org.bukkit.block.Block;
 import org.bukkit.block.BlockFace;
-import org.bukkit.enchantments.Enchantment;
+import org.bukkit.block.data.BlockData;
+import org.bukkit.block.data.Rail;
 import org.bukkit.entity.Player;
-import org.bukkit.inventory.ItemStack;
-import org.bukkit.inventory.meta.ItemMeta;
-import org.bukkit.plugin.Plugin;
 import org.bukkit.util.BoundingBox;
 
 import com.hidethemonkey.pathinator.Pathinator;
 
+import io.papermc.paper.math.Position;
+
 public class BlockHelper {
 
-    Plugin plugin;
+    Pathinator plugin;
     int[][] fortunes = new int[3][4];
 
     public BlockHelper(Pathinator pathPlugin) {
@@ -85,20 +84,6 @@ public class BlockHelper {
         return min.getBlock();
     }
 
-    /**
-     * Get the space occupied by the player
-     * 
-     * @param player
-     * @return
-     */
-    public BoundingBox getPlayerSpace(Block targetBlock) {
-        Location loc = targetBlock.getLocation();
-        double x = loc.getX();
-        double y = loc.getY();
-        double z = loc.getZ();
-        return new BoundingBox(x, y, z, x + 1, y + 3, z + 1);
-    }
-
     /**
      * Calculate the amount of drops per the fortune level
      * 
@@ -139,188 +124,55 @@ public class BlockHelper {
     }
 
     /**
-     * Mine and replace a block
-     * 
-     * @param toPlace
-     * @param block
-     * @param ph
-     * @return
-     */
-    private boolean mineAndReplace(Material toPlace, Block block, PlayerHelper ph) {
-        Material toRemove = block.getType();
-        if (toPlace == null || toRemove != toPlace && ph.hasBlock(toPlace)) {
-            if (ph.isInSurvival()) {
-                ItemStack tool = ph.getMineableTool(toRemove);
-                // ** Handle tool damage **
-                if (!toRemove.isAir() && toRemove != Material.WATER && toRemove.getHardness() >= 0.5) {
-                    if (tool != null && tool.getAmount() == 0 && ph.requiresTools()) {
-                        // Don't allow the block to be placed if the player doesn't have the right tool
-                        return false;
-                    }
-                    // Apply damage to the appropriate tool in inventory
-                    ph.addToolDamage(tool);
-                }
-                if (toPlace != null) {
-                    // ** remove from inventory **
-                    ph.removeBlock(toPlace);
-                }
-                if (tool != null) {
-                    ItemMeta meta = tool.getItemMeta();
-                    // handle SILK_TOUCH
-                    if (meta.hasEnchant(Enchantment.SILK_TOUCH)) {
-                        // Don't try to figure out all the conditions,
-                        // just give the player the block already, geeze.
-                        ph.giveBlock(toRemove, 1);
-                    }
-                    // handle FORTUNE
-                    else if (meta.hasEnchant(Enchantment.FORTUNE)) {
-                        int fortuneDropCount = getFortuneDrops(tool.getEnchantmentLevel(Enchantment.FORTUNE));
-
-                        // ** Add the mined material to the inventory **
-                        block.getDrops(tool).forEach(drop -> {
-                            int drops = drop.getAmount() <= fortuneDropCount ? fortuneDropCount : drop.getAmount();
-                            ph.giveBlock(drop.getType(), drops);
-                        });
-                    }
-                    // default no enchantments
-                    else {
-                        // ** Add the mined material to the inventory **
-                        block.getDrops(tool).forEach(drop -> ph.giveBlock(drop.getType(), drop.getAmount()));
-                    }
-                }
-            }
-            block.setType(toPlace != null ? toPlace : Material.AIR);
-        }
-        return true;
-    }
-
-    /**
-     * Place a block at the specified location
+     * Collect the blocks a PathBuildJob would place for a segment, for a preview,
+     * without looking at what is in the world or the player's inventory.
      * 
      * @param data
-     * @param delay
-     * @param playerHelper
+     * @param changes
      */
-    public void placeBlock(final SegmentData data, final int delay, final PlayerHelper playerHelper) {
+    public void previewBlock(final SegmentData data, final Map<Position, BlockData> changes) {
         Location location = data.getBaseLocation();
+        int x = location.getBlockX();
+        int y = location.getBlockY();
+        int z = location.getBlockZ();
 
-        // Schedule the block placement
-        Bukkit.getScheduler().runTaskLater(this.plugin, task -> {
-            int x = location.getBlockX();
-            int y = location.getBlockY();
-            int z = location.getBlockZ();
-            Block targetBlock = data.getWorld().getBlockAt(x, y, z);
+        changes.put(Position.block(x, y, z), previewData(data.getBaseMaterial()));
 
-            // Place the base block
-            Material baseMaterial = data.getBaseMaterial();
-            if (data.getCurrentSection() == SegmentData.Section.CENTER) {
-                mineAndReplace(baseMaterial, targetBlock, playerHelper);
-            } else {
-                ArrayList<Material> sideMaterials = data.getCurrentSection() == SegmentData.Section.RIGHT
-                        ? data.getRightMaterials()
-                        : data.getLeftMaterials();
-                Material sideMaterial;
-                try {
-                    sideMaterial = sideMaterials.get(data.getSideIndex());
-                } catch (IndexOutOfBoundsException e) {
-                    sideMaterial = data.getBaseMaterial();
-                }
-                mineAndReplace(sideMaterial, targetBlock, playerHelper);
-            }
-
-            // Clear the air...
-            int clearance = data.getClearance();
-            for (int i = 1; i <= clearance; i++) {
-                Block airBlock = data.getWorld().getBlockAt(x, y + i, z);
-                if (data.getCurrentSection() == SegmentData.Section.CENTER && delay < 4) {
-                    if (!data.getNegativeSpace().contains(airBlock.getLocation().toVector())) {
-                        if (!mineAndReplace(data.getClearanceMaterial(), airBlock, playerHelper)) {
-                            continue;
-                        }
-                    }
-                } else {
-                    if (!mineAndReplace(data.getClearanceMaterial(), airBlock, playerHelper)) {
-                        continue;
-                    }
-                }
+        ExclusionVolumes exclusions = data.getExclusions();
+        BlockData clearanceData = previewData(data.getClearanceMaterial());
+        for (int i = 1; i <= data.getClearance(); i++) {
+            if (!exclusions.contains(x, y + i, z)) {
+                changes.put(Position.block(x, y + i, z), clearanceData);
             }
+        }
 
-            // Add some lights
-            if (data.getUseLighting()) {
-                Location lightingLocation = data.getLightingLocation();
-                // Make sure it has a base to stand on
-                Block lightingBase = data.getWorld().getBlockAt(lightingLocation);
-                if (!mineAndReplace(data.getBaseMaterial(), lightingBase, playerHelper)) {
-                    return;
-                }
-
-                // Loop through the lighting stack and place the lighting materials
-                for (int i = 0; i < data.getLightingStacks().size(); i++) {
-                    Block lightBlock = data.getWorld().getBlockAt(lightingLocation.getBlockX(),
-                            lightingLocation.getBlockY() + i + 1,
-                            lightingLocation.getBlockZ());
-                    Material lighting = data.getLightingStacks().get(i).getType();
-                    if (!mineAndReplace(lighting, lightBlock, playerHelper)) {
-                        continue;
-                    }
-                }
+        if (data.getUseLighting()) {
+            Location lightingLocation = data.getLightingLocation();
+            changes.put(Position.block(lightingLocation), previewData(data.getBaseMaterial()));
+            for (int i = 0; i < data.getLightingStacks().size(); i++) {
+                changes.put(Position.block(lightingLocation.getBlockX(), lightingLocation.getBlockY() + i + 1,
+                        lightingLocation.getBlockZ()), previewData(data.getLightingStacks().get(i).getType()));
             }
+        }
 
-        }, delay);
-
-        // Add Rails
         if (data.getUseRails()) {
-            Bukkit.getScheduler().runTaskLater(this.plugin, task -> {
-                int x = location.getBlockX();
-                int y = location.getBlockY();
-                int z = location.getBlockZ();
-                // railBlock is the block above the just placed base block
-                // and as such should always be AIR
-                Block railBlock = data.getWorld().getBlockAt(x, y + 1, z);
-                Material railMaterial = data.getUsePower() ? Material.POWERED_RAIL : Material.RAIL;
-                mineAndReplace(railMaterial, railBlock, playerHelper);
-
-                // Add power if needed
-                if (data.getUsePower()) {
-                    Location powerLocation = data.getPowerLocation();
-                    // Make sure the REDSTONE_TORCH has a base to stand on
-                    Block baseForRedstoneTorch = data.getWorld().getBlockAt(powerLocation);
-                    if (!mineAndReplace(data.getBaseMaterial(), baseForRedstoneTorch, playerHelper)) {
-                        return;
-                    }
-                    Block redstoneTorchBlock = data.getWorld().getBlockAt(powerLocation.getBlockX(),
-                            powerLocation.getBlockY() + 1,
-                            powerLocation.getBlockZ());
-                    if (!mineAndReplace(Material.REDSTONE_TORCH, redstoneTorchBlock, playerHelper)) {
-                        return;
-                    }
-                }
-            }, delay + 2);
+            Rail rail = (Rail) (data.getUsePower() ? Material.POWERED_RAIL : Material.RAIL).createBlockData();
+            BlockFace facing = data.getBaseFacing();
+            rail.setShape(facing == BlockFace.EAST || facing == BlockFace.WEST ? Rail.Shape.EAST_WEST
+                    : Rail.Shape.NORTH_SOUTH);
+            changes.put(Position.block(x, y + 1, z), rail);
+
+            if (data.getUsePower()) {
+                Location powerLocation = data.getPowerLocation();
+                changes.put(Position.block(powerLocation), previewData(data.getBaseMaterial()));
+                changes.put(Position.block(powerLocation.getBlockX(), powerLocation.getBlockY() + 1,
+                        powerLocation.getBlockZ()), Material.REDSTONE_TORCH.createBlockData());
+            }
         }
     }
 
-    public void digBlocks(SegmentData data, int delay, PlayerHelper playerHelper) {
-
-        // Schedule the block placement
-        Bukkit.getScheduler().runTaskLater(this.plugin, task -> {
-            Location location = data.getBaseLocation();
-            int x = location.getBlockX();
-            int y = location.getBlockY();
-            int z = location.getBlockZ();
-            Block targetBlock = data.getWorld().getBlockAt(x, y, z);
-
-            mineAndReplace(null, targetBlock, playerHelper);
-
-            // Clear the air...
-            int clearance = data.getClearance();
-            for (int i = 0; i <= clearance; i++) {
-                Block airBlock = data.getWorld().getBlockAt(x, y + i, z);
-                if (!mineAndReplace(null, airBlock, playerHelper)) {
-                    continue;
-                }
-            }
-
-        }, delay);
+    private static BlockData previewData(Material material) {
+        return (material != null ? material : Material.AIR).createBlockData();
     }
 
     /**
@@ -414,43 +266,42 @@ public class BlockHelper {
     }
 
     /**
-     * Get a list of blocks in the Y plane around a start block, given a specific radius
-     * Will not include blocks of the same material as the provided material
-     * 
-     * Inspired by https://www.spigotmc.org/threads/tutorial-getting-blocks-in-a-cube-radius.64981/#post-717133
+     * Set blocks in a radius around a start block to a specific material
      * 
-     * @param start
+     * @param block
      * @param radius
      * @param material
-     * @return
+     * @return the number of blocks changed
      */
-    public List<Block> findBlocksInRadius(Block start, int radius, Material material) {
-        int iterations = (radius * 2) + 1;
-        List<Block> blocks = new ArrayList<Block>(iterations * iterations);
-        for (int x = -radius; x <= radius; x++) {
-            for (int z = -radius; z <= radius; z++) {
-                Block toAdd = start.getRelative(x, 0, z);
-                Material type = toAdd.getType();
-                if (!type.isSolid() || type.equals(material)) {
-                    continue;
-                }
-                blocks.add(toAdd);
-            }
-        }
-        return blocks;
+    public int setBlocksInRadius(Block block, int radius, Material material) {
+        return setBlocksInRadius(new BukkitWorldAccess(block.getWorld()), block.getX(), block.getY(), block.getZ(),
+                radius, material);
     }
 
     /**
-     * Set blocks in a radius around a start block to a specific material
+     * Set the solid blocks in the Y plane around a start block to a specific
+     * material, skipping those that already are
      * 
-     * @param block
+     * Inspired by https://www.spigotmc.org/threads/tutorial-getting-blocks-in-a-cube-radius.64981/#post-717133
+     * 
+     * @param world
+     * @param startX
+     * @param y
+     * @param startZ
      * @param radius
      * @param material
+     * @return the number of blocks changed
      */
-    public void setBlocksInRadius(Block block, int radius, Material material) {
-        List<Block> blocks = findBlocksInRadius(block, radius, material);
-        for (Block b : blocks) {
-            b.setType(material);
+    public int setBlocksInRadius(WorldAccess world, int startX, int y, int startZ, int radius, Material material) {
+        int painted = 0;
+        for (int x = startX - radius; x <= startX + radius; x++) {
+            for (int z = startZ - radius; z <= startZ + radius; z++) {
+                if (world.isSolid(x, y, z) && world.getType(x, y, z) != material) {
+                    world.setType(x, y, z, material);
+                    painted++;
+                }
+            }
         }
+        return painted;
     }
 }
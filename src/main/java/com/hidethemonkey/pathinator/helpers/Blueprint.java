@@ -0,0 +1,288 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2024 HideTheMonkey
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.hidethemonkey.pathinator.helpers;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Material;
+import org.bukkit.block.Block;
+import org.bukkit.block.BlockFace;
+import org.bukkit.block.data.BlockData;
+import org.bukkit.block.structure.StructureRotation;
+
+/**
+ * A width x height cross-section of blocks, stored as a palette of distinct
+ * BlockData plus one palette index per cell.
+ *
+ * Columns run from the builder's left to right, rows from the path level up.
+ *
+ * File layout (big endian):
+ * 
+ * <pre>
+ * int    magic "PBP1"
+ * short  width, short height
+ * byte   facing the blueprint was captured with (BlockFace ordinal)
+ * short  palette size, then per entry: short length + UTF-8 BlockData string
+ * byte   bytes per index (1 or 2), then width * height indices
+ * </pre>
+ */
+public class Blueprint {
+
+    private static final int MAGIC = 0x50425031; // "PBP1"
+
+    private final int width;
+    private final int height;
+    private final BlockFace facing;
+    private final BlockData[] palette;
+    private final short[] cells;
+
+    public Blueprint(int width, int height, BlockFace facing, BlockData[] palette, short[] cells) {
+        this.width = width;
+        this.height = height;
+        this.facing = facing;
+        this.palette = palette;
+        this.cells = cells;
+    }
+
+    /**
+     * Capture the cross-section centered on (and including) the target block,
+     * perpendicular to the facing direction.
+     * 
+     * @param target the block the player is standing on
+     * @param facing
+     * @param width
+     * @param height number of rows, including the path row
+     * @return
+     */
+    public static Blueprint capture(Block target, BlockFace facing, int width, int height) {
+        BlockFace right = BlockHelper.rotate90(facing, false);
+        int blocksRight = (width - 1) / 2;
+        int blocksLeft = width - blocksRight - 1;
+
+        List<BlockData> palette = new ArrayList<>();
+        Map<String, Short> paletteIndex = new HashMap<>();
+        short[] cells = new short[width * height];
+        for (int column = 0; column < width; column++) {
+            int offset = column - blocksLeft;
+            for (int row = 0; row < height; row++) {
+                BlockData data = target.getRelative(right.getModX() * offset, row, right.getModZ() * offset)
+                        .getBlockData();
+                String key = data.getAsString();
+                Short index = paletteIndex.get(key);
+                if (index == null) {
+                    index = (short) palette.size();
+                    paletteIndex.put(key, index);
+                    palette.add(data);
+                }
+                cells[row * width + column] = index;
+            }
+        }
+        return new Blueprint(width, height, facing, palette.toArray(new BlockData[0]), cells);
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public BlockFace getFacing() {
+        return facing;
+    }
+
+    public int getPaletteSize() {
+        return palette.length;
+    }
+
+    /**
+     * Get the palette index for a cell
+     * 
+     * @param column 0 is the left-most column
+     * @param row    0 is the path row
+     * @return
+     */
+    public int getIndex(int column, int row) {
+        return cells[row * width + column];
+    }
+
+    /**
+     * Get the material in the centre of the path row
+     * 
+     * @return
+     */
+    public Material getPathMaterial() {
+        return palette[getIndex(width - ((width - 1) / 2) - 1, 0)].getMaterial();
+    }
+
+    /**
+     * Get the material directly above the centre of the path row
+     * 
+     * @return
+     */
+    public Material getClearanceMaterial() {
+        if (height < 2) {
+            return Material.AIR;
+        }
+        return palette[getIndex(width - ((width - 1) / 2) - 1, 1)].getMaterial();
+    }
+
+    /**
+     * Get the cross-section to build this blueprint in a new facing direction
+     * 
+     * @param newFacing
+     * @return
+     */
+    public CrossSection toCrossSection(BlockFace newFacing) {
+        return new CrossSection(width, height, getPalette(newFacing), cells, true);
+    }
+
+    /**
+     * Get the palette rotated to match a new facing direction, so stairs, rails,
+     * logs, etc. keep their orientation relative to the path.
+     * 
+     * @param newFacing
+     * @return a new array, the blueprint itself is never modified
+     */
+    public BlockData[] getPalette(BlockFace newFacing) {
+        StructureRotation rotation = rotationBetween(facing, newFacing);
+        BlockData[] rotated = new BlockData[palette.length];
+        for (int i = 0; i < palette.length; i++) {
+            rotated[i] = palette[i].clone();
+            if (rotation != StructureRotation.NONE) {
+                rotated[i].rotate(rotation);
+            }
+        }
+        return rotated;
+    }
+
+    /**
+     * Number of clockwise quarter turns from one horizontal facing to another
+     * 
+     * @param from
+     * @param to
+     * @return
+     */
+    private static StructureRotation rotationBetween(BlockFace from, BlockFace to) {
+        int turns = 0;
+        BlockFace current = from;
+        while (current != to && turns < 4) {
+            current = BlockHelper.rotate90(current, false);
+            turns++;
+        }
+        switch (turns) {
+            case 1:
+                return StructureRotation.CLOCKWISE_90;
+            case 2:
+                return StructureRotation.CLOCKWISE_180;
+            case 3:
+                return StructureRotation.COUNTERCLOCKWISE_90;
+            default:
+                return StructureRotation.NONE;
+        }
+    }
+
+    /**
+     * Encode into the binary format
+     * 
+     * @return a buffer ready to be written
+     */
+    public ByteBuffer encode() {
+        byte[][] names = new byte[palette.length][];
+        int size = 4 + 2 + 2 + 1 + 2 + 1;
+        for (int i = 0; i < palette.length; i++) {
+            names[i] = palette[i].getAsString().getBytes(StandardCharsets.UTF_8);
+            size += 2 + names[i].length;
+        }
+        int indexBytes = palette.length <= 256 ? 1 : 2;
+        size += cells.length * indexBytes;
+
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.putInt(MAGIC);
+        buffer.putShort((short) width);
+        buffer.putShort((short) height);
+        buffer.put((byte) facing.ordinal());
+        buffer.putShort((short) palette.length);
+        for (byte[] name : names) {
+            buffer.putShort((short) name.length);
+            buffer.put(name);
+        }
+        buffer.put((byte) indexBytes);
+        for (short cell : cells) {
+            if (indexBytes == 1) {
+                buffer.put((byte) cell);
+            } else {
+                buffer.putShort(cell);
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * Decode from the binary format. BlockData strings are parsed once here so that
+     * building from a blueprint never touches the parser again.
+     * 
+     * @param buffer
+     * @return
+     * @throws IOException if the data is not a valid blueprint
+     */
+    public static Blueprint decode(ByteBuffer buffer) throws IOException {
+        try {
+            if (buffer.getInt() != MAGIC) {
+                throw new IOException("Not a blueprint file");
+            }
+            int width = buffer.getShort();
+            int height = buffer.getShort();
+            BlockFace facing = BlockFace.values()[buffer.get()];
+            BlockData[] palette = new BlockData[buffer.getShort()];
+            for (int i = 0; i < palette.length; i++) {
+                byte[] name = new byte[buffer.getShort() & 0xFFFF];
+                buffer.get(name);
+                palette[i] = Bukkit.createBlockData(new String(name, StandardCharsets.UTF_8));
+            }
+            int indexBytes = buffer.get();
+            short[] cells = new short[width * height];
+            for (int i = 0; i < cells.length; i++) {
+                cells[i] = indexBytes == 1 ? (short) (buffer.get() & 0xFF) : buffer.getShort();
+                if (cells[i] < 0 || cells[i] >= palette.length) {
+                    throw new IOException("Palette index out of range");
+                }
+            }
+            return new Blueprint(width, height, facing, palette, cells);
+        } catch (RuntimeException e) {
+            // BufferUnderflowException, IllegalArgumentException from createBlockData, etc.
+            throw new IOException("Invalid blueprint: " + e.getMessage(), e);
+        }
+    }
+}
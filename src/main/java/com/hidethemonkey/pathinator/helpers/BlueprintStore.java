@@ -0,0 +1,122 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2024 HideTheMonkey
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.hidethemonkey.pathinator.helpers;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Loads and saves blueprints in the plugin's data folder, keeping the most
+ * recently used ones parsed in memory.
+ */
+public class BlueprintStore {
+
+    private static final String EXTENSION = ".pbp";
+    private static final Pattern VALID_NAME = Pattern.compile("[a-z0-9_-]{1,32}");
+    private static final int CACHE_SIZE = 32;
+
+    private final File folder;
+    private final Map<String, Blueprint> cache = new LinkedHashMap<String, Blueprint>(CACHE_SIZE, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Blueprint> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
+
+    public BlueprintStore(File dataFolder) {
+        this.folder = new File(dataFolder, "blueprints");
+    }
+
+    /**
+     * Check if a name can be used as a blueprint name
+     * 
+     * @param name
+     * @return
+     */
+    public static boolean isValidName(String name) {
+        return name != null && VALID_NAME.matcher(name).matches();
+    }
+
+    /**
+     * Get a blueprint, reading it from disk if it isn't cached
+     * 
+     * @param name
+     * @return the blueprint, or null if it doesn't exist
+     * @throws IOException if the file exists but can't be read
+     */
+    public synchronized Blueprint get(String name) throws IOException {
+        Blueprint blueprint = cache.get(name);
+        if (blueprint != null) {
+            return blueprint;
+        }
+        Path path = fileFor(name);
+        if (!Files.exists(path)) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            blueprint = Blueprint.decode(buffer);
+        }
+        cache.put(name, blueprint);
+        return blueprint;
+    }
+
+    /**
+     * Write a blueprint, replacing any existing one with the same name
+     * 
+     * @param name
+     * @param blueprint
+     * @throws IOException
+     */
+    public synchronized void save(String name, Blueprint blueprint) throws IOException {
+        folder.mkdirs();
+        Path path = fileFor(name);
+        Path tmp = path.resolveSibling(name + EXTENSION + ".tmp");
+        ByteBuffer buffer = blueprint.encode();
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        cache.put(name, blueprint);
+    }
+
+    private Path fileFor(String name) {
+        return new File(folder, name + EXTENSION).toPath();
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2024 HideTheMonkey
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.hidethemonkey.pathinator.helpers;
+
+import org.bukkit.Material;
+import org.bukkit.inventory.ItemStack;
+
+/**
+ * InventoryAccess for an online player, through their PlayerHelper. Main thread only.
+ */
+public class BukkitInventoryAccess implements InventoryAccess {
+
+    private final PlayerHelper playerHelper;
+
+    public BukkitInventoryAccess(PlayerHelper playerHelper) {
+        this.playerHelper = playerHelper;
+    }
+
+    @Override
+    public boolean isInSurvival() {
+        return playerHelper.isInSurvival();
+    }
+
+    @Override
+    public int count(Material material) {
+        int count = 0;
+        for (ItemStack items : playerHelper.getPlayer().getInventory().getContents()) {
+            if (items != null && items.getType() == material) {
+                count += items.getAmount();
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public void take(Material material, int amount) {
+        playerHelper.removeBlock(material, amount);
+    }
+
+    @Override
+    public void give(Material material, int amount) {
+        playerHelper.giveBlock(material, amount);
+    }
+
+    @Override
+    public boolean useTool(Material block) {
+        ItemStack tool = playerHelper.getMineableTool(block);
+        if (tool == null) {
+            return true;
+        }
+        if (tool.getAmount() == 0) {
+            // getMineableTool hands back an empty stack when the player has no such tool
+            return !playerHelper.requiresTools();
+        }
+        playerHelper.addToolDamage(tool);
+        return true;
+    }
+}
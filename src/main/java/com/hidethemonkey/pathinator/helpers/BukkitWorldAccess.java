@@ -0,0 +1,74 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2024 HideTheMonkey
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.hidethemonkey.pathinator.helpers;
+
+import org.bukkit.Material;
+import org.bukkit.World;
+
+/**
+ * WorldAccess for a live Bukkit world. Main thread only.
+ */
+public class BukkitWorldAccess implements WorldAccess {
+
+    private final World world;
+
+    public BukkitWorldAccess(World world) {
+        this.world = world;
+    }
+
+    public World getWorld() {
+        return world;
+    }
+
+    @Override
+    public Material getType(int x, int y, int z) {
+        if (y < world.getMinHeight() || y >= world.getMaxHeight()) {
+            return Material.VOID_AIR;
+        }
+        return world.getType(x, y, z);
+    }
+
+    @Override
+    public void setType(int x, int y, int z, Material material) {
+        if (y >= world.getMinHeight() && y < world.getMaxHeight()) {
+            world.getBlockAt(x, y, z).setType(material);
+        }
+    }
+
+    @Override
+    public boolean isSolid(int x, int y, int z) {
+        return getType(x, y, z).isSolid();
+    }
+
+    @Override
+    public int getMinHeight() {
+        return world.getMinHeight();
+    }
+
+    @Override
+    public int getMaxHeight() {
+        return world.getMaxHeight();
+    }
+}
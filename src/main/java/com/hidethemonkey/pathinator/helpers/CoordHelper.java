@@ -0,0 +1,69 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2024 HideTheMonkey
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.hidethemonkey.pathinator.helpers;
+
+public class CoordHelper {
+
+    /**
+     * Pack chunk coordinates into a single long (same layout as Paper's chunk keys)
+     * 
+     * @param chunkX
+     * @param chunkZ
+     * @return
+     */
+    public static long chunkKey(int chunkX, int chunkZ) {
+        return ((long) chunkX & 0xFFFFFFFFL) | (((long) chunkZ & 0xFFFFFFFFL) << 32);
+    }
+
+    /**
+     * Get the chunk key for the chunk containing a block
+     * 
+     * @param blockX
+     * @param blockZ
+     * @return
+     */
+    public static long chunkKeyAt(int blockX, int blockZ) {
+        return chunkKey(blockX >> 4, blockZ >> 4);
+    }
+
+    public static int chunkX(long key) {
+        return (int) key;
+    }
+
+    public static int chunkZ(long key) {
+        return (int) (key >>> 32);
+    }
+
+    /**
+     * Index of a column within its chunk (0-255)
+     * 
+     * @param blockX
+     * @param blockZ
+     * @return
+     */
+    public static int columnIndex(int blockX, int blockZ) {
+        return ((blockZ & 15) << 4) | (blockX & 15);
+    }
+}
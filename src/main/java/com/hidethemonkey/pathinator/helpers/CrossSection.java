@@ -0,0 +1,156 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2024 HideTheMonkey
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.hidethemonkey.pathinator.helpers;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.bukkit.Material;
+import org.bukkit.block.data.BlockData;
+
+/**
+ * A path cross-section compiled once into a width x height grid of palette ids,
+ * ready to be swept along the direction of travel.
+ *
+ * Column 0 is the left-most column and row 0 is the path row. When exact is set
+ * the full block state is placed as-is (blueprints), otherwise only the material
+ * is used and placement goes through the normal survival rules.
+ */
+public class CrossSection {
+
+    private final int width;
+    private final int height;
+    private final BlockData[] palette;
+    private final short[] cells;
+    private final boolean exact;
+
+    public CrossSection(int width, int height, BlockData[] palette, short[] cells, boolean exact) {
+        this.width = width;
+        this.height = height;
+        this.palette = palette;
+        this.cells = cells;
+        this.exact = exact;
+    }
+
+    /**
+     * Compile a custom path cross-section.
+     * 
+     * @param pathMaterial      material of the centre column (and of any side without a material)
+     * @param leftMaterials     path row materials to the left, nearest first
+     * @param rightMaterials    path row materials to the right, nearest first
+     * @param clearanceMaterial material for every row above the path row
+     * @param width
+     * @param clearance         number of rows above the path row
+     * @return
+     */
+    public static CrossSection compile(Material pathMaterial, List<Material> leftMaterials,
+            List<Material> rightMaterials, Material clearanceMaterial, int width, int clearance) {
+        width = Math.max(1, width);
+        int height = Math.max(0, clearance) + 1;
+        int blocksLeft = getBlocksLeft(width);
+        List<Material> materials = new ArrayList<>(4);
+        short[] cells = new short[width * height];
+
+        short clearanceId = paletteId(materials, clearanceMaterial);
+        for (int column = 0; column < width; column++) {
+            int offset = column - blocksLeft;
+            Material material = pathMaterial;
+            if (offset < 0 && -offset - 1 < leftMaterials.size()) {
+                material = leftMaterials.get(-offset - 1);
+            } else if (offset > 0 && offset - 1 < rightMaterials.size()) {
+                material = rightMaterials.get(offset - 1);
+            }
+            cells[column] = paletteId(materials, material);
+            for (int row = 1; row < height; row++) {
+                cells[row * width + column] = clearanceId;
+            }
+        }
+
+        BlockData[] palette = new BlockData[materials.size()];
+        for (int i = 0; i < palette.length; i++) {
+            palette[i] = materials.get(i).createBlockData();
+        }
+        return new CrossSection(width, height, palette, cells, false);
+    }
+
+    private static short paletteId(List<Material> materials, Material material) {
+        int index = materials.indexOf(material);
+        if (index < 0) {
+            index = materials.size();
+            materials.add(material);
+        }
+        return (short) index;
+    }
+
+    /**
+     * Number of columns left of the centre column; wider sections lean left
+     * 
+     * @param width
+     * @return
+     */
+    public static int getBlocksLeft(int width) {
+        return width - ((width - 1) / 2) - 1;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int getBlocksLeft() {
+        return getBlocksLeft(width);
+    }
+
+    public boolean isExact() {
+        return exact;
+    }
+
+    public BlockData[] getPalette() {
+        return palette;
+    }
+
+    /**
+     * Get the palette id for a cell
+     * 
+     * @param column
+     * @param row
+     * @return
+     */
+    public int getId(int column, int row) {
+        return cells[row * width + column];
+    }
+
+    /**
+     * Number of cells in one slice
+     * 
+     * @return
+     */
+    public int size() {
+        return cells.length;
+    }
+}
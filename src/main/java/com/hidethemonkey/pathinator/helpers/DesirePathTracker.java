@@ -0,0 +1,320 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2024 HideTheMonkey
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.hidethemonkey.pathinator.helpers;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.logging.Level;
+
+import org.bukkit.Bukkit;
+import org.bukkit.GameMode;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.bukkit.entity.Player;
+import org.bukkit.scheduler.BukkitTask;
+
+import com.hidethemonkey.pathinator.Pathinator;
+import com.hidethemonkey.pathinator.PathinatorConfig;
+
+/**
+ * Accumulates player footsteps into per-chunk counters and paves a column once
+ * enough players have walked over it.
+ *
+ * Footsteps are sampled at a low, fixed rate instead of on every PlayerMoveEvent.
+ * Each chunk is a flat short[256] (one counter per column) and the number of
+ * tracked chunks per world is capped, evicting the least recently walked chunk
+ * first. Paving goes through a small queue that is drained with a per tick budget.
+ */
+public class DesirePathTracker {
+
+    private static final int MAGIC = 0x50445054; // "PDPT"
+    private static final int VERSION = 1;
+    private static final String FILE_NAME = "desire_paths.dat";
+
+    private record PaveRequest(UUID worldId, int x, int y, int z) {}
+
+    private final Pathinator plugin;
+    private final Map<UUID, LinkedHashMap<Long, short[]>> worlds = new HashMap<>();
+    private final Map<UUID, Long> lastColumn = new HashMap<>();
+    private final ArrayDeque<PaveRequest> paveQueue = new ArrayDeque<>();
+    private final Set<Material> replaceable = EnumSet.noneOf(Material.class);
+
+    private Material pathMaterial;
+    private int threshold;
+    private int maxChunks;
+    private int blocksPerTick;
+
+    private BukkitTask sampleTask;
+    private BukkitTask paveTask;
+
+    public DesirePathTracker(Pathinator plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * Load saved counters and start sampling with the current config
+     * 
+     * @param config
+     */
+    public void start(PathinatorConfig config) {
+        pathMaterial = Material.getMaterial(config.getDesirePathMaterial());
+        if (pathMaterial == null || !pathMaterial.isBlock()) {
+            plugin.getLogger().warning("Invalid desirePaths.material, falling back to DIRT_PATH");
+            pathMaterial = Material.DIRT_PATH;
+        }
+        threshold = Math.max(1, Math.min(Short.MAX_VALUE, config.getDesirePathThreshold()));
+        maxChunks = Math.max(1, config.getDesirePathMaxChunks());
+        blocksPerTick = Math.max(1, config.getDesirePathBlocksPerTick());
+        replaceable.clear();
+        for (String name : config.getDesirePathReplaceable()) {
+            Material material = Material.getMaterial(name);
+            if (material != null) {
+                replaceable.add(material);
+            }
+        }
+
+        load();
+
+        int interval = Math.max(1, config.getDesirePathSampleInterval());
+        sampleTask = Bukkit.getScheduler().runTaskTimer(plugin, this::sample, interval, interval);
+        paveTask = Bukkit.getScheduler().runTaskTimer(plugin, this::drainQueue, 1, 1);
+    }
+
+    /**
+     * Stop sampling and save the counters to disk
+     */
+    public void stop() {
+        if (sampleTask == null) {
+            return;
+        }
+        sampleTask.cancel();
+        paveTask.cancel();
+        sampleTask = null;
+        paveTask = null;
+        save();
+        worlds.clear();
+        lastColumn.clear();
+        paveQueue.clear();
+    }
+
+    public boolean isRunning() {
+        return sampleTask != null;
+    }
+
+    /**
+     * Take one footstep sample for every eligible online player
+     */
+    private void sample() {
+        if (lastColumn.size() > Bukkit.getOnlinePlayers().size() * 2) {
+            lastColumn.keySet().removeIf(id -> Bukkit.getPlayer(id) == null);
+        }
+        for (Player player : Bukkit.getOnlinePlayers()) {
+            GameMode mode = player.getGameMode();
+            if ((mode != GameMode.SURVIVAL && mode != GameMode.ADVENTURE) || player.isFlying()
+                    || player.isInsideVehicle() || !player.isOnGround()) {
+                continue;
+            }
+            int x = player.getLocation().getBlockX();
+            int y = player.getLocation().getBlockY() - 1;
+            int z = player.getLocation().getBlockZ();
+
+            // Standing still doesn't wear a path
+            long column = ((long) x << 32) | (z & 0xFFFFFFFFL);
+            Long previous = lastColumn.put(player.getUniqueId(), column);
+            if (previous != null && previous == column) {
+                continue;
+            }
+            addFootstep(player.getWorld(), x, y, z);
+        }
+    }
+
+    /**
+     * Count a footstep on the column at x, z and queue it for paving once it crosses the
+     * threshold.
+     * 
+     * @param world
+     * @param x
+     * @param y     the y of the block walked on
+     * @param z
+     */
+    public void addFootstep(World world, int x, int y, int z) {
+        LinkedHashMap<Long, short[]> chunks = worlds.computeIfAbsent(world.getUID(), id -> newChunkMap());
+        short[] counters = chunks.computeIfAbsent(CoordHelper.chunkKeyAt(x, z), key -> new short[256]);
+        int index = CoordHelper.columnIndex(x, z);
+        int count = counters[index];
+        if (count >= Short.MAX_VALUE) {
+            return;
+        }
+        counters[index] = (short) ++count;
+        if (count == threshold) {
+            paveQueue.add(new PaveRequest(world.getUID(), x, y, z));
+        }
+    }
+
+    /**
+     * Create an access ordered map that drops the coldest chunk once the cap is reached
+     * 
+     * @return
+     */
+    private LinkedHashMap<Long, short[]> newChunkMap() {
+        return new LinkedHashMap<Long, short[]>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, short[]> eldest) {
+                return size() > maxChunks;
+            }
+        };
+    }
+
+    /**
+     * Pave up to blocksPerTick queued columns
+     */
+    private void drainQueue() {
+        int budget = blocksPerTick;
+        while (budget > 0 && !paveQueue.isEmpty()) {
+            PaveRequest request = paveQueue.poll();
+            World world = Bukkit.getWorld(request.worldId());
+            if (world == null || !world.isChunkLoaded(request.x() >> 4, request.z() >> 4)) {
+                // Never load chunks just to pave a path, the next footstep queues it again
+                rearm(request);
+                continue;
+            }
+            Block block = world.getBlockAt(request.x(), request.y(), request.z());
+            if (replaceable.contains(block.getType()) && block.getRelative(0, 1, 0).getType().isAir()) {
+                block.setType(pathMaterial);
+                budget--;
+            } else {
+                // Blocked for now (something on top, or not walked on at this y), try again later
+                rearm(request);
+            }
+        }
+    }
+
+    /**
+     * Set a skipped column's counter just below the threshold, so the next footstep
+     * on it queues it for paving again
+     * 
+     * @param request
+     */
+    private void rearm(PaveRequest request) {
+        LinkedHashMap<Long, short[]> chunks = worlds.get(request.worldId());
+        short[] counters = chunks == null ? null : chunks.get(CoordHelper.chunkKeyAt(request.x(), request.z()));
+        if (counters != null) {
+            counters[CoordHelper.columnIndex(request.x(), request.z())] = (short) (threshold - 1);
+        }
+    }
+
+    /**
+     * Get the counter for a single column (for debugging)
+     * 
+     * @param world
+     * @param x
+     * @param z
+     * @return
+     */
+    public int getCount(World world, int x, int z) {
+        LinkedHashMap<Long, short[]> chunks = worlds.get(world.getUID());
+        if (chunks == null) {
+            return 0;
+        }
+        short[] counters = chunks.get(CoordHelper.chunkKeyAt(x, z));
+        return counters == null ? 0 : counters[CoordHelper.columnIndex(x, z)];
+    }
+
+    /**
+     * Write all non empty chunks to the data folder
+     */
+    public void save() {
+        File file = new File(plugin.getDataFolder(), FILE_NAME);
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(file)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(worlds.size());
+            for (Map.Entry<UUID, LinkedHashMap<Long, short[]>> world : worlds.entrySet()) {
+                out.writeLong(world.getKey().getMostSignificantBits());
+                out.writeLong(world.getKey().getLeastSignificantBits());
+                out.writeInt(world.getValue().size());
+                // Iterates coldest to hottest, so the LRU order survives a restart
+                for (Map.Entry<Long, short[]> chunk : world.getValue().entrySet()) {
+                    out.writeLong(chunk.getKey());
+                    for (short count : chunk.getValue()) {
+                        out.writeShort(count);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            plugin.getLogger().log(Level.WARNING, "Unable to save " + FILE_NAME, e);
+        }
+    }
+
+    /**
+     * Read saved counters, if any
+     */
+    private void load() {
+        worlds.clear();
+        File file = new File(plugin.getDataFolder(), FILE_NAME);
+        if (!file.exists()) {
+            return;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                plugin.getLogger().warning("Ignoring unrecognized " + FILE_NAME);
+                return;
+            }
+            int worldCount = in.readInt();
+            for (int w = 0; w < worldCount; w++) {
+                UUID worldId = new UUID(in.readLong(), in.readLong());
+                LinkedHashMap<Long, short[]> chunks = newChunkMap();
+                int chunkCount = in.readInt();
+                for (int c = 0; c < chunkCount; c++) {
+                    long key = in.readLong();
+                    short[] counters = new short[256];
+                    for (int i = 0; i < counters.length; i++) {
+                        counters[i] = in.readShort();
+                    }
+                    chunks.put(key, counters);
+                }
+                worlds.put(worldId, chunks);
+            }
+        } catch (IOException e) {
+            plugin.getLogger().log(Level.WARNING, "Unable to read " + FILE_NAME + ", starting fresh", e);
+            worlds.clear();
+        }
+    }
+}
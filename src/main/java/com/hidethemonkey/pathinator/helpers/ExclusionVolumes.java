@@ -0,0 +1,161 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2024 HideTheMonkey
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.hidethemonkey.pathinator.helpers;
+
+import java.util.Arrays;
+
+import org.bukkit.Chunk;
+import org.bukkit.World;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.LivingEntity;
+import org.bukkit.entity.Vehicle;
+import org.bukkit.util.BoundingBox;
+
+/**
+ * Block-aligned boxes that building must leave alone, such as the space players
+ * and mobs are standing in.
+ *
+ * Boxes are kept as packed ints (min inclusive, max exclusive) so checking a
+ * block never allocates. Gather them once per job, not per block.
+ */
+public class ExclusionVolumes {
+
+    private static final int STRIDE = 6;
+
+    private int[] bounds = new int[STRIDE * 4];
+    private int count = 0;
+
+    // union of every box, for a quick reject
+    private int allMinX = Integer.MAX_VALUE;
+    private int allMinY = Integer.MAX_VALUE;
+    private int allMinZ = Integer.MAX_VALUE;
+    private int allMaxX = Integer.MIN_VALUE;
+    private int allMaxY = Integer.MIN_VALUE;
+    private int allMaxZ = Integer.MIN_VALUE;
+
+    /**
+     * Collect the space taken by every living entity (players included) and vehicle
+     * in loaded chunks that overlaps the region.
+     * 
+     * @param world
+     * @param minX  inclusive
+     * @param minY  inclusive
+     * @param minZ  inclusive
+     * @param maxX  inclusive
+     * @param maxY  inclusive
+     * @param maxZ  inclusive
+     * @return
+     */
+    public static ExclusionVolumes gather(World world, int minX, int minY, int minZ, int maxX, int maxY, int maxZ) {
+        ExclusionVolumes volumes = new ExclusionVolumes();
+        BoundingBox region = new BoundingBox(minX, minY, minZ, maxX + 1, maxY + 1, maxZ + 1);
+        for (int chunkX = minX >> 4; chunkX <= maxX >> 4; chunkX++) {
+            for (int chunkZ = minZ >> 4; chunkZ <= maxZ >> 4; chunkZ++) {
+                if (!world.isChunkLoaded(chunkX, chunkZ)) {
+                    continue;
+                }
+                Chunk chunk = world.getChunkAt(chunkX, chunkZ);
+                for (Entity entity : chunk.getEntities()) {
+                    if (!(entity instanceof LivingEntity) && !(entity instanceof Vehicle)) {
+                        continue;
+                    }
+                    BoundingBox box = entity.getBoundingBox();
+                    if (box.overlaps(region)) {
+                        volumes.add(box);
+                    }
+                }
+            }
+        }
+        return volumes;
+    }
+
+    /**
+     * Add a box of blocks
+     * 
+     * @param minX inclusive
+     * @param minY inclusive
+     * @param minZ inclusive
+     * @param maxX exclusive
+     * @param maxY exclusive
+     * @param maxZ exclusive
+     */
+    public void add(int minX, int minY, int minZ, int maxX, int maxY, int maxZ) {
+        if (count * STRIDE == bounds.length) {
+            bounds = Arrays.copyOf(bounds, bounds.length * 2);
+        }
+        int i = count++ * STRIDE;
+        bounds[i] = minX;
+        bounds[i + 1] = minY;
+        bounds[i + 2] = minZ;
+        bounds[i + 3] = maxX;
+        bounds[i + 4] = maxY;
+        bounds[i + 5] = maxZ;
+        allMinX = Math.min(allMinX, minX);
+        allMinY = Math.min(allMinY, minY);
+        allMinZ = Math.min(allMinZ, minZ);
+        allMaxX = Math.max(allMaxX, maxX);
+        allMaxY = Math.max(allMaxY, maxY);
+        allMaxZ = Math.max(allMaxZ, maxZ);
+    }
+
+    /**
+     * Add every block a bounding box touches
+     * 
+     * @param box
+     */
+    public void add(BoundingBox box) {
+        add((int) Math.floor(box.getMinX()), (int) Math.floor(box.getMinY()), (int) Math.floor(box.getMinZ()),
+                (int) Math.ceil(box.getMaxX()), (int) Math.ceil(box.getMaxY()), (int) Math.ceil(box.getMaxZ()));
+    }
+
+    /**
+     * Check if a block is inside any of the boxes
+     * 
+     * @param x
+     * @param y
+     * @param z
+     * @return
+     */
+    public boolean contains(int x, int y, int z) {
+        if (x < allMinX || x >= allMaxX || y < allMinY || y >= allMaxY || z < allMinZ || z >= allMaxZ) {
+            return false;
+        }
+        for (int i = 0; i < count * STRIDE; i += STRIDE) {
+            if (x >= bounds[i] && y >= bounds[i + 1] && z >= bounds[i + 2] && x < bounds[i + 3]
+                    && y < bounds[i + 4] && z < bounds[i + 5]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public boolean isEmpty() {
+        return count == 0;
+    }
+}
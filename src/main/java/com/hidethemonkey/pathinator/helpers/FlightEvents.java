@@ -0,0 +1,265 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2024 HideTheMonkey
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.hidethemonkey.pathinator.helpers;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Java Flight Recorder events for Pathinator's work, so a recording shows job
+ * submits, plans, build batches, inventory settling and follow painting next to
+ * GC pauses and tick spikes, instead of anonymous lambdas in the scheduler.
+ *
+ * Nothing is created unless profiling.jfrEvents is on, and even then an event
+ * is only written while a recording has it enabled. The begin methods return
+ * null when events are off, and the end methods accept null.
+ */
+public final class FlightEvents {
+
+    private static volatile boolean enabled = false;
+
+    private FlightEvents() {
+    }
+
+    public static void setEnabled(boolean value) {
+        enabled = value;
+    }
+
+    @Name("pathinator.JobSubmit")
+    @Label("Job Submit")
+    @Category({ "Pathinator", "Jobs" })
+    @Description("A build job was queued")
+    public static class JobSubmit extends Event {
+        @Label("Job")
+        String job;
+        @Label("Player")
+        String player;
+        @Label("Blocks")
+        long cells;
+    }
+
+    @Name("pathinator.PlanComplete")
+    @Label("Plan Complete")
+    @Category({ "Pathinator", "Planning" })
+    @Description("Background planning for a job finished, from the first read of the world to the result")
+    public static class PlanComplete extends Event {
+        @Label("Kind")
+        String kind;
+        @Label("Size")
+        @Description("Blocks planned, or for routes the number of blocks searched")
+        long size;
+        @Label("Failed")
+        boolean failed;
+    }
+
+    @Name("pathinator.BatchApplied")
+    @Label("Batch Applied")
+    @Category({ "Pathinator", "Jobs" })
+    @Description("One job's share of a scheduler tick")
+    public static class BatchApplied extends Event {
+        @Label("Job")
+        String job;
+        @Label("Blocks")
+        int cells;
+        @Label("Chunks")
+        @Description("Chunks held loaded for the job")
+        int chunks;
+    }
+
+    @Name("pathinator.LedgerReconcile")
+    @Label("Ledger Reconcile")
+    @Category({ "Pathinator", "Jobs" })
+    @Description("Blocks, drops and tool damage tallied during a batch were settled with the inventory")
+    public static class LedgerReconcile extends Event {
+        @Label("Blocks Taken")
+        int taken;
+        @Label("Drops Given")
+        int drops;
+        @Label("Tools Damaged")
+        int tools;
+    }
+
+    @Name("pathinator.FollowPaint")
+    @Label("Follow Paint")
+    @Category({ "Pathinator", "Follow" })
+    @Description("Blocks painted around a player using path:follow")
+    public static class FollowPaint extends Event {
+        @Label("Player")
+        String player;
+        @Label("Radius")
+        int radius;
+        @Label("Blocks")
+        int cells;
+    }
+
+    /**
+     * Record a queued job
+     * 
+     * @param job
+     * @param player
+     * @param cells
+     */
+    public static void jobSubmit(String job, String player, long cells) {
+        if (!enabled) {
+            return;
+        }
+        JobSubmit event = new JobSubmit();
+        if (event.shouldCommit()) {
+            event.job = job;
+            event.player = player;
+            event.cells = cells;
+            event.commit();
+        }
+    }
+
+    /**
+     * @param kind what is being planned, e.g. route or terrain
+     * @return the started event, or null when events are off
+     */
+    public static PlanComplete beginPlan(String kind) {
+        if (!enabled) {
+            return null;
+        }
+        PlanComplete event = new PlanComplete();
+        event.kind = kind;
+        event.begin();
+        return event;
+    }
+
+    /**
+     * May be called from any thread
+     * 
+     * @param event  from {@link #beginPlan(String)}, may be null
+     * @param size
+     * @param failed
+     */
+    public static void endPlan(PlanComplete event, long size, boolean failed) {
+        if (event == null) {
+            return;
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.size = size;
+            event.failed = failed;
+            event.commit();
+        }
+    }
+
+    /**
+     * @return the started event, or null when events are off
+     */
+    public static BatchApplied beginBatch() {
+        if (!enabled) {
+            return null;
+        }
+        BatchApplied event = new BatchApplied();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * @param event  from {@link #beginBatch()}, may be null
+     * @param job
+     * @param cells
+     * @param chunks
+     */
+    public static void endBatch(BatchApplied event, String job, int cells, int chunks) {
+        if (event == null) {
+            return;
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.job = job;
+            event.cells = cells;
+            event.chunks = chunks;
+            event.commit();
+        }
+    }
+
+    /**
+     * @return the started event, or null when events are off
+     */
+    public static LedgerReconcile beginReconcile() {
+        if (!enabled) {
+            return null;
+        }
+        LedgerReconcile event = new LedgerReconcile();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * @param event  from {@link #beginReconcile()}, may be null
+     * @param taken
+     * @param drops
+     * @param tools
+     */
+    public static void endReconcile(LedgerReconcile event, int taken, int drops, int tools) {
+        if (event == null) {
+            return;
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.taken = taken;
+            event.drops = drops;
+            event.tools = tools;
+            event.commit();
+        }
+    }
+
+    /**
+     * @return the started event, or null when events are off
+     */
+    public static FollowPaint beginFollowPaint() {
+        if (!enabled) {
+            return null;
+        }
+        FollowPaint event = new FollowPaint();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * @param event  from {@link #beginFollowPaint()}, may be null
+     * @param player
+     * @param radius
+     * @param cells
+     */
+    public static void endFollowPaint(FollowPaint event, String player, int radius, int cells) {
+        if (event == null) {
+            return;
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.player = player;
+            event.radius = radius;
+            event.cells = cells;
+            event.commit();
+        }
+    }
+}
@@ -1,45 +1,104 @@
 package com.hidethemonkey.pathinator.helpers;
 
-import java.util.HashMap;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.bukkit.Material;
 import org.bukkit.entity.Player;
 
+/**
+ * Registry of players that currently have follow mode enabled.
+ *
+ * Reads happen on every PlayerMoveEvent, so the registry is optimized for them:
+ * a single lookup returns the whole state, the empty check is a volatile read,
+ * and iteration goes over an immutable snapshot array that is rebuilt on the
+ * (rare) writes. All methods are safe to call from any thread.
+ */
 public class FollowRegistry {
 
-    record FollowState(int radius, Material material) {}
+    public record FollowState(UUID playerId, int radius, Material material) {}
 
-    private Map<UUID, FollowState> registry;
+    private static final FollowState[] EMPTY = new FollowState[0];
 
-    public FollowRegistry() {
-        registry = new HashMap<>();
-    }
+    private final Map<UUID, FollowState> registry = new ConcurrentHashMap<>();
+    private volatile FollowState[] snapshot = EMPTY;
 
     public void register(Player player, Integer radius, Material material) {
-        registry.put(player.getUniqueId(), new FollowState(radius, material));
+        UUID id = player.getUniqueId();
+        registry.put(id, new FollowState(id, radius, material));
+        refreshSnapshot();
     }
 
     public void remove(Player player) {
-        registry.remove(player.getUniqueId());
+        if (registry.remove(player.getUniqueId()) != null) {
+            refreshSnapshot();
+        }
+    }
+
+    /**
+     * Stop following for everyone
+     */
+    public void clear() {
+        registry.clear();
+        refreshSnapshot();
+    }
+
+    /**
+     * Get the complete follow state for a player in a single lookup.
+     *
+     * @param player
+     * @return the state, or null if the player is not following
+     */
+    public FollowState get(Player player) {
+        if (snapshot.length == 0) {
+            return null;
+        }
+        return registry.get(player.getUniqueId());
     }
 
     public Integer getRadius(Player player) {
-        FollowState state = registry.get(player.getUniqueId());
+        FollowState state = get(player);
         return state != null ? state.radius() : null;
     }
 
     public Material getMaterial(Player player) {
-        FollowState state = registry.get(player.getUniqueId());
+        FollowState state = get(player);
         return state != null ? state.material() : null;
     }
 
     public boolean isRegistered(Player player) {
-        return registry.containsKey(player.getUniqueId());
+        return get(player) != null;
+    }
+
+    /**
+     * O(1) check used to bail out of the move listener as early as possible.
+     *
+     * @return true if nobody is following
+     */
+    public boolean isEmpty() {
+        return snapshot.length == 0;
     }
 
     public int size() {
-        return registry.size();
+        return snapshot.length;
+    }
+
+    /**
+     * Get an immutable view of all registered states. The returned array must not be
+     * modified; it is safe to iterate from async tasks or region threads.
+     *
+     * @return the current snapshot
+     */
+    public FollowState[] snapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Rebuild the snapshot array. Writers are serialized so a late writer can never
+     * publish an older view over a newer one.
+     */
+    private synchronized void refreshSnapshot() {
+        snapshot = registry.isEmpty() ? EMPTY : registry.values().toArray(EMPTY);
     }
 }
@@ -0,0 +1,70 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2024 HideTheMonkey
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.hidethemonkey.pathinator.helpers;
+
+import org.bukkit.Material;
+
+/**
+ * The blocks a build takes from and gives back to a player, as used by the
+ * SurvivalLedger. Implemented for real players by BukkitInventoryAccess and
+ * in memory by MemoryInventory.
+ */
+public interface InventoryAccess {
+
+    /**
+     * @return false if blocks don't have to come from the inventory (creative mode)
+     */
+    boolean isInSurvival();
+
+    /**
+     * @param material
+     * @return how many of the block are in the inventory
+     */
+    int count(Material material);
+
+    /**
+     * Remove blocks from the inventory
+     * 
+     * @param material
+     * @param amount
+     */
+    void take(Material material, int amount);
+
+    /**
+     * Add blocks (drops) to the inventory
+     * 
+     * @param material
+     * @param amount
+     */
+    void give(Material material, int amount);
+
+    /**
+     * Wear down the tool that mines a block by one use
+     * 
+     * @param block the block being mined
+     * @return false if the block can't be mined without a tool and there is none
+     */
+    boolean useTool(Material block);
+}
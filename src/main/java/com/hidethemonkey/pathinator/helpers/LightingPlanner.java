@@ -0,0 +1,195 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2024 HideTheMonkey
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.hidethemonkey.pathinator.helpers;
+
+import java.util.Arrays;
+
+/**
+ * Chooses where to put lights along a path so every step ends up at or above a
+ * minimum block light level, using as few lights as it can.
+ *
+ * Light is simulated the way the game spreads block light: it drops by one per
+ * block and only passes through open space. The model only knows about the open
+ * space the path itself clears (plus the block above the path in tunnels with no
+ * clearance), so it never counts on light that could be blocked by the
+ * surroundings; in the open the result is a little brighter than planned.
+ *
+ * The grid is two columns wide, the path and the side the lights go on, and only
+ * as tall as the path needs, so it stays small. Runs on a worker thread.
+ */
+public class LightingPlanner {
+
+    private static final int PATH = 0;
+    private static final int SIDE = 1;
+
+    private final int[] ys;
+    private final int clearance;
+    private final int[] emissions;
+    private final int steps;
+    private final int minY;
+    private final int rows;
+
+    // scratch space for simulating one light, reset after each use
+    private final byte[] scratch;
+    private final int[] queue;
+    private int queueSize;
+
+    /**
+     * @param ys        Y of the path block at each step
+     * @param clearance rows of open space above the path
+     * @param emissions light emitted by each block of the lighting stack, bottom first
+     */
+    public LightingPlanner(int[] ys, int clearance, int[] emissions) {
+        this.ys = ys;
+        this.clearance = Math.max(1, clearance);
+        this.emissions = emissions;
+        this.steps = ys.length;
+        int low = Integer.MAX_VALUE;
+        int high = Integer.MIN_VALUE;
+        for (int y : ys) {
+            low = Math.min(low, y);
+            high = Math.max(high, y);
+        }
+        this.minY = low + 1;
+        this.rows = high - low + Math.max(this.clearance, emissions.length) + 1;
+        this.scratch = new byte[Math.max(0, steps * 2 * rows)];
+        // one light reaches at most 15 steps either way
+        this.queue = new int[Math.min(scratch.length, 31 * 2 * rows) * 2];
+    }
+
+    /**
+     * Pick the steps that get a light.
+     * 
+     * @param existing block light already at the feet of each step
+     * @param minLevel light level every step should have
+     * @return step indices, ascending
+     */
+    public int[] plan(byte[] existing, int minLevel) {
+        int brightest = 0;
+        for (int emission : emissions) {
+            brightest = Math.max(brightest, emission);
+        }
+        // a light next to the path can't do better than one less than it emits
+        int target = Math.min(minLevel, brightest - 1);
+        if (steps == 0 || target <= 0) {
+            return new int[0];
+        }
+
+        byte[] lit = Arrays.copyOf(existing, steps);
+        int[] placed = new int[steps];
+        int count = 0;
+        for (int i = 0; i < steps; i++) {
+            if (lit[i] >= target) {
+                continue;
+            }
+            // place the light as far ahead as possible while still reaching this step
+            int chosen = i;
+            for (int j = Math.min(steps - 1, i + brightest); j > i; j--) {
+                simulate(j);
+                boolean reaches = feetLevel(i) >= target;
+                reset();
+                if (reaches) {
+                    chosen = j;
+                    break;
+                }
+            }
+            simulate(chosen);
+            for (int k = Math.max(0, chosen - brightest); k <= Math.min(steps - 1, chosen + brightest); k++) {
+                lit[k] = (byte) Math.max(lit[k], feetLevel(k));
+            }
+            reset();
+            placed[count++] = chosen;
+        }
+        return Arrays.copyOf(placed, count);
+    }
+
+    private int index(int step, int column, int row) {
+        return (step * 2 + column) * rows + row;
+    }
+
+    private boolean isOpen(int step, int column, int row) {
+        if (column != PATH) {
+            return false;
+        }
+        int y = row + minY;
+        return y > ys[step] && y <= ys[step] + clearance;
+    }
+
+    private int feetLevel(int step) {
+        return scratch[index(step, PATH, ys[step] + 1 - minY)];
+    }
+
+    /**
+     * Spread the light of a stack placed at the given step into the scratch grid
+     * 
+     * @param step
+     */
+    private void simulate(int step) {
+        for (int k = 0; k < emissions.length; k++) {
+            int row = ys[step] + 1 + k - minY;
+            if (emissions[k] > 0 && row < rows) {
+                int source = index(step, SIDE, row);
+                if (scratch[source] < emissions[k]) {
+                    scratch[source] = (byte) emissions[k];
+                    queue[queueSize++] = source;
+                }
+            }
+        }
+        // breadth first, every cell is queued at most once per level it improves to
+        for (int head = 0; head < queueSize; head++) {
+            int cell = queue[head];
+            int level = scratch[cell] - 1;
+            if (level <= 0) {
+                continue;
+            }
+            int row = cell % rows;
+            int column = (cell / rows) % 2;
+            int at = cell / rows / 2;
+            spread(at, 1 - column, row, level);
+            spread(at - 1, column, row, level);
+            spread(at + 1, column, row, level);
+            spread(at, column, row - 1, level);
+            spread(at, column, row + 1, level);
+        }
+    }
+
+    private void spread(int step, int column, int row, int level) {
+        if (step < 0 || step >= steps || row < 0 || row >= rows || !isOpen(step, column, row)) {
+            return;
+        }
+        int cell = index(step, column, row);
+        if (scratch[cell] < level && queueSize < queue.length) {
+            scratch[cell] = (byte) level;
+            queue[queueSize++] = cell;
+        }
+    }
+
+    private void reset() {
+        for (int i = 0; i < queueSize; i++) {
+            scratch[queue[i]] = 0;
+        }
+        queueSize = 0;
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2024 HideTheMonkey
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.hidethemonkey.pathinator.helpers;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.bukkit.Material;
+
+/**
+ * An inventory that only exists in memory, to go with a SparseWorld.
+ *
+ * Tools are given with the blocks they mine, since there are no block tags
+ * without a server. Those blocks can only be mined while one of their tools
+ * has uses left, the most worn tool is used first.
+ */
+public class MemoryInventory implements InventoryAccess {
+
+    private static final class Tool {
+        private final Material type;
+        private final Set<Material> mines;
+        private int durability;
+
+        private Tool(Material type, int durability, Set<Material> mines) {
+            this.type = type;
+            this.durability = durability;
+            this.mines = mines;
+        }
+    }
+
+    private final boolean survival;
+    private final Map<Material, Integer> counts = new EnumMap<>(Material.class);
+    // broken tools are kept, the blocks they mined still need a tool
+    private final List<Tool> tools = new ArrayList<>();
+
+    /**
+     * @param survival false to place blocks without taking them, as in creative mode
+     */
+    public MemoryInventory(boolean survival) {
+        this.survival = survival;
+    }
+
+    @Override
+    public boolean isInSurvival() {
+        return survival;
+    }
+
+    @Override
+    public int count(Material material) {
+        return counts.getOrDefault(material, 0);
+    }
+
+    @Override
+    public void take(Material material, int amount) {
+        counts.computeIfPresent(material, (key, count) -> count > amount ? count - amount : null);
+    }
+
+    @Override
+    public void give(Material material, int amount) {
+        counts.merge(material, amount, Integer::sum);
+    }
+
+    /**
+     * Add a tool
+     * 
+     * @param type
+     * @param durability number of blocks it can mine before it breaks
+     * @param mines      the blocks it is needed for
+     */
+    public void giveTool(Material type, int durability, Material... mines) {
+        Set<Material> blocks = EnumSet.noneOf(Material.class);
+        for (Material block : mines) {
+            blocks.add(block);
+        }
+        tools.add(new Tool(type, durability, blocks));
+    }
+
+    /**
+     * @param type
+     * @return uses left on all tools of the type, 0 once they have broken
+     */
+    public int getDurability(Material type) {
+        int durability = 0;
+        for (Tool tool : tools) {
+            if (tool.type == type) {
+                durability += tool.durability;
+            }
+        }
+        return durability;
+    }
+
+    @Override
+    public boolean useTool(Material block) {
+        boolean needed = false;
+        Tool worn = null;
+        for (Tool tool : tools) {
+            if (tool.mines.contains(block)) {
+                needed = true;
+                if (tool.durability > 0 && (worn == null || tool.durability < worn.durability)) {
+                    worn = tool;
+                }
+            }
+        }
+        if (worn == null) {
+            return !needed;
+        }
+        worn.durability--;
+        return true;
+    }
+}
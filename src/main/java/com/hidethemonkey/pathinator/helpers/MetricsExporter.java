@@ -0,0 +1,142 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2024 HideTheMonkey
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.hidethemonkey.pathinator.helpers;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.logging.Level;
+
+import org.bukkit.Bukkit;
+import org.bukkit.scheduler.BukkitTask;
+
+import com.hidethemonkey.pathinator.Pathinator;
+import com.hidethemonkey.pathinator.PathinatorConfig;
+import com.hidethemonkey.pathinator.jobs.BuildScheduler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Publishes OpsMetrics, plus a few gauges read from the BuildScheduler, in
+ * Prometheus text exposition format.
+ *
+ * The text is built on the main thread every metrics.interval seconds, so the
+ * scheduler is never read from another thread. It is then written to a file in
+ * the data folder (replaced atomically, as the node exporter's textfile
+ * collector expects) and/or served at /metrics on a small HTTP server that only
+ * listens on the loopback address.
+ */
+public class MetricsExporter {
+
+    private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private final Pathinator plugin;
+    private BukkitTask task;
+    private HttpServer server;
+    private File file;
+    // the latest rendering, read by the HTTP server's thread
+    private volatile byte[] latest = new byte[0];
+
+    public MetricsExporter(Pathinator plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * Start exporting with the current config
+     * 
+     * @param config
+     */
+    public void start(PathinatorConfig config) {
+        String fileName = config.getMetricsFile();
+        file = fileName.isEmpty() ? null : new File(plugin.getDataFolder(), fileName);
+        int port = config.getMetricsPort();
+        if (port > 0) {
+            try {
+                server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+                server.createContext("/metrics", exchange -> {
+                    byte[] body = latest;
+                    exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+                    exchange.sendResponseHeaders(200, body.length);
+                    try (OutputStream out = exchange.getResponseBody()) {
+                        out.write(body);
+                    }
+                });
+                server.start();
+            } catch (IOException e) {
+                plugin.getLogger().warning("Unable to serve metrics on port " + port + ": " + e.getMessage());
+                server = null;
+            }
+        }
+        long interval = Math.max(1, config.getMetricsInterval()) * 20L;
+        task = Bukkit.getScheduler().runTaskTimer(plugin, this::export, 1L, interval);
+    }
+
+    /**
+     * Stop exporting, the file is left as it is
+     */
+    public void stop() {
+        if (task != null) {
+            task.cancel();
+            task = null;
+        }
+        if (server != null) {
+            server.stop(0);
+            server = null;
+        }
+    }
+
+    private void export() {
+        StringBuilder out = new StringBuilder(4096);
+        OpsMetrics.write(out);
+        BuildScheduler scheduler = plugin.getBuildScheduler();
+        OpsMetrics.writeGauge(out, "pathinator_queue_jobs", "Build jobs queued or running",
+                scheduler.getActiveCount());
+        OpsMetrics.writeGauge(out, "pathinator_queue_blocks", "Blocks left to place in queued jobs",
+                scheduler.getQueuedCells());
+        OpsMetrics.writeGauge(out, "pathinator_budget_blocks", "Current block budget per tick",
+                scheduler.getCurrentBudget());
+        byte[] body = out.toString().getBytes(StandardCharsets.UTF_8);
+        latest = body;
+        if (file != null) {
+            File target = file;
+            Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> write(target, body));
+        }
+    }
+
+    private void write(File target, byte[] body) {
+        try {
+            Path temp = target.toPath().resolveSibling(target.getName() + ".tmp");
+            Files.write(temp, body);
+            Files.move(temp, target.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            plugin.getLogger().log(Level.WARNING, "Unable to write metrics to " + target.getName(), e);
+        }
+    }
+}
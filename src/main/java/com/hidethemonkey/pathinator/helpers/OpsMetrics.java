@@ -0,0 +1,179 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2024 HideTheMonkey
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.hidethemonkey.pathinator.helpers;
+
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters and histograms for operational metrics, written out in Prometheus
+ * text format by the MetricsExporter.
+ *
+ * Always counting, whether or not the exporter is on: an increment is a
+ * LongAdder add, cheap enough for the build loop. Safe to use from any thread.
+ */
+public final class OpsMetrics {
+
+    public static final Counter BLOCKS_PLACED = new Counter("pathinator_blocks_placed_total",
+            "Blocks placed by builds");
+    public static final Counter BLOCKS_MINED = new Counter("pathinator_blocks_mined_total",
+            "Blocks mined or cleared by builds");
+    public static final Counter JOBS_SUBMITTED = new Counter("pathinator_jobs_submitted_total",
+            "Build jobs queued");
+    public static final Counter JOBS_CANCELLED = new Counter("pathinator_jobs_cancelled_total",
+            "Build jobs dropped before they finished");
+    public static final Counter QUOTA_REFUSALS = new Counter("pathinator_quota_refusals_total",
+            "Builds refused by the build limits");
+    public static final Counter LEDGER_RECONCILES = new Counter("pathinator_ledger_reconciles_total",
+            "Survival inventory settlements");
+    public static final Histogram JOB_SECONDS = new Histogram("pathinator_job_seconds",
+            "Time from queueing a build job to its last block",
+            0.05, 0.25, 1, 5, 15, 60, 300, 1800);
+    public static final Histogram TICK_BLOCKS = new Histogram("pathinator_tick_blocks",
+            "Blocks applied in each scheduler tick that had work",
+            16, 64, 128, 256, 512, 1024, 2048, 4096);
+    public static final Histogram FOLLOW_BLOCKS = new Histogram("pathinator_follow_blocks",
+            "Blocks painted per path:follow step",
+            0, 1, 4, 9, 16, 25, 49, 81);
+
+    private OpsMetrics() {
+    }
+
+    /**
+     * Append every counter and histogram in Prometheus text format
+     * 
+     * @param out
+     */
+    public static void write(StringBuilder out) {
+        BLOCKS_PLACED.write(out);
+        BLOCKS_MINED.write(out);
+        JOBS_SUBMITTED.write(out);
+        JOBS_CANCELLED.write(out);
+        QUOTA_REFUSALS.write(out);
+        LEDGER_RECONCILES.write(out);
+        JOB_SECONDS.write(out);
+        TICK_BLOCKS.write(out);
+        FOLLOW_BLOCKS.write(out);
+    }
+
+    /**
+     * Append a gauge in Prometheus text format
+     * 
+     * @param out
+     * @param name
+     * @param help
+     * @param value
+     */
+    public static void writeGauge(StringBuilder out, String name, String help, double value) {
+        header(out, name, help, "gauge");
+        out.append(name).append(' ').append(format(value)).append('\n');
+    }
+
+    private static void header(StringBuilder out, String name, String help, String type) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private static String format(double value) {
+        if (value == Math.rint(value) && !Double.isInfinite(value)) {
+            return Long.toString((long) value);
+        }
+        return Double.toString(value);
+    }
+
+    public static final class Counter {
+        private final String name;
+        private final String help;
+        private final LongAdder value = new LongAdder();
+
+        private Counter(String name, String help) {
+            this.name = name;
+            this.help = help;
+        }
+
+        public void increment() {
+            value.increment();
+        }
+
+        public void add(long amount) {
+            value.add(amount);
+        }
+
+        public long get() {
+            return value.sum();
+        }
+
+        private void write(StringBuilder out) {
+            header(out, name, help, "counter");
+            out.append(name).append(' ').append(value.sum()).append('\n');
+        }
+    }
+
+    /**
+     * Fixed buckets, counted individually and summed into Prometheus' cumulative
+     * buckets only when written out
+     */
+    public static final class Histogram {
+        private final String name;
+        private final String help;
+        private final double[] bounds;
+        // one per bound, plus one for everything above the last bound
+        private final LongAdder[] buckets;
+        private final DoubleAdder sum = new DoubleAdder();
+
+        private Histogram(String name, String help, double... bounds) {
+            this.name = name;
+            this.help = help;
+            this.bounds = bounds;
+            this.buckets = new LongAdder[bounds.length + 1];
+            for (int i = 0; i < buckets.length; i++) {
+                buckets[i] = new LongAdder();
+            }
+        }
+
+        public void observe(double value) {
+            int i = 0;
+            while (i < bounds.length && value > bounds[i]) {
+                i++;
+            }
+            buckets[i].increment();
+            sum.add(value);
+        }
+
+        private void write(StringBuilder out) {
+            header(out, name, help, "histogram");
+            long cumulative = 0;
+            for (int i = 0; i < bounds.length; i++) {
+                cumulative += buckets[i].sum();
+                out.append(name).append("_bucket{le=\"").append(format(bounds[i])).append("\"} ")
+                        .append(cumulative).append('\n');
+            }
+            cumulative += buckets[bounds.length].sum();
+            out.append(name).append("_bucket{le=\"+Inf\"} ").append(cumulative).append('\n');
+            out.append(name).append("_sum ").append(format(sum.sum())).append('\n');
+            out.append(name).append("_count ").append(cumulative).append('\n');
+        }
+    }
+}
@@ -0,0 +1,415 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2024 HideTheMonkey
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.hidethemonkey.pathinator.helpers;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.logging.Level;
+
+import org.bukkit.Bukkit;
+import org.bukkit.World;
+
+import com.hidethemonkey.pathinator.Pathinator;
+
+/**
+ * Per world spatial index of every path Pathinator has built.
+ *
+ * Each path is stored as a polyline plus its cross-section, and is registered in
+ * every chunk its (widened) bounding box touches. Lookups only visit the chunks
+ * around the query, so they don't depend on how many paths exist in total.
+ * All access happens on the main thread.
+ */
+public class PathIndex {
+
+    private static final int MAGIC = 0x50494458; // "PIDX"
+    private static final int VERSION = 1;
+    private static final String FILE_NAME = "paths.dat";
+    // Autosave every 5 minutes if anything changed
+    private static final long AUTOSAVE_TICKS = 6000;
+
+    /**
+     * A built path. Points are the centre line of the path at path level.
+     */
+    public record PathRecord(int id, UUID worldId, UUID ownerId, String type, String material,
+            String clearanceMaterial, int width, int height, long createdAt, int[] xs, int[] ys, int[] zs) {
+
+        /**
+         * Number of blocks along the centre line
+         * 
+         * @return
+         */
+        public int getLength() {
+            int length = 0;
+            for (int i = 1; i < xs.length; i++) {
+                length += Math.max(Math.abs(xs[i] - xs[i - 1]), Math.abs(zs[i] - zs[i - 1]));
+            }
+            return length + 1;
+        }
+
+        /**
+         * Squared horizontal distance from a point to the closest point on the centre line
+         * 
+         * @param x
+         * @param z
+         * @return
+         */
+        public double distanceSquared(double x, double z) {
+            if (xs.length == 1) {
+                return square(x - xs[0]) + square(z - zs[0]);
+            }
+            double best = Double.MAX_VALUE;
+            for (int i = 1; i < xs.length; i++) {
+                double ax = xs[i - 1];
+                double az = zs[i - 1];
+                double dx = xs[i] - ax;
+                double dz = zs[i] - az;
+                double lengthSquared = dx * dx + dz * dz;
+                double t = lengthSquared == 0 ? 0 : ((x - ax) * dx + (z - az) * dz) / lengthSquared;
+                t = Math.max(0, Math.min(1, t));
+                best = Math.min(best, square(x - (ax + t * dx)) + square(z - (az + t * dz)));
+            }
+            return best;
+        }
+
+        private static double square(double value) {
+            return value * value;
+        }
+    }
+
+    private final Pathinator plugin;
+    private final Map<Integer, PathRecord> records = new LinkedHashMap<>();
+    private final Map<UUID, Map<Long, List<PathRecord>>> worlds = new HashMap<>();
+    private int nextId = 1;
+    private boolean dirty = false;
+
+    public PathIndex(Pathinator plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * Load the saved index and start autosaving
+     */
+    public void start() {
+        load();
+        Bukkit.getScheduler().runTaskTimer(plugin, () -> {
+            if (dirty) {
+                saveAsync();
+            }
+        }, AUTOSAVE_TICKS, AUTOSAVE_TICKS);
+    }
+
+    /**
+     * Add a path to the index
+     * 
+     * @param world
+     * @param ownerId
+     * @param type
+     * @param material
+     * @param clearanceMaterial
+     * @param width
+     * @param height            number of rows including the path row
+     * @param xs
+     * @param ys
+     * @param zs
+     * @return the new record
+     */
+    public PathRecord record(World world, UUID ownerId, String type, String material, String clearanceMaterial,
+            int width, int height, int[] xs, int[] ys, int[] zs) {
+        PathRecord record = new PathRecord(nextId++, world.getUID(), ownerId, type, material, clearanceMaterial,
+                width, height, System.currentTimeMillis(), xs, ys, zs);
+        add(record);
+        dirty = true;
+        return record;
+    }
+
+    /**
+     * Convenience for straight paths
+     * 
+     * @return the new record
+     */
+    public PathRecord recordStraight(World world, UUID ownerId, String type, String material,
+            String clearanceMaterial, int width, int height, int x1, int y1, int z1, int x2, int y2, int z2) {
+        return record(world, ownerId, type, material, clearanceMaterial, width, height, new int[] { x1, x2 },
+                new int[] { y1, y2 }, new int[] { z1, z2 });
+    }
+
+    private void add(PathRecord record) {
+        records.put(record.id(), record);
+        Map<Long, List<PathRecord>> chunks = worlds.computeIfAbsent(record.worldId(), id -> new HashMap<>());
+        int margin = record.width() / 2 + 1;
+        Set<Long> keys = new LinkedHashSet<>();
+        for (int i = 0; i < record.xs().length; i++) {
+            int from = Math.max(0, i - 1);
+            int minX = Math.min(record.xs()[from], record.xs()[i]) - margin;
+            int maxX = Math.max(record.xs()[from], record.xs()[i]) + margin;
+            int minZ = Math.min(record.zs()[from], record.zs()[i]) - margin;
+            int maxZ = Math.max(record.zs()[from], record.zs()[i]) + margin;
+            for (int cx = minX >> 4; cx <= maxX >> 4; cx++) {
+                for (int cz = minZ >> 4; cz <= maxZ >> 4; cz++) {
+                    keys.add(CoordHelper.chunkKey(cx, cz));
+                }
+            }
+        }
+        for (Long key : keys) {
+            chunks.computeIfAbsent(key, k -> new ArrayList<>(2)).add(record);
+        }
+    }
+
+    /**
+     * Remove a path from the index
+     * 
+     * @param id
+     * @return the removed record, or null if not found
+     */
+    public PathRecord remove(int id) {
+        PathRecord record = records.remove(id);
+        if (record != null) {
+            Map<Long, List<PathRecord>> chunks = worlds.get(record.worldId());
+            chunks.values().removeIf(list -> list.remove(record) && list.isEmpty());
+            dirty = true;
+        }
+        return record;
+    }
+
+    public PathRecord get(int id) {
+        return records.get(id);
+    }
+
+    public int size() {
+        return records.size();
+    }
+
+    /**
+     * Find every path whose centre line passes within the given rectangle (inclusive)
+     * 
+     * @param world
+     * @param minX
+     * @param minZ
+     * @param maxX
+     * @param maxZ
+     * @return
+     */
+    public List<PathRecord> query(World world, int minX, int minZ, int maxX, int maxZ) {
+        Map<Long, List<PathRecord>> chunks = worlds.get(world.getUID());
+        List<PathRecord> found = new ArrayList<>();
+        if (chunks == null) {
+            return found;
+        }
+        Set<Integer> seen = new LinkedHashSet<>();
+        for (int cx = minX >> 4; cx <= maxX >> 4; cx++) {
+            for (int cz = minZ >> 4; cz <= maxZ >> 4; cz++) {
+                List<PathRecord> list = chunks.get(CoordHelper.chunkKey(cx, cz));
+                if (list == null) {
+                    continue;
+                }
+                for (PathRecord record : list) {
+                    if (seen.add(record.id())) {
+                        found.add(record);
+                    }
+                }
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Find paths within a radius, closest first
+     * 
+     * @param world
+     * @param x
+     * @param z
+     * @param radius
+     * @return
+     */
+    public List<PathRecord> near(World world, int x, int z, int radius) {
+        List<PathRecord> found = query(world, x - radius, z - radius, x + radius, z + radius);
+        double radiusSquared = (double) radius * radius;
+        found.removeIf(record -> record.distanceSquared(x, z) > radiusSquared);
+        found.sort(Comparator.comparingDouble(record -> record.distanceSquared(x, z)));
+        return found;
+    }
+
+    /**
+     * Find the paths that cover a block
+     * 
+     * @param world
+     * @param x
+     * @param y
+     * @param z
+     * @return
+     */
+    public List<PathRecord> at(World world, int x, int y, int z) {
+        List<PathRecord> found = query(world, x, z, x, z);
+        found.removeIf(record -> {
+            double halfWidth = record.width() / 2.0;
+            if (record.distanceSquared(x, z) > halfWidth * halfWidth) {
+                return true;
+            }
+            int minY = Integer.MAX_VALUE;
+            int maxY = Integer.MIN_VALUE;
+            for (int pathY : record.ys()) {
+                minY = Math.min(minY, pathY);
+                maxY = Math.max(maxY, pathY);
+            }
+            return y < minY - 1 || y > maxY + record.height();
+        });
+        return found;
+    }
+
+    /**
+     * Save synchronously (used on disable)
+     */
+    public void save() {
+        if (!dirty) {
+            return;
+        }
+        try {
+            write(serialize());
+            dirty = false;
+        } catch (IOException e) {
+            plugin.getLogger().log(Level.WARNING, "Unable to save " + FILE_NAME, e);
+        }
+    }
+
+    /**
+     * Serialize on the main thread and write the bytes from an async task
+     */
+    private void saveAsync() {
+        try {
+            byte[] bytes = serialize();
+            dirty = false;
+            Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
+                try {
+                    write(bytes);
+                } catch (IOException e) {
+                    plugin.getLogger().log(Level.WARNING, "Unable to save " + FILE_NAME, e);
+                }
+            });
+        } catch (IOException e) {
+            plugin.getLogger().log(Level.WARNING, "Unable to save " + FILE_NAME, e);
+        }
+    }
+
+    private byte[] serialize() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(nextId);
+        out.writeInt(records.size());
+        for (PathRecord record : records.values()) {
+            out.writeInt(record.id());
+            writeUUID(out, record.worldId());
+            writeUUID(out, record.ownerId());
+            out.writeUTF(record.type());
+            out.writeUTF(record.material());
+            out.writeUTF(record.clearanceMaterial());
+            out.writeShort(record.width());
+            out.writeShort(record.height());
+            out.writeLong(record.createdAt());
+            out.writeInt(record.xs().length);
+            for (int i = 0; i < record.xs().length; i++) {
+                out.writeInt(record.xs()[i]);
+                out.writeShort(record.ys()[i]);
+                out.writeInt(record.zs()[i]);
+            }
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    private synchronized void write(byte[] bytes) throws IOException {
+        File file = new File(plugin.getDataFolder(), FILE_NAME);
+        File tmp = new File(plugin.getDataFolder(), FILE_NAME + ".tmp");
+        Files.write(tmp.toPath(), bytes);
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void load() {
+        records.clear();
+        worlds.clear();
+        File file = new File(plugin.getDataFolder(), FILE_NAME);
+        if (!file.exists()) {
+            return;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                plugin.getLogger().warning("Ignoring unrecognized " + FILE_NAME);
+                return;
+            }
+            nextId = in.readInt();
+            int count = in.readInt();
+            for (int r = 0; r < count; r++) {
+                int id = in.readInt();
+                UUID worldId = readUUID(in);
+                UUID ownerId = readUUID(in);
+                String type = in.readUTF();
+                String material = in.readUTF();
+                String clearanceMaterial = in.readUTF();
+                int width = in.readShort();
+                int height = in.readShort();
+                long createdAt = in.readLong();
+                int points = in.readInt();
+                int[] xs = new int[points];
+                int[] ys = new int[points];
+                int[] zs = new int[points];
+                for (int i = 0; i < points; i++) {
+                    xs[i] = in.readInt();
+                    ys[i] = in.readShort();
+                    zs[i] = in.readInt();
+                }
+                add(new PathRecord(id, worldId, ownerId, type, material, clearanceMaterial, width, height,
+                        createdAt, xs, ys, zs));
+            }
+        } catch (IOException e) {
+            plugin.getLogger().log(Level.WARNING, "Unable to read " + FILE_NAME + ", some paths may be missing", e);
+        }
+    }
+
+    private static void writeUUID(DataOutputStream out, UUID id) throws IOException {
+        out.writeLong(id.getMostSignificantBits());
+        out.writeLong(id.getLeastSignificantBits());
+    }
+
+    private static UUID readUUID(DataInputStream in) throws IOException {
+        return new UUID(in.readLong(), in.readLong());
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2024 HideTheMonkey
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.hidethemonkey.pathinator.helpers;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+/**
+ * Creates the executor that planning work runs on: terrain and snapshot scans,
+ * route searches and lighting plans.
+ *
+ * On Java 21+ every task gets its own virtual thread, so any number of plans can
+ * run at once without tying up the Bukkit async pool or needing a thread count.
+ * The virtual thread executor is looked up reflectively so the plugin still
+ * builds for and runs on Java 17, where a fixed pool of daemon platform threads
+ * is used instead.
+ */
+public final class PlanningExecutor {
+
+    private PlanningExecutor() {
+    }
+
+    /**
+     * @param name    thread name prefix
+     * @param threads size of the platform thread pool, 0 to pick one from the number of cores
+     * @param virtual whether to use virtual threads when the runtime has them
+     * @param logger
+     * @return
+     */
+    public static ExecutorService create(String name, int threads, boolean virtual, Logger logger) {
+        if (virtual && Runtime.version().feature() >= 21) {
+            try {
+                Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+                ExecutorService executor = (ExecutorService) factory.invoke(null);
+                logger.info("Planning on virtual threads.");
+                return executor;
+            } catch (ReflectiveOperationException | RuntimeException e) {
+                logger.warning("Virtual threads are not available, planning on platform threads: " + e);
+            }
+        }
+        int size = threads > 0 ? threads : Math.max(2, Runtime.getRuntime().availableProcessors() / 2);
+        AtomicInteger count = new AtomicInteger();
+        return Executors.newFixedThreadPool(size, runnable -> {
+            Thread thread = new Thread(runnable, name + "-Planner-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+}
@@ -175,23 +175,34 @@ public class PlayerHelper {
      * Add damage to the item
      * 
      * @param item
-     * @param damage
      */
     public void addToolDamage(ItemStack item) {
-        if (item != null && item.getAmount() > 0 && plugin.getPConfig().getTakeToolDamage()) {
+        addToolDamage(item, 1);
+    }
+
+    /**
+     * Add the damage for several uses of the item at once
+     * 
+     * @param item
+     * @param uses
+     */
+    public void addToolDamage(ItemStack item, int uses) {
+        if (item != null && item.getAmount() > 0 && uses > 0 && plugin.getPConfig().getTakeToolDamage()) {
             String toolName = item.getType().name();
             Material toolMaterial = item.getType();
             if (!Tag.ITEMS_PICKAXES.isTagged(toolMaterial) && !Tag.ITEMS_SHOVELS.isTagged(toolMaterial)
                     && !Tag.ITEMS_AXES.isTagged(toolMaterial) && !Tag.ITEMS_HOES.isTagged(toolMaterial)) {
                 return; // item is not a tool
             }
-            int damage = 1;
+            int damage = uses;
             ItemMeta meta = item.getItemMeta();
             if (meta.hasEnchant(Enchantment.UNBREAKING)) {
                 int level = item.getEnchantmentLevel(Enchantment.UNBREAKING);
-                // calculate percent chance of not taking damage
-                if (Math.random() * 100 < 100 / (level + 1)) {
-                    damage = 0;
+                // calculate percent chance of not taking damage, once per use
+                for (int i = 0; i < uses; i++) {
+                    if (Math.random() * 100 < 100 / (level + 1)) {
+                        damage--;
+                    }
                 }
             }
             if (damage > 0) {
@@ -199,17 +210,32 @@ public class PlayerHelper {
                 damageMeta.setDamage(damageMeta.getDamage() + damage);
                 item.setItemMeta(damageMeta);
 
-                if (item.getType().getMaxDurability() <= damageMeta.getDamage() + damage) {
+                if (item.getType().getMaxDurability() <= damageMeta.getDamage() + 1) {
                     if (player.getInventory().contains(item)) {
                         player.getInventory().remove(item);
                         player.playSound(player.getLocation(), Sound.BLOCK_ANVIL_PLACE, 3.0F, 0.69F); // giggity giggity
                         msg("Your " + toolName + " broke!");
                     }
+                    toolCache.clear();
                 }
             }
         }
     }
 
+    /**
+     * Get the remaining durability of a tool
+     * 
+     * @param item
+     * @return
+     */
+    public int getRemainingDurability(ItemStack item) {
+        if (item == null || item.getType().getMaxDurability() <= 0
+                || !(item.getItemMeta() instanceof Damageable damageable)) {
+            return Integer.MAX_VALUE;
+        }
+        return item.getType().getMaxDurability() - damageable.getDamage();
+    }
+
     /**
      * Check if the player has the block in their inventory
      * 
@@ -230,8 +256,19 @@ public class PlayerHelper {
      * @return
      */
     public boolean removeBlock(Material material) {
+        return removeBlock(material, 1);
+    }
+
+    /**
+     * Remove a number of blocks from the player's inventory
+     * 
+     * @param material
+     * @param amount
+     * @return
+     */
+    public boolean removeBlock(Material material, int amount) {
         if (player.getInventory().contains(material)) {
-            HashMap<Integer, ItemStack> items = player.getInventory().removeItem(new ItemStack(material, 1));
+            HashMap<Integer, ItemStack> items = player.getInventory().removeItem(new ItemStack(material, amount));
             return items.isEmpty();
         }
         return true;
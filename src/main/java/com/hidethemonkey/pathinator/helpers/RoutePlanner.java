@@ -0,0 +1,270 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2024 HideTheMonkey
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.hidethemonkey.pathinator.helpers;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Bounded A* search over a TerrainGrid. Meant to run on a worker thread: it only
+ * touches the grid and its own primitive arrays, never the world.
+ *
+ * Moves are the four cardinal steps so the result can be built with the regular
+ * segment placement. Every array is sized from the grid, and the search gives up
+ * after maxNodes expansions, so both time and memory have a hard ceiling.
+ */
+public class RoutePlanner {
+
+    /**
+     * Cost model and limits for a search
+     */
+    public record Settings(int maxNodes, int maxStep, int slopeCost, int waterCost, int carveCost) {
+    }
+
+    /**
+     * Result of a search. When no route was found the coordinate arrays are empty.
+     */
+    public record RoutePlan(int[] xs, int[] ys, int[] zs, int expanded, long elapsedMillis) {
+        public boolean found() {
+            return xs.length > 0;
+        }
+
+        public int getLength() {
+            return xs.length;
+        }
+    }
+
+    private static final int[] STEP_X = { 1, -1, 0, 0 };
+    private static final int[] STEP_Z = { 0, 0, 1, -1 };
+
+    private final TerrainGrid grid;
+    private final Settings settings;
+
+    // per column state, indexed like the grid
+    private final int[] gScore;
+    private final int[] cameFrom;
+    private final short[] pathY;
+    private final BitSet closed;
+
+    // binary min-heap of (f score, column); stale entries are skipped when popped
+    private int[] heapKeys = new int[1024];
+    private int[] heapNodes = new int[1024];
+    private int heapSize = 0;
+
+    public RoutePlanner(TerrainGrid grid, Settings settings) {
+        this.grid = grid;
+        this.settings = settings;
+        this.gScore = new int[grid.size()];
+        this.cameFrom = new int[grid.size()];
+        this.pathY = new short[grid.size()];
+        this.closed = new BitSet(grid.size());
+    }
+
+    /**
+     * Find the cheapest route from the start block to the goal column.
+     * The start Y is the block the player stands on; the route's Y profile follows
+     * the terrain but never changes by more than maxStep between neighbours.
+     * 
+     * @param startX
+     * @param startY
+     * @param startZ
+     * @param goalX
+     * @param goalZ
+     * @return the plan, excluding the start block
+     */
+    public RoutePlan plan(int startX, int startY, int startZ, int goalX, int goalZ) {
+        long started = System.currentTimeMillis();
+        if (!grid.contains(startX, startZ) || !grid.contains(goalX, goalZ)) {
+            return empty(0, started);
+        }
+        Arrays.fill(gScore, Integer.MAX_VALUE);
+
+        int start = grid.index(startX, startZ);
+        int goal = grid.index(goalX, goalZ);
+        gScore[start] = 0;
+        cameFrom[start] = -1;
+        pathY[start] = (short) startY;
+        push(heuristic(startX, startZ, goalX, goalZ), start);
+
+        int expanded = 0;
+        while (heapSize > 0 && expanded < settings.maxNodes()) {
+            int current = pop();
+            if (closed.get(current)) {
+                continue;
+            }
+            if (current == goal) {
+                return reconstruct(start, goal, expanded, started);
+            }
+            closed.set(current);
+            expanded++;
+
+            int x = grid.xOf(current);
+            int z = grid.zOf(current);
+            int y = pathY[current];
+            for (int d = 0; d < 4; d++) {
+                int nx = x + STEP_X[d];
+                int nz = z + STEP_Z[d];
+                if (!grid.contains(nx, nz)) {
+                    continue;
+                }
+                int next = grid.index(nx, nz);
+                if (closed.get(next)) {
+                    continue;
+                }
+                byte surface = grid.getSurface(next);
+                if (surface == TerrainGrid.UNKNOWN || surface == TerrainGrid.LAVA) {
+                    continue;
+                }
+
+                int height = grid.getHeight(next);
+                int dy = Math.abs(height - y);
+                int stepCost = 1;
+                int nextY = height;
+                if (dy <= settings.maxStep()) {
+                    stepCost += settings.slopeCost() * dy;
+                } else {
+                    // too steep, so cut into the hill or build up to it
+                    nextY = height > y ? y + settings.maxStep() : y - settings.maxStep();
+                    stepCost += settings.slopeCost() * settings.maxStep()
+                            + settings.carveCost() * (dy - settings.maxStep());
+                }
+                if (surface == TerrainGrid.WATER) {
+                    stepCost += settings.waterCost();
+                }
+
+                int tentative = gScore[current] + stepCost;
+                if (tentative < gScore[next]) {
+                    gScore[next] = tentative;
+                    cameFrom[next] = current;
+                    pathY[next] = (short) nextY;
+                    push(tentative + heuristic(nx, nz, goalX, goalZ), next);
+                }
+            }
+        }
+        return empty(expanded, started);
+    }
+
+    private RoutePlan reconstruct(int start, int goal, int expanded, long started) {
+        int length = 0;
+        for (int node = goal; node != start; node = cameFrom[node]) {
+            length++;
+        }
+        int[] xs = new int[length];
+        int[] ys = new int[length];
+        int[] zs = new int[length];
+        int i = length;
+        for (int node = goal; node != start; node = cameFrom[node]) {
+            i--;
+            xs[i] = grid.xOf(node);
+            ys[i] = pathY[node];
+            zs[i] = grid.zOf(node);
+        }
+        return new RoutePlan(xs, ys, zs, expanded, System.currentTimeMillis() - started);
+    }
+
+    private RoutePlan empty(int expanded, long started) {
+        return new RoutePlan(new int[0], new int[0], new int[0], expanded, System.currentTimeMillis() - started);
+    }
+
+    private static int heuristic(int x, int z, int goalX, int goalZ) {
+        // every step costs at least 1, so Manhattan distance never overestimates
+        return Math.abs(goalX - x) + Math.abs(goalZ - z);
+    }
+
+    private void push(int key, int node) {
+        if (heapSize == heapKeys.length) {
+            heapKeys = Arrays.copyOf(heapKeys, heapSize * 2);
+            heapNodes = Arrays.copyOf(heapNodes, heapSize * 2);
+        }
+        int i = heapSize++;
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (heapKeys[parent] <= key) {
+                break;
+            }
+            heapKeys[i] = heapKeys[parent];
+            heapNodes[i] = heapNodes[parent];
+            i = parent;
+        }
+        heapKeys[i] = key;
+        heapNodes[i] = node;
+    }
+
+    private int pop() {
+        int top = heapNodes[0];
+        heapSize--;
+        int key = heapKeys[heapSize];
+        int node = heapNodes[heapSize];
+        int i = 0;
+        int half = heapSize >>> 1;
+        while (i < half) {
+            int child = 2 * i + 1;
+            if (child + 1 < heapSize && heapKeys[child + 1] < heapKeys[child]) {
+                child++;
+            }
+            if (key <= heapKeys[child]) {
+                break;
+            }
+            heapKeys[i] = heapKeys[child];
+            heapNodes[i] = heapNodes[child];
+            i = child;
+        }
+        heapKeys[i] = key;
+        heapNodes[i] = node;
+        return top;
+    }
+
+    /**
+     * Reduce a route to its corners, for storing in the path index
+     * 
+     * @param plan
+     * @return x, y and z arrays of the corner points
+     */
+    public static int[][] corners(RoutePlan plan) {
+        int n = plan.getLength();
+        int[] keep = new int[n];
+        int count = 0;
+        for (int i = 0; i < n; i++) {
+            if (i == 0 || i == n - 1) {
+                keep[count++] = i;
+                continue;
+            }
+            int dx1 = plan.xs()[i] - plan.xs()[i - 1];
+            int dz1 = plan.zs()[i] - plan.zs()[i - 1];
+            int dx2 = plan.xs()[i + 1] - plan.xs()[i];
+            int dz2 = plan.zs()[i + 1] - plan.zs()[i];
+            if (dx1 != dx2 || dz1 != dz2 || plan.ys()[i] != plan.ys()[i - 1]) {
+                keep[count++] = i;
+            }
+        }
+        int[][] result = new int[3][count];
+        for (int i = 0; i < count; i++) {
+            result[0][i] = plan.xs()[keep[i]];
+            result[1][i] = plan.ys()[keep[i]];
+            result[2][i] = plan.zs()[keep[i]];
+        }
+        return result;
+    }
+}
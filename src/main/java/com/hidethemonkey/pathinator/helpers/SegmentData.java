@@ -31,7 +31,6 @@ import org.bukkit.Material;
 import org.bukkit.World;
 import org.bukkit.block.BlockFace;
 import org.bukkit.inventory.ItemStack;
-import org.bukkit.util.BoundingBox;
 
 public class SegmentData {
     private Material baseMaterial;
@@ -44,9 +43,9 @@ public class SegmentData {
     private ArrayList<Material> leftMaterials;
     private Section currentSection;
     private int sideIndex;
-    // BoundingBox that represents where no blocks should be placed
-    private BoundingBox negativeSpace;
-    private BoundingBox emptyBox = new BoundingBox(0, 0, 0, 0, 0, 0);
+    // Blocks that should never be replaced, shared by every segment of a job
+    private ExclusionVolumes exclusions;
+    private static final ExclusionVolumes NO_EXCLUSIONS = new ExclusionVolumes();
     // Lighting
     private BlockFace lightFacing;
     private Location lightingLocation;
@@ -83,7 +82,7 @@ public class SegmentData {
         this.lightFacing = data.getLightFacing();
         this.lightingItems = data.getLightingStacks();
         this.lightingLocation = data.getLightingLocation();
-        this.negativeSpace = data.getNegativeSpace();
+        this.exclusions = data.getExclusions();
         this.powerFacing = data.getPowerFacing();
         this.powerLocation = data.getPowerLocation();
         this.rightMaterials = data.getRightMaterials();
@@ -314,25 +313,25 @@ public class SegmentData {
     }
 
     /**
-     * Sets the negative space of the segment.
-     * i.e. the area where no blocks should be placed
+     * Sets the exclusion volumes of the segment.
+     * i.e. the blocks that should never be replaced
      *
-     * @param box the new negative space
+     * @param exclusions the new exclusion volumes
      */
-    public void setNegativeSpace(BoundingBox box) {
-        negativeSpace = box;
+    public void setExclusions(ExclusionVolumes exclusions) {
+        this.exclusions = exclusions;
     }
 
     /**
-     * Gets the negative space of the segment.
+     * Gets the exclusion volumes of the segment.
      *
-     * @return the negative space
+     * @return the exclusion volumes, never null
      */
-    public BoundingBox getNegativeSpace() {
-        if (negativeSpace == null) {
-            return emptyBox;
+    public ExclusionVolumes getExclusions() {
+        if (exclusions == null) {
+            return NO_EXCLUSIONS;
         }
-        return negativeSpace;
+        return exclusions;
     }
 
     /**
@@ -406,4 +405,4 @@ public class SegmentData {
     public Location getPowerLocation() {
         return powerLocation;
     }
-}
\ No newline at end of file
+}
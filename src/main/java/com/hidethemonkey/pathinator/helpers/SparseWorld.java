@@ -0,0 +1,247 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2024 HideTheMonkey
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.hidethemonkey.pathinator.helpers;
+
+import org.bukkit.Material;
+
+/**
+ * A world that only exists in memory, for running build jobs in benchmarks and
+ * tests without a server. Every block starts out as AIR.
+ *
+ * Blocks are kept in 16x16x16 sections, only for sections that have been written
+ * to. Each section has a palette of the materials in it and stores palette
+ * indexes packed into longs at 4, 8 or 16 bits per block, growing as the palette
+ * does, so a typical section takes 2 KiB. Sections are found through an open
+ * addressing hash map keyed by the packed section coordinates, with the last
+ * section looked up cached since jobs tend to work through one section at a time.
+ *
+ * Not thread safe.
+ */
+public class SparseWorld implements WorldAccess {
+
+    private static final int SECTION_SIZE = 16 * 16 * 16;
+
+    private final int minHeight;
+    private final int maxHeight;
+
+    // open addressing, a null section marks an empty slot
+    private long[] keys = new long[64];
+    private Section[] sections = new Section[64];
+    private int size = 0;
+
+    private long lastKey;
+    private Section lastSection;
+
+    public SparseWorld() {
+        this(-64, 320);
+    }
+
+    /**
+     * @param minHeight lowest y, inclusive
+     * @param maxHeight highest y, exclusive
+     */
+    public SparseWorld(int minHeight, int maxHeight) {
+        this.minHeight = minHeight;
+        this.maxHeight = maxHeight;
+    }
+
+    @Override
+    public Material getType(int x, int y, int z) {
+        if (y < minHeight || y >= maxHeight) {
+            return Material.VOID_AIR;
+        }
+        Section section = find(x >> 4, y >> 4, z >> 4, false);
+        return section == null ? Material.AIR : section.get(index(x, y, z));
+    }
+
+    @Override
+    public void setType(int x, int y, int z, Material material) {
+        if (y < minHeight || y >= maxHeight) {
+            return;
+        }
+        Section section = find(x >> 4, y >> 4, z >> 4, !material.isAir());
+        if (section != null) {
+            section.set(index(x, y, z), material);
+        }
+    }
+
+    /**
+     * There is no block data to ask without a server, so every block other than
+     * air and liquids counts as solid.
+     */
+    @Override
+    public boolean isSolid(int x, int y, int z) {
+        Material type = getType(x, y, z);
+        return !type.isAir() && type != Material.WATER && type != Material.LAVA;
+    }
+
+    @Override
+    public int getMinHeight() {
+        return minHeight;
+    }
+
+    @Override
+    public int getMaxHeight() {
+        return maxHeight;
+    }
+
+    /**
+     * @return the number of sections that have been written to
+     */
+    public int getSectionCount() {
+        return size;
+    }
+
+    private static int index(int x, int y, int z) {
+        return (y & 15) << 8 | (z & 15) << 4 | (x & 15);
+    }
+
+    private static long key(int sectionX, int sectionY, int sectionZ) {
+        return ((long) sectionX & 0x3FFFFF) << 42 | ((long) sectionZ & 0x3FFFFF) << 20 | (sectionY & 0xFFFFF);
+    }
+
+    private static int slot(long key, int mask) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ hash >>> 32) & mask;
+    }
+
+    private Section find(int sectionX, int sectionY, int sectionZ, boolean create) {
+        long key = key(sectionX, sectionY, sectionZ);
+        if (lastSection != null && lastKey == key) {
+            return lastSection;
+        }
+        int mask = keys.length - 1;
+        int i = slot(key, mask);
+        while (sections[i] != null) {
+            if (keys[i] == key) {
+                lastKey = key;
+                lastSection = sections[i];
+                return lastSection;
+            }
+            i = (i + 1) & mask;
+        }
+        if (!create) {
+            return null;
+        }
+        Section section = new Section();
+        keys[i] = key;
+        sections[i] = section;
+        if (++size * 4 > keys.length * 3) {
+            grow();
+        }
+        lastKey = key;
+        lastSection = section;
+        return section;
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        Section[] oldSections = sections;
+        keys = new long[oldKeys.length * 2];
+        sections = new Section[oldSections.length * 2];
+        int mask = keys.length - 1;
+        for (int j = 0; j < oldKeys.length; j++) {
+            if (oldSections[j] != null) {
+                int i = slot(oldKeys[j], mask);
+                while (sections[i] != null) {
+                    i = (i + 1) & mask;
+                }
+                keys[i] = oldKeys[j];
+                sections[i] = oldSections[j];
+            }
+        }
+    }
+
+    /**
+     * One 16x16x16 section. Until something other than AIR is written the palette
+     * is just AIR and there is no data. Palette entries are never removed.
+     */
+    private static final class Section {
+        private Material[] palette = { Material.AIR };
+        private int paletteSize = 1;
+        private int bits = 0;
+        private long[] data;
+
+        Material get(int index) {
+            if (data == null) {
+                return palette[0];
+            }
+            int perLong = 64 / bits;
+            long word = data[index / perLong];
+            return palette[(int) (word >>> (index % perLong) * bits) & ((1 << bits) - 1)];
+        }
+
+        void set(int index, Material material) {
+            int id = paletteId(material);
+            if (data == null) {
+                if (id == 0) {
+                    return;
+                }
+                resize(4);
+            }
+            int perLong = 64 / bits;
+            int shift = (index % perLong) * bits;
+            long mask = ((1L << bits) - 1) << shift;
+            int word = index / perLong;
+            data[word] = (data[word] & ~mask) | ((long) id << shift);
+        }
+
+        private int paletteId(Material material) {
+            for (int i = 0; i < paletteSize; i++) {
+                if (palette[i] == material) {
+                    return i;
+                }
+            }
+            if (paletteSize == palette.length) {
+                Material[] grown = new Material[palette.length * 2];
+                System.arraycopy(palette, 0, grown, 0, paletteSize);
+                palette = grown;
+            }
+            palette[paletteSize] = material;
+            if (data != null && paletteSize >= 1 << bits) {
+                resize(bits * 2);
+            }
+            return paletteSize++;
+        }
+
+        /**
+         * Repack every block at a new number of bits per block
+         */
+        private void resize(int newBits) {
+            int perLong = 64 / newBits;
+            long[] packed = new long[(SECTION_SIZE + perLong - 1) / perLong];
+            if (data != null) {
+                int oldPerLong = 64 / bits;
+                long oldMask = (1L << bits) - 1;
+                for (int i = 0; i < SECTION_SIZE; i++) {
+                    long id = data[i / oldPerLong] >>> (i % oldPerLong) * bits & oldMask;
+                    packed[i / perLong] |= id << (i % perLong) * newBits;
+                }
+            }
+            bits = newBits;
+            data = packed;
+        }
+    }
+}
@@ -0,0 +1,239 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2024 HideTheMonkey
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.hidethemonkey.pathinator.helpers;
+
+import java.util.EnumMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import org.bukkit.Material;
+import org.bukkit.block.Block;
+import org.bukkit.enchantments.Enchantment;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.ItemMeta;
+
+/**
+ * Survival bookkeeping for one player, batched.
+ *
+ * Follows the same rules as placing a single block, but instead of touching the
+ * inventory for every block it tallies the blocks used, the drops and the tool
+ * uses and settles them in one go when {@link #flush()} is called. Tools are
+ * settled early when they are about to break so the next best tool takes over.
+ *
+ * A ledger made from just an InventoryAccess (no player) is for headless runs
+ * against a SparseWorld: blocks are still taken from the inventory and tools
+ * wear down, but nothing is dropped.
+ */
+public class SurvivalLedger {
+
+    private final PlayerHelper playerHelper;
+    private final BlockHelper blockHelper;
+    private final InventoryAccess inventory;
+
+    // inventory counts, read once per batch
+    private final Map<Material, Integer> available = new EnumMap<>(Material.class);
+    private final Map<Material, Integer> taken = new EnumMap<>(Material.class);
+    private final Map<Material, Integer> drops = new EnumMap<>(Material.class);
+    // ItemStack equality is by value, so tools are tracked by identity
+    private final Map<ItemStack, Integer> toolUses = new IdentityHashMap<>();
+    // blocks changed since the last flush, for OpsMetrics
+    private int placed = 0;
+    private int mined = 0;
+
+    public SurvivalLedger(PlayerHelper playerHelper, BlockHelper blockHelper) {
+        this.playerHelper = playerHelper;
+        this.blockHelper = blockHelper;
+        this.inventory = new BukkitInventoryAccess(playerHelper);
+    }
+
+    public SurvivalLedger(InventoryAccess inventory) {
+        this.playerHelper = null;
+        this.blockHelper = null;
+        this.inventory = inventory;
+    }
+
+    /**
+     * @return the player, or null for a headless ledger
+     */
+    public PlayerHelper getPlayerHelper() {
+        return playerHelper;
+    }
+
+    /**
+     * Mine a block and replace it
+     * 
+     * @param toPlace the material to place, or null to just mine the block
+     * @param block
+     * @return false if the block couldn't be mined for lack of a tool
+     */
+    public boolean replace(Material toPlace, Block block) {
+        Material toRemove = block.getType();
+        if (toPlace != null && (toRemove == toPlace || !hasBlock(toPlace))) {
+            return true;
+        }
+        if (playerHelper.isInSurvival()) {
+            ItemStack tool = playerHelper.getMineableTool(toRemove);
+            // ** Handle tool damage **
+            if (!toRemove.isAir() && toRemove != Material.WATER && toRemove.getHardness() >= 0.5) {
+                if (tool != null && tool.getAmount() == 0 && playerHelper.requiresTools()) {
+                    // Don't allow the block to be placed if the player doesn't have the right tool
+                    return false;
+                }
+                useTool(tool);
+            }
+            if (toPlace != null && !toPlace.isAir()) {
+                taken.merge(toPlace, 1, Integer::sum);
+            }
+            if (tool != null) {
+                collectDrops(block, tool, toRemove);
+            }
+        }
+        if (toPlace != null && !toPlace.isAir()) {
+            placed++;
+        }
+        if (!toRemove.isAir() && toRemove != toPlace) {
+            mined++;
+        }
+        block.setType(toPlace != null ? toPlace : Material.AIR);
+        return true;
+    }
+
+    /**
+     * Mine a block and replace it
+     * 
+     * @param toPlace the material to place, or null to just mine the block
+     * @param world
+     * @param x
+     * @param y
+     * @param z
+     * @return false if the block couldn't be mined for lack of a tool
+     */
+    public boolean replace(Material toPlace, WorldAccess world, int x, int y, int z) {
+        if (playerHelper != null && world instanceof BukkitWorldAccess bukkit) {
+            // tools and drops need the real block
+            return replace(toPlace, bukkit.getWorld().getBlockAt(x, y, z));
+        }
+        Material toRemove = world.getType(x, y, z);
+        if (toPlace != null && (toRemove == toPlace || !hasBlock(toPlace))) {
+            return true;
+        }
+        if (inventory.isInSurvival() && !toRemove.isAir() && toRemove != Material.WATER
+                && !inventory.useTool(toRemove)) {
+            // Don't allow the block to be placed if the player doesn't have the right tool
+            return false;
+        }
+        if (inventory.isInSurvival() && toPlace != null && !toPlace.isAir()) {
+            taken.merge(toPlace, 1, Integer::sum);
+        }
+        if (toPlace != null && !toPlace.isAir()) {
+            placed++;
+        }
+        if (!toRemove.isAir() && toRemove != toPlace) {
+            mined++;
+        }
+        world.setType(x, y, z, toPlace != null ? toPlace : Material.AIR);
+        return true;
+    }
+
+    /**
+     * Check if the player has (or will still have, after this batch) the block
+     * 
+     * @param material
+     * @return
+     */
+    public boolean hasBlock(Material material) {
+        if (!inventory.isInSurvival() || material.isAir()) {
+            return true;
+        }
+        int count = available.computeIfAbsent(material, inventory::count);
+        return count - taken.getOrDefault(material, 0) > 0;
+    }
+
+    private void useTool(ItemStack tool) {
+        if (tool == null || tool.getAmount() == 0) {
+            return;
+        }
+        int uses = toolUses.merge(tool, 1, Integer::sum);
+        if (uses >= playerHelper.getRemainingDurability(tool) - 1) {
+            // settle now so a broken tool is swapped out before the next block
+            toolUses.remove(tool);
+            playerHelper.addToolDamage(tool, uses);
+        }
+    }
+
+    private void collectDrops(Block block, ItemStack tool, Material toRemove) {
+        ItemMeta meta = tool.getItemMeta();
+        // handle SILK_TOUCH
+        if (meta.hasEnchant(Enchantment.SILK_TOUCH)) {
+            drops.merge(toRemove, 1, Integer::sum);
+        }
+        // handle FORTUNE
+        else if (meta.hasEnchant(Enchantment.FORTUNE)) {
+            int fortuneDropCount = blockHelper.getFortuneDrops(tool.getEnchantmentLevel(Enchantment.FORTUNE));
+            block.getDrops(tool).forEach(drop -> {
+                int amount = drop.getAmount() <= fortuneDropCount ? fortuneDropCount : drop.getAmount();
+                drops.merge(drop.getType(), amount, Integer::sum);
+            });
+        }
+        // default no enchantments
+        else {
+            block.getDrops(tool).forEach(drop -> drops.merge(drop.getType(), drop.getAmount(), Integer::sum));
+        }
+    }
+
+    /**
+     * Apply everything tallied since the last flush to the player's inventory
+     */
+    public void flush() {
+        if (!taken.isEmpty() || !drops.isEmpty() || !toolUses.isEmpty()) {
+            FlightEvents.LedgerReconcile event = FlightEvents.beginReconcile();
+            taken.forEach(inventory::take);
+            drops.forEach(inventory::give);
+            if (!toolUses.isEmpty()) {
+                toolUses.forEach(playerHelper::addToolDamage);
+            }
+            if (event != null) {
+                FlightEvents.endReconcile(event, sum(taken), sum(drops), toolUses.size());
+            }
+            OpsMetrics.LEDGER_RECONCILES.increment();
+        }
+        OpsMetrics.BLOCKS_PLACED.add(placed);
+        OpsMetrics.BLOCKS_MINED.add(mined);
+        placed = 0;
+        mined = 0;
+        taken.clear();
+        drops.clear();
+        toolUses.clear();
+        available.clear();
+    }
+
+    private static int sum(Map<Material, Integer> counts) {
+        int total = 0;
+        for (int count : counts.values()) {
+            total += count;
+        }
+        return total;
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2024 HideTheMonkey
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.hidethemonkey.pathinator.helpers;
+
+/**
+ * Compact surface data for a rectangle of columns: the height of the ground and a
+ * small surface class per column, stored in flat primitive arrays.
+ *
+ * Each column costs 3 bytes, so even large planning regions stay small.
+ */
+public class TerrainGrid {
+
+    public static final byte UNKNOWN = 0;
+    public static final byte LAND = 1;
+    public static final byte WATER = 2;
+    public static final byte LAVA = 3;
+
+    private final int originX;
+    private final int originZ;
+    private final int sizeX;
+    private final int sizeZ;
+    private final short[] heights;
+    private final byte[] surfaces;
+
+    /**
+     * @param minX inclusive
+     * @param minZ inclusive
+     * @param maxX inclusive
+     * @param maxZ inclusive
+     */
+    public TerrainGrid(int minX, int minZ, int maxX, int maxZ) {
+        this.originX = minX;
+        this.originZ = minZ;
+        this.sizeX = maxX - minX + 1;
+        this.sizeZ = maxZ - minZ + 1;
+        this.heights = new short[sizeX * sizeZ];
+        this.surfaces = new byte[sizeX * sizeZ];
+    }
+
+    /**
+     * Number of bytes needed for a grid of the given size
+     * 
+     * @param sizeX
+     * @param sizeZ
+     * @return
+     */
+    public static long bytesFor(int sizeX, int sizeZ) {
+        return (long) sizeX * sizeZ * 3;
+    }
+
+    public int getMinX() {
+        return originX;
+    }
+
+    public int getMinZ() {
+        return originZ;
+    }
+
+    public int getMaxX() {
+        return originX + sizeX - 1;
+    }
+
+    public int getMaxZ() {
+        return originZ + sizeZ - 1;
+    }
+
+    public int getSizeX() {
+        return sizeX;
+    }
+
+    public int getSizeZ() {
+        return sizeZ;
+    }
+
+    public int size() {
+        return heights.length;
+    }
+
+    public boolean contains(int x, int z) {
+        return x >= originX && z >= originZ && x < originX + sizeX && z < originZ + sizeZ;
+    }
+
+    /**
+     * Index of a column in the flat arrays. The caller must check contains() first.
+     * 
+     * @param x
+     * @param z
+     * @return
+     */
+    public int index(int x, int z) {
+        return (z - originZ) * sizeX + (x - originX);
+    }
+
+    public int xOf(int index) {
+        return originX + index % sizeX;
+    }
+
+    public int zOf(int index) {
+        return originZ + index / sizeX;
+    }
+
+    public int getHeight(int index) {
+        return heights[index];
+    }
+
+    public byte getSurface(int index) {
+        return surfaces[index];
+    }
+
+    /**
+     * Set a column. Different columns may be set from different threads.
+     * 
+     * @param x
+     * @param z
+     * @param height  y of the top ground block
+     * @param surface
+     */
+    public void set(int x, int z, int height, byte surface) {
+        int index = index(x, z);
+        heights[index] = (short) height;
+        surfaces[index] = surface;
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2024 HideTheMonkey
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.hidethemonkey.pathinator.helpers;
+
+import org.bukkit.block.BlockFace;
+
+/**
+ * Works out the Y of each step of a straight path that follows the ground.
+ */
+public class TerrainProfile {
+
+    /**
+     * Follow the surface in a straight line, never changing height by more than
+     * maxStep between steps. Where the ground is steeper the path is carved into it
+     * or built up over it. Columns with no terrain data keep the previous height.
+     * 
+     * @param grid     must cover every column of the path
+     * @param startX
+     * @param startY   height of the block the path starts from
+     * @param startZ
+     * @param facing
+     * @param distance
+     * @param maxStep
+     * @return the Y of each step, index 0 being one block in front of the start
+     */
+    public static int[] follow(TerrainGrid grid, int startX, int startY, int startZ, BlockFace facing,
+            int distance, int maxStep) {
+        int[] ys = new int[distance];
+        int previous = startY;
+        for (int i = 0; i < distance; i++) {
+            int x = startX + facing.getModX() * (i + 1);
+            int z = startZ + facing.getModZ() * (i + 1);
+            int y = previous;
+            if (grid.contains(x, z)) {
+                int index = grid.index(x, z);
+                if (grid.getSurface(index) != TerrainGrid.UNKNOWN) {
+                    int height = grid.getHeight(index);
+                    y = Math.max(previous - maxStep, Math.min(previous + maxStep, height));
+                }
+            }
+            ys[i] = y;
+            previous = y;
+        }
+        return ys;
+    }
+}
@@ -0,0 +1,232 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2024 HideTheMonkey
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.hidethemonkey.pathinator.helpers;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import org.bukkit.ChunkSnapshot;
+import org.bukkit.Material;
+import org.bukkit.Tag;
+import org.bukkit.World;
+
+import com.hidethemonkey.pathinator.Pathinator;
+
+/**
+ * Reads terrain from chunk snapshots without blocking the main thread.
+ *
+ * Chunks are requested with Paper's async chunk loading (never generating new
+ * ones), a few at a time. Each snapshot is reduced to what the caller needs (for
+ * example heights and surface classes) on a worker thread and then dropped, so
+ * only the compact result is ever kept.
+ */
+public class TerrainSampler {
+
+    // Chunk loads allowed in flight at once
+    private static final int MAX_IN_FLIGHT = 8;
+    // How far down to look through trees and plants for the ground
+    private static final int MAX_CANOPY = 40;
+
+    /**
+     * Sample every column in the rectangle. Columns in chunks that haven't been
+     * generated are left as UNKNOWN.
+     * 
+     * @param plugin
+     * @param world
+     * @param minX
+     * @param minZ
+     * @param maxX
+     * @param maxZ
+     * @return a future completed (off the main thread) once every chunk is sampled
+     */
+    public static CompletableFuture<TerrainGrid> sample(Pathinator plugin, World world, int minX, int minZ,
+            int maxX, int maxZ) {
+        TerrainGrid grid = new TerrainGrid(minX, minZ, maxX, maxZ);
+        int minHeight = world.getMinHeight();
+        return forEachSnapshot(plugin, world, minX, minZ, maxX, maxZ, snapshot -> extract(snapshot, grid, minHeight))
+                .thenApply(ignored -> grid);
+    }
+
+    /**
+     * Read the block light at each of the given blocks. Blocks in chunks that
+     * haven't been generated read as 0.
+     * 
+     * @param plugin
+     * @param world
+     * @param xs
+     * @param ys
+     * @param zs
+     * @return a future completed (off the main thread) with one level per block
+     */
+    public static CompletableFuture<byte[]> sampleBlockLight(Pathinator plugin, World world, int[] xs, int[] ys,
+            int[] zs) {
+        byte[] levels = new byte[xs.length];
+        if (xs.length == 0) {
+            return CompletableFuture.completedFuture(levels);
+        }
+        int minX = Integer.MAX_VALUE, minZ = Integer.MAX_VALUE, maxX = Integer.MIN_VALUE, maxZ = Integer.MIN_VALUE;
+        for (int i = 0; i < xs.length; i++) {
+            minX = Math.min(minX, xs[i]);
+            minZ = Math.min(minZ, zs[i]);
+            maxX = Math.max(maxX, xs[i]);
+            maxZ = Math.max(maxZ, zs[i]);
+        }
+        int minHeight = world.getMinHeight();
+        int maxHeight = world.getMaxHeight();
+        return forEachSnapshot(plugin, world, minX, minZ, maxX, maxZ, snapshot -> {
+            for (int i = 0; i < xs.length; i++) {
+                if (xs[i] >> 4 == snapshot.getX() && zs[i] >> 4 == snapshot.getZ() && ys[i] >= minHeight
+                        && ys[i] < maxHeight) {
+                    levels[i] = (byte) snapshot.getBlockEmittedLight(xs[i] & 15, ys[i], zs[i] & 15);
+                }
+            }
+        }).thenApply(ignored -> levels);
+    }
+
+    /**
+     * Take a snapshot of every chunk overlapping the rectangle and hand each one to
+     * the extractor on a worker thread. Chunks that haven't been generated are skipped.
+     * Extractors for different chunks may run at the same time.
+     * 
+     * @param plugin
+     * @param world
+     * @param minX
+     * @param minZ
+     * @param maxX
+     * @param maxZ
+     * @param extractor
+     * @return a future completed (off the main thread) once every chunk is done
+     */
+    public static CompletableFuture<Void> forEachSnapshot(Pathinator plugin, World world, int minX, int minZ,
+            int maxX, int maxZ, Consumer<ChunkSnapshot> extractor) {
+        CompletableFuture<Void> result = new CompletableFuture<>();
+
+        int minChunkX = minX >> 4;
+        int minChunkZ = minZ >> 4;
+        int chunksX = (maxX >> 4) - minChunkX + 1;
+        int chunkCount = chunksX * ((maxZ >> 4) - minChunkZ + 1);
+
+        AtomicInteger next = new AtomicInteger();
+        AtomicInteger remaining = new AtomicInteger(chunkCount);
+        Runnable done = () -> {
+            if (remaining.decrementAndGet() == 0) {
+                result.complete(null);
+            }
+        };
+
+        Runnable[] requestNext = new Runnable[1];
+        requestNext[0] = () -> {
+            int i = next.getAndIncrement();
+            if (i >= chunkCount || !plugin.isEnabled()) {
+                return;
+            }
+            int chunkX = minChunkX + i % chunksX;
+            int chunkZ = minChunkZ + i / chunksX;
+            // Paper completes this on the main thread, which is where snapshots have to be taken
+            world.getChunkAtAsync(chunkX, chunkZ, false).whenComplete((chunk, error) -> {
+                if (chunk != null && error == null) {
+                    ChunkSnapshot snapshot = chunk.getChunkSnapshot(true, false, false);
+                    plugin.getPlanningExecutor().execute(() -> {
+                        try {
+                            extractor.accept(snapshot);
+                        } catch (RuntimeException e) {
+                            result.completeExceptionally(e);
+                        }
+                        done.run();
+                    });
+                } else {
+                    done.run();
+                }
+                requestNext[0].run();
+            });
+        };
+
+        if (chunkCount <= 0) {
+            result.complete(null);
+            return result;
+        }
+        Runnable start = () -> {
+            for (int i = 0; i < MAX_IN_FLIGHT && i < chunkCount; i++) {
+                requestNext[0].run();
+            }
+        };
+        // chunk requests are started from the main thread, even when chained from a worker
+        if (plugin.getServer().isPrimaryThread()) {
+            start.run();
+        } else {
+            plugin.getServer().getScheduler().runTask(plugin, start);
+        }
+        return result;
+    }
+
+    /**
+     * Copy the ground height and surface type of every column in the grid
+     * 
+     * @param snapshot
+     * @param grid
+     * @param minHeight
+     */
+    private static void extract(ChunkSnapshot snapshot, TerrainGrid grid, int minHeight) {
+        int baseX = snapshot.getX() << 4;
+        int baseZ = snapshot.getZ() << 4;
+        for (int localX = 0; localX < 16; localX++) {
+            for (int localZ = 0; localZ < 16; localZ++) {
+                int x = baseX + localX;
+                int z = baseZ + localZ;
+                if (!grid.contains(x, z)) {
+                    continue;
+                }
+                int y = snapshot.getHighestBlockYAt(localX, localZ);
+                int floor = Math.max(minHeight, y - MAX_CANOPY);
+                Material type = snapshot.getBlockType(localX, y, localZ);
+                while (y > floor && isAboveGround(type)) {
+                    y--;
+                    type = snapshot.getBlockType(localX, y, localZ);
+                }
+                byte surface = TerrainGrid.LAND;
+                if (type == Material.WATER) {
+                    surface = TerrainGrid.WATER;
+                } else if (type == Material.LAVA) {
+                    surface = TerrainGrid.LAVA;
+                }
+                grid.set(x, z, y, surface);
+            }
+        }
+    }
+
+    /**
+     * Things that sit on top of the ground and shouldn't count as terrain
+     * 
+     * @param type
+     * @return
+     */
+    private static boolean isAboveGround(Material type) {
+        if (type == Material.WATER || type == Material.LAVA) {
+            return false;
+        }
+        return type.isAir() || !type.isSolid() || Tag.LEAVES.isTagged(type) || Tag.LOGS.isTagged(type);
+    }
+}
@@ -24,36 +24,159 @@
 
 package com.hidethemonkey.pathinator.helpers;
 
+import java.io.File;
 import java.io.IOException;
 import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
 
+import org.json.JSONException;
 import org.json.JSONObject;
 
+/**
+ * Looks up the latest release without ever blocking the caller.
+ *
+ * The result is cached in a small file in the data folder, so a restart or reload
+ * within the TTL doesn't make another request at all. If a request fails, the last
+ * cached result (even if stale) is used instead, and the failure is cached as well
+ * so a host that can't reach the endpoint doesn't retry on every start.
+ */
 public class VersionChecker {
 
-    public static VersionData getLatestReleaseVersion() {
-        HttpClient client = HttpClient.newHttpClient();
-        HttpRequest request = HttpRequest.newBuilder()
-                .uri(URI.create("https://api.github.com/repos/hidethemonkey/pathinator/releases/latest"))
-                .build();
+    public static final String DEFAULT_ENDPOINT = "https://api.github.com/repos/hidethemonkey/pathinator/releases/latest";
+    private static final String CACHE_FILE = "version_cache.json";
+    private static final Duration CONNECT_TIMEOUT = Duration.ofSeconds(5);
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(10);
+    // a failed check is retried sooner than the TTL, but not on every start
+    private static final Duration RETRY_AFTER = Duration.ofHours(1);
 
-        HttpResponse<String> response;
-        VersionData version = null;
-        try {
-            response = client.send(request, HttpResponse.BodyHandlers.ofString());
+    // One client for the lifetime of the plugin, building a client spins up its own selector thread
+    private static final HttpClient CLIENT = HttpClient.newBuilder()
+            .connectTimeout(CONNECT_TIMEOUT)
+            .followRedirects(HttpClient.Redirect.NORMAL)
+            .build();
+
+    private final File cacheFile;
+    private final String endpoint;
+    private final Duration ttl;
+
+    /**
+     * @param dataFolder where the cached result is kept
+     * @param endpoint   URL returning a GitHub style "latest release" JSON document
+     * @param ttl        how long a cached result is trusted
+     */
+    public VersionChecker(File dataFolder, String endpoint, Duration ttl) {
+        this.cacheFile = new File(dataFolder, CACHE_FILE);
+        this.endpoint = endpoint == null || endpoint.isBlank() ? DEFAULT_ENDPOINT : endpoint;
+        this.ttl = ttl;
+    }
+
+    /**
+     * Get the latest release, from the cache if it is fresh enough, otherwise from the
+     * endpoint. The returned future never completes exceptionally; it completes with
+     * null if no version information is available.
+     *
+     * @return
+     */
+    public CompletableFuture<VersionData> getLatestReleaseVersion() {
+        // even reading the cache file stays off the calling (main) thread
+        return CompletableFuture.supplyAsync(this::readCache).thenCompose(this::refresh);
+    }
 
-            if (response != null && response.statusCode() == 200) {
-                JSONObject obj = new JSONObject(response.body());
-                version = new VersionData(obj.getString("tag_name"),
-                        obj.getJSONArray("assets").getJSONObject(0).getString("browser_download_url"),
-                        obj.getString("published_at"));
-            }
-        } catch (IOException | InterruptedException e) {
-            // do nothing
+    private CompletableFuture<VersionData> refresh(JSONObject cached) {
+        if (cached != null && isFresh(cached)) {
+            return CompletableFuture.completedFuture(fromJson(cached));
         }
+
+        HttpRequest request;
+        try {
+            request = HttpRequest.newBuilder()
+                    .uri(URI.create(endpoint))
+                    .timeout(REQUEST_TIMEOUT)
+                    .header("Accept", "application/json")
+                    .build();
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.completedFuture(failed(cached));
+        }
+
+        return CLIENT.sendAsync(request, HttpResponse.BodyHandlers.ofString())
+                .thenApply(response -> {
+                    if (response.statusCode() != 200) {
+                        return null;
+                    }
+                    JSONObject obj = new JSONObject(response.body());
+                    VersionData version = new VersionData(obj.getString("tag_name"),
+                            obj.getJSONArray("assets").getJSONObject(0).getString("browser_download_url"),
+                            obj.getString("published_at"));
+                    return version;
+                })
+                .exceptionally(e -> null)
+                .thenApply(version -> {
+                    if (version == null) {
+                        return failed(cached);
+                    }
+                    writeCache(version, false);
+                    return version;
+                });
+    }
+
+    private boolean isFresh(JSONObject cached) {
+        Duration limit = cached.optBoolean("failed") && RETRY_AFTER.compareTo(ttl) < 0 ? RETRY_AFTER : ttl;
+        return System.currentTimeMillis() - cached.optLong("checkedAt") < limit.toMillis();
+    }
+
+    /**
+     * Record a failed check, keeping whatever version was cached before
+     * 
+     * @param cached
+     * @return the cached version, or null
+     */
+    private VersionData failed(JSONObject cached) {
+        VersionData version = cached != null ? fromJson(cached) : null;
+        writeCache(version, true);
         return version;
     }
+
+    private JSONObject readCache() {
+        if (!cacheFile.exists()) {
+            return null;
+        }
+        try {
+            return new JSONObject(Files.readString(cacheFile.toPath(), StandardCharsets.UTF_8));
+        } catch (IOException | JSONException e) {
+            return null;
+        }
+    }
+
+    private void writeCache(VersionData version, boolean failed) {
+        JSONObject obj = new JSONObject();
+        obj.put("checkedAt", System.currentTimeMillis());
+        if (failed) {
+            obj.put("failed", true);
+        }
+        if (version != null) {
+            obj.put("version", version.getVersion());
+            obj.put("downloadUrl", version.getDownloadUrl());
+            obj.put("publishDate", version.getPublishDate());
+        }
+        try {
+            cacheFile.getParentFile().mkdirs();
+            Files.writeString(cacheFile.toPath(), obj.toString(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            // not worth failing over, we'll just ask again next time
+        }
+    }
+
+    private static VersionData fromJson(JSONObject obj) {
+        String version = obj.optString("version", null);
+        if (version == null) {
+            return null;
+        }
+        return new VersionData(version, obj.optString("downloadUrl"), obj.optString("publishDate"));
+    }
 }
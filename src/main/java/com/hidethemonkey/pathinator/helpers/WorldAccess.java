@@ -0,0 +1,71 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2024 HideTheMonkey
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.hidethemonkey.pathinator.helpers;
+
+import org.bukkit.Material;
+
+/**
+ * The blocks a build job reads and writes, so the build engine can run against
+ * a real world (BukkitWorldAccess) or an in-memory one (SparseWorld) for
+ * benchmarks and tests without a server.
+ */
+public interface WorldAccess {
+
+    /**
+     * @param x
+     * @param y
+     * @param z
+     * @return the block's material, VOID_AIR outside of the world's height
+     */
+    Material getType(int x, int y, int z);
+
+    /**
+     * Replace a block. Ignored outside of the world's height.
+     * 
+     * @param x
+     * @param y
+     * @param z
+     * @param material
+     */
+    void setType(int x, int y, int z, Material material);
+
+    /**
+     * @param x
+     * @param y
+     * @param z
+     * @return true if the block is solid, as follow mode paints only solid ground
+     */
+    boolean isSolid(int x, int y, int z);
+
+    /**
+     * @return the lowest y, inclusive
+     */
+    int getMinHeight();
+
+    /**
+     * @return the highest y, exclusive
+     */
+    int getMaxHeight();
+}
@@ -0,0 +1,72 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2024 HideTheMonkey
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.hidethemonkey.pathinator.jobs;
+
+/**
+ * AIMD controller for the BuildScheduler's block budget.
+ *
+ * While the server's average tick time is under the target, the budget grows by
+ * a fixed amount every adjustment; once it goes over, the budget is halved. When
+ * the server can't keep up with 20 TPS at all the budget drops straight to the
+ * minimum. This way builds soak up spare tick time without being the thing that
+ * pushes the server behind.
+ */
+public class BudgetController {
+
+    // a tick longer than this means the server is running below 20 TPS
+    private static final double FULL_TICK_MS = 50.0;
+
+    private int budget;
+
+    public BudgetController(int initial) {
+        this.budget = initial;
+    }
+
+    /**
+     * Adjust the budget to the server's recent tick time
+     * 
+     * @param mspt     average milliseconds per tick
+     * @param target   tick time to aim for
+     * @param increase amount to grow by while under the target
+     * @param min
+     * @param max
+     * @return the new budget
+     */
+    public int adjust(double mspt, double target, int increase, int min, int max) {
+        if (mspt >= FULL_TICK_MS) {
+            budget = min;
+        } else if (mspt > target) {
+            budget = budget / 2;
+        } else {
+            budget = budget + increase;
+        }
+        budget = Math.max(min, Math.min(max, budget));
+        return budget;
+    }
+
+    public int getBudget() {
+        return budget;
+    }
+}
@@ -0,0 +1,176 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2024 HideTheMonkey
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.hidethemonkey.pathinator.jobs;
+
+import java.util.ArrayDeque;
+import java.util.UUID;
+
+import org.bukkit.World;
+import org.bukkit.block.BlockFace;
+
+import com.hidethemonkey.pathinator.helpers.PlayerHelper;
+import com.hidethemonkey.pathinator.helpers.SurvivalLedger;
+
+/**
+ * A unit of work for the BuildScheduler: a cursor over the cells of a build that
+ * applies one cell at a time. Jobs produce their cells lazily, so a job costs the
+ * same amount of memory no matter how big the build is.
+ *
+ * Jobs are only ever touched on the main thread.
+ */
+public abstract class BuildJob {
+
+    private final UUID id = UUID.randomUUID();
+    protected final PlayerHelper playerHelper;
+    protected final SurvivalLedger ledger;
+    private boolean cancelled;
+    private boolean done;
+    // set by the scheduler when the job is queued
+    ChunkWindow chunks;
+    SectionOwners owners;
+    boolean waiting;
+    long submittedAt;
+    // sections claimed in SectionOwners, oldest first
+    final ArrayDeque<Long> heldSections = new ArrayDeque<>();
+    long lastSection = SectionOwners.NONE;
+    // while set, SectionOwners doesn't release the oldest sections to make room
+    boolean pinSections;
+
+    protected BuildJob(PlayerHelper playerHelper, SurvivalLedger ledger) {
+        this.playerHelper = playerHelper;
+        this.ledger = ledger;
+    }
+
+    /**
+     * Apply the next cell
+     * 
+     * @return false once there is nothing left to apply
+     */
+    protected abstract boolean applyNext();
+
+    /**
+     * Make sure the next cell can be applied: its chunk has to be loaded and no other
+     * job may be working in its chunk section. If not, the job waits (applyNext should
+     * return true without moving on) while the chunk loads in the background or the
+     * other job moves on.
+     * 
+     * @param world
+     * @param x
+     * @param y
+     * @param z
+     * @param facing    direction of travel, chunks ahead in this direction are loaded too
+     * @param remaining number of blocks left to go in that direction
+     * @return true if the cell can be applied now
+     */
+    protected boolean awaitCell(World world, int x, int y, int z, BlockFace facing, int remaining) {
+        if ((chunks == null || chunks.ready(world, x, z, facing, remaining))
+                && (owners == null || owners.claim(this, x, y, z))) {
+            return true;
+        }
+        waiting = true;
+        return false;
+    }
+
+    /**
+     * Total number of cells in the job
+     * 
+     * @return
+     */
+    public abstract long getTotal();
+
+    /**
+     * Number of cells applied (or skipped) so far
+     * 
+     * @return
+     */
+    public abstract long getApplied();
+
+    /**
+     * Apply every remaining cell right away, without the BuildScheduler. Only for
+     * jobs working on a SparseWorld (benchmarks and tests); jobs on a live world
+     * must be submitted to the scheduler.
+     * 
+     * @return the number of cells applied
+     */
+    public long applyAll() {
+        long before = getApplied();
+        while (!cancelled && applyNext()) {
+            // nothing to wait for, the world is all in memory
+        }
+        ledger.flush();
+        if (!cancelled) {
+            markDone();
+            onComplete();
+        }
+        return getApplied() - before;
+    }
+
+    /**
+     * Called on the main thread once the last cell has been applied
+     */
+    protected void onComplete() {
+    }
+
+    /**
+     * Called on the main thread when the job is dropped before it was finished
+     */
+    protected void onCancelled() {
+    }
+
+    public UUID getId() {
+        return id;
+    }
+
+    /**
+     * @return the player who started the job, null for headless jobs
+     */
+    public UUID getPlayerId() {
+        return playerHelper != null ? playerHelper.getPlayer().getUniqueId() : null;
+    }
+
+    public PlayerHelper getPlayerHelper() {
+        return playerHelper;
+    }
+
+    public SurvivalLedger getLedger() {
+        return ledger;
+    }
+
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    public boolean isDone() {
+        return done;
+    }
+
+    void markDone() {
+        done = true;
+    }
+}
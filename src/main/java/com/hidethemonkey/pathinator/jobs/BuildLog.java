@@ -0,0 +1,260 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2024 HideTheMonkey
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.hidethemonkey.pathinator.jobs;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only binary log of path jobs.
+ *
+ * Every record is framed as [type][length][payload][crc32] so a torn write at the
+ * end of the file (crash mid-record) is detected and ignored on replay. Writes are
+ * buffered; {@link #checkpoint()} flushes and fsyncs. The log is compacted on open
+ * so it only ever holds the jobs that were unfinished at the last shutdown plus
+ * whatever has happened since.
+ *
+ * This class is not thread safe, JobManager funnels all calls through one thread.
+ */
+public class BuildLog {
+
+    private static final byte START = 1;
+    private static final byte PROGRESS = 2;
+    private static final byte END = 3;
+
+    private final File file;
+    private final Logger logger;
+    private FileOutputStream fileOut;
+    private DataOutputStream out;
+
+    public BuildLog(File file, Logger logger) {
+        this.file = file;
+        this.logger = logger;
+    }
+
+    /**
+     * Replay the existing log, compact it down to the unfinished jobs and open it for
+     * appending.
+     *
+     * @return jobs that were not finished, with their last checkpointed cursor
+     * @throws IOException
+     */
+    public Collection<PathJob> open() throws IOException {
+        Map<UUID, PathJob> jobs = replay();
+
+        // Compact: rewrite just the unfinished jobs, then atomically swap files
+        File tmp = new File(file.getPath() + ".tmp");
+        try (FileOutputStream tmpOut = new FileOutputStream(tmp);
+                DataOutputStream data = new DataOutputStream(new BufferedOutputStream(tmpOut))) {
+            for (PathJob job : jobs.values()) {
+                writeRecord(data, START, payload(job));
+            }
+            data.flush();
+            tmpOut.getChannel().force(true);
+        }
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+
+        fileOut = new FileOutputStream(file, true);
+        out = new DataOutputStream(new BufferedOutputStream(fileOut, 8192));
+        return jobs.values();
+    }
+
+    /**
+     * Read every intact record in order, stopping at the first damaged one. A record
+     * that is intact but can't be decoded (say a material removed by a server
+     * update) only loses its own job.
+     *
+     * @return
+     */
+    private Map<UUID, PathJob> replay() {
+        Map<UUID, PathJob> jobs = new LinkedHashMap<>();
+        if (!file.exists()) {
+            return jobs;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            while (true) {
+                byte type = in.readByte();
+                int length = in.readInt();
+                if (length < 0 || length > 1 << 20) {
+                    throw new IOException("Bad record length " + length);
+                }
+                byte[] payload = new byte[length];
+                in.readFully(payload);
+                long crc = in.readInt() & 0xFFFFFFFFL;
+                if (crc != checksum(type, payload)) {
+                    throw new IOException("Checksum mismatch");
+                }
+
+                try {
+                    apply(type, new DataInputStream(new ByteArrayInputStream(payload)), jobs);
+                } catch (IOException | RuntimeException e) {
+                    // Every record starts with its job's id
+                    UUID id = jobId(payload);
+                    if (id != null) {
+                        jobs.remove(id);
+                    }
+                    logger.warning("Skipping build log record for job " + id + ": " + e.getMessage());
+                }
+            }
+        } catch (EOFException e) {
+            // Normal end of log (or a record cut off by a crash)
+        } catch (IOException e) {
+            logger.warning("Build log is damaged after " + jobs.size() + " job(s), ignoring the rest: "
+                    + e.getMessage());
+        }
+        jobs.values().removeIf(PathJob::isComplete);
+        return jobs;
+    }
+
+    private static void apply(byte type, DataInputStream record, Map<UUID, PathJob> jobs) throws IOException {
+        switch (type) {
+            case START:
+                PathJob job = PathJob.read(record);
+                jobs.put(job.getId(), job);
+                break;
+            case PROGRESS:
+                PathJob progressed = jobs.get(new UUID(record.readLong(), record.readLong()));
+                if (progressed != null) {
+                    progressed.setCursor(record.readInt());
+                }
+                break;
+            case END:
+                jobs.remove(new UUID(record.readLong(), record.readLong()));
+                break;
+            default:
+                throw new IOException("Unknown record type " + type);
+        }
+    }
+
+    private static UUID jobId(byte[] payload) {
+        if (payload.length < 16) {
+            return null;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(payload);
+        return new UUID(buffer.getLong(), buffer.getLong());
+    }
+
+    /**
+     * Record a new job.
+     *
+     * @param job
+     * @throws IOException
+     */
+    public void start(PathJob job) throws IOException {
+        writeRecord(out, START, payload(job));
+    }
+
+    /**
+     * Record a job's progress cursor.
+     *
+     * @param id
+     * @param cursor
+     * @throws IOException
+     */
+    public void progress(UUID id, int cursor) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(20);
+        DataOutputStream data = new DataOutputStream(bytes);
+        data.writeLong(id.getMostSignificantBits());
+        data.writeLong(id.getLeastSignificantBits());
+        data.writeInt(cursor);
+        writeRecord(out, PROGRESS, bytes.toByteArray());
+    }
+
+    /**
+     * Record that a job has finished.
+     *
+     * @param id
+     * @throws IOException
+     */
+    public void end(UUID id) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(16);
+        DataOutputStream data = new DataOutputStream(bytes);
+        data.writeLong(id.getMostSignificantBits());
+        data.writeLong(id.getLeastSignificantBits());
+        writeRecord(out, END, bytes.toByteArray());
+    }
+
+    /**
+     * Flush buffered records and force them to disk.
+     *
+     * @throws IOException
+     */
+    public void checkpoint() throws IOException {
+        out.flush();
+        fileOut.getChannel().force(false);
+    }
+
+    /**
+     * Checkpoint and close the log.
+     *
+     * @throws IOException
+     */
+    public void close() throws IOException {
+        if (out != null) {
+            checkpoint();
+            out.close();
+            out = null;
+        }
+    }
+
+    private static byte[] payload(PathJob job) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        job.write(new DataOutputStream(bytes));
+        return bytes.toByteArray();
+    }
+
+    private static void writeRecord(DataOutputStream data, byte type, byte[] payload) throws IOException {
+        data.writeByte(type);
+        data.writeInt(payload.length);
+        data.write(payload);
+        data.writeInt((int) checksum(type, payload));
+    }
+
+    private static long checksum(byte type, byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(type);
+        crc.update(payload);
+        return crc.getValue();
+    }
+}
@@ -0,0 +1,338 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2024 HideTheMonkey
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.hidethemonkey.pathinator.jobs;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.UUID;
+
+import org.bukkit.scheduler.BukkitTask;
+
+import com.hidethemonkey.pathinator.Pathinator;
+import com.hidethemonkey.pathinator.PathinatorConfig;
+import com.hidethemonkey.pathinator.helpers.FlightEvents;
+import com.hidethemonkey.pathinator.helpers.OpsMetrics;
+
+/**
+ * Applies queued BuildJobs with a fixed block budget per tick, instead of one
+ * scheduled task per segment.
+ *
+ * The budget is shared between the running jobs round-robin, so one big job
+ * can't starve the others. Each job's SurvivalLedger is flushed once at the end
+ * of its share, so inventory changes happen once per batch rather than per block.
+ * With scheduler.adaptive on, the budget follows the server's tick time (see
+ * BudgetController), with scheduler.blocksPerTick as the ceiling.
+ *
+ * Every job gets a ChunkWindow, so a job waits for a chunk to load in the
+ * background rather than loading it on the main thread, and claims the chunk
+ * sections it works in from SectionOwners, so jobs that overlap take turns
+ * instead of both changing the same blocks.
+ */
+public class BuildScheduler {
+
+    private final Pathinator plugin;
+    private final List<BuildJob> jobs = new ArrayList<>();
+    private final SectionOwners owners = new SectionOwners();
+    private final BuildStats stats = new BuildStats();
+    private BukkitTask task;
+    // index of the job that goes first next tick
+    private int next = 0;
+    // how often the adaptive budget is adjusted, and the ticks each adjustment looks at
+    private static final int ADJUST_TICKS = 20;
+    private BudgetController controller;
+    private int ticks = 0;
+    // budget of the last tick that had work, 0 while idle
+    private int lastBudget = 0;
+
+    public BuildScheduler(Pathinator plugin) {
+        this.plugin = plugin;
+    }
+
+    public void start() {
+        if (task == null) {
+            task = plugin.getServer().getScheduler().runTaskTimer(plugin, this::tick, 1L, 1L);
+        }
+    }
+
+    /**
+     * Stop applying and drop every queued job. Anything already tallied is settled.
+     */
+    public void stop() {
+        if (task != null) {
+            task.cancel();
+            task = null;
+        }
+        for (BuildJob job : jobs) {
+            job.getLedger().flush();
+            job.chunks.releaseAll();
+            owners.releaseAll(job);
+        }
+        jobs.clear();
+    }
+
+    /**
+     * Queue a job, it starts on the next tick
+     * 
+     * @param job
+     */
+    public void submit(BuildJob job) {
+        job.chunks = new ChunkWindow(plugin, plugin.getPConfig().getReadAhead());
+        job.owners = owners;
+        job.submittedAt = System.nanoTime();
+        jobs.add(job);
+        OpsMetrics.JOBS_SUBMITTED.increment();
+        FlightEvents.jobSubmit(job.getClass().getSimpleName(), job.getPlayerHelper().getPlayer().getName(),
+                job.getTotal());
+    }
+
+    /**
+     * Cancel every job owned by a player
+     * 
+     * @param playerId
+     * @return the number of jobs cancelled
+     */
+    public int cancel(UUID playerId) {
+        int count = 0;
+        for (BuildJob job : jobs) {
+            if (!job.isCancelled() && playerId.equals(job.getPlayerId())) {
+                job.cancel();
+                count++;
+            }
+        }
+        return count;
+    }
+
+    public int getActiveCount() {
+        return jobs.size();
+    }
+
+    public BuildStats getStats() {
+        return stats;
+    }
+
+    /**
+     * Number of blocks the scheduler changed per tick lately, 0 while idle
+     * 
+     * @return
+     */
+    public int getCurrentBudget() {
+        return lastBudget;
+    }
+
+    /**
+     * Number of blocks all queued jobs have left to place
+     * 
+     * @return
+     */
+    public long getQueuedCells() {
+        long cells = 0;
+        for (BuildJob job : jobs) {
+            if (!job.isDone() && !job.isCancelled()) {
+                cells += job.getTotal() - job.getApplied();
+            }
+        }
+        return cells;
+    }
+
+    /**
+     * Number of unfinished jobs owned by a player
+     * 
+     * @param playerId
+     * @return
+     */
+    public int getActiveCount(UUID playerId) {
+        int count = 0;
+        for (BuildJob job : jobs) {
+            if (isRunning(job, playerId)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Number of blocks a player's jobs have left to place
+     * 
+     * @param playerId
+     * @return
+     */
+    public long getQueuedCells(UUID playerId) {
+        long cells = 0;
+        for (BuildJob job : jobs) {
+            if (isRunning(job, playerId)) {
+                cells += job.getTotal() - job.getApplied();
+            }
+        }
+        return cells;
+    }
+
+    /**
+     * Number of blocks left in the player's job that is closest to finishing
+     * 
+     * @param playerId
+     * @return
+     */
+    public long getSmallestRemaining(UUID playerId) {
+        long smallest = 0;
+        for (BuildJob job : jobs) {
+            if (isRunning(job, playerId)) {
+                long remaining = job.getTotal() - job.getApplied();
+                smallest = smallest == 0 ? remaining : Math.min(smallest, remaining);
+            }
+        }
+        return smallest;
+    }
+
+    /**
+     * Rough number of seconds it takes one job to place a number of blocks, at the
+     * current budget and with the budget split between the jobs running now
+     * 
+     * @param cells
+     * @return
+     */
+    public double estimateSeconds(long cells) {
+        int budget = controller != null ? controller.getBudget() : plugin.getPConfig().getBlocksPerTick();
+        double perTick = Math.max(1.0, (double) budget / Math.max(1, jobs.size()));
+        return cells / perTick / 20.0;
+    }
+
+    private static boolean isRunning(BuildJob job, UUID playerId) {
+        return !job.isDone() && !job.isCancelled() && playerId.equals(job.getPlayerId());
+    }
+
+    /**
+     * The number of blocks that may be changed this tick. Only adjusted while there
+     * is work to do, and the controller starts over once the scheduler goes idle.
+     * 
+     * @return
+     */
+    private int getBudget() {
+        PathinatorConfig config = plugin.getPConfig();
+        if (!config.getAdaptiveBudget()) {
+            controller = null;
+            return config.getBlocksPerTick();
+        }
+        int min = Math.min(config.getMinBlocksPerTick(), config.getBlocksPerTick());
+        if (controller == null) {
+            controller = new BudgetController(min);
+            ticks = 0;
+        }
+        if (++ticks >= ADJUST_TICKS) {
+            ticks = 0;
+            controller.adjust(getRecentMspt(), config.getTargetMspt(),
+                    config.getBudgetIncrease(), min, config.getBlocksPerTick());
+        }
+        return controller.getBudget();
+    }
+
+    /**
+     * Mean tick time over the last ADJUST_TICKS ticks. Paper's average tick time
+     * covers 100 ticks, so one slow tick would count in five adjustments in a row
+     * and halve the budget each time.
+     * 
+     * @return milliseconds per tick
+     */
+    private double getRecentMspt() {
+        long[] times = plugin.getServer().getTickTimes();
+        int window = Math.min(ADJUST_TICKS, times.length);
+        if (window == 0) {
+            return plugin.getServer().getAverageTickTime();
+        }
+        // the tick times are a ring indexed by tick number, the current tick isn't in it yet
+        int last = plugin.getServer().getCurrentTick() - 1;
+        long total = 0;
+        for (int i = 0; i < window; i++) {
+            total += times[Math.floorMod(last - i, times.length)];
+        }
+        return total / (double) window / 1_000_000.0;
+    }
+
+    private void tick() {
+        if (jobs.isEmpty()) {
+            controller = null;
+            lastBudget = 0;
+            return;
+        }
+        stats.begin();
+        int budget = getBudget();
+        lastBudget = budget;
+        int remaining = budget;
+        int count = jobs.size();
+        next = next % count;
+        for (int i = 0; i < count && remaining > 0; i++) {
+            BuildJob job = jobs.get((next + i) % count);
+            if (job.isCancelled()) {
+                continue;
+            }
+            if (!job.getPlayerHelper().getPlayer().isOnline()) {
+                job.cancel();
+                continue;
+            }
+            // split what's left evenly, unused budget rolls over to the next job
+            int share = Math.max(1, remaining / (count - i));
+            int used = 0;
+            boolean finished = false;
+            FlightEvents.BatchApplied batch = FlightEvents.beginBatch();
+            while (used < share) {
+                job.waiting = false;
+                if (!job.applyNext()) {
+                    finished = true;
+                    break;
+                }
+                if (job.waiting) {
+                    // the next chunk is still loading, try again next tick
+                    break;
+                }
+                used++;
+            }
+            job.getLedger().flush();
+            FlightEvents.endBatch(batch, job.getClass().getSimpleName(), used, job.chunks.getHeldCount());
+            remaining -= used;
+            if (finished) {
+                job.markDone();
+                OpsMetrics.JOB_SECONDS.observe((System.nanoTime() - job.submittedAt) / 1e9);
+                job.onComplete();
+            }
+        }
+        next++;
+        stats.end(budget - remaining);
+        OpsMetrics.TICK_BLOCKS.observe(budget - remaining);
+
+        Iterator<BuildJob> iterator = jobs.iterator();
+        while (iterator.hasNext()) {
+            BuildJob job = iterator.next();
+            if (job.isDone() || job.isCancelled()) {
+                iterator.remove();
+                job.chunks.releaseAll();
+                owners.releaseAll(job);
+                if (!job.isDone()) {
+                    OpsMetrics.JOBS_CANCELLED.increment();
+                    job.onCancelled();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2024 HideTheMonkey
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.hidethemonkey.pathinator.jobs;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * Throughput and allocation figures for the BuildScheduler, measured in place on
+ * the running server: blocks per tick, time per block and bytes allocated per
+ * block. Only ticks where there was work to do are counted.
+ *
+ * Allocations are read from the JVM's per-thread allocation counter where the
+ * JVM has one (HotSpot and OpenJ9 do); otherwise they read as -1.
+ *
+ * Only used on the main thread.
+ */
+public class BuildStats {
+
+    private final com.sun.management.ThreadMXBean threads;
+
+    private long busyTicks = 0;
+    private long blocks = 0;
+    private long nanos = 0;
+    private long bytes = 0;
+    private long peakBlocksPerTick = 0;
+
+    // start of the tick being measured
+    private long startNanos;
+    private long startBytes;
+
+    public BuildStats() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean sunBean && sunBean.isThreadAllocatedMemorySupported()) {
+            sunBean.setThreadAllocatedMemoryEnabled(true);
+            this.threads = sunBean;
+        } else {
+            this.threads = null;
+        }
+    }
+
+    /**
+     * Start measuring a tick
+     */
+    public void begin() {
+        startNanos = System.nanoTime();
+        startBytes = threads != null ? threads.getCurrentThreadAllocatedBytes() : 0;
+    }
+
+    /**
+     * Finish measuring a tick
+     * 
+     * @param applied number of blocks applied during the tick
+     */
+    public void end(int applied) {
+        nanos += System.nanoTime() - startNanos;
+        if (threads != null) {
+            bytes += threads.getCurrentThreadAllocatedBytes() - startBytes;
+        }
+        busyTicks++;
+        blocks += applied;
+        peakBlocksPerTick = Math.max(peakBlocksPerTick, applied);
+    }
+
+    public void reset() {
+        busyTicks = 0;
+        blocks = 0;
+        nanos = 0;
+        bytes = 0;
+        peakBlocksPerTick = 0;
+    }
+
+    public long getBusyTicks() {
+        return busyTicks;
+    }
+
+    public long getBlocks() {
+        return blocks;
+    }
+
+    public long getPeakBlocksPerTick() {
+        return peakBlocksPerTick;
+    }
+
+    public double getBlocksPerTick() {
+        return busyTicks > 0 ? (double) blocks / busyTicks : 0;
+    }
+
+    public double getNanosPerBlock() {
+        return blocks > 0 ? (double) nanos / blocks : 0;
+    }
+
+    /**
+     * @return average bytes allocated per block, or -1 if the JVM can't tell
+     */
+    public double getBytesPerBlock() {
+        if (threads == null) {
+            return -1;
+        }
+        return blocks > 0 ? (double) bytes / blocks : 0;
+    }
+}
@@ -0,0 +1,180 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2024 HideTheMonkey
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.hidethemonkey.pathinator.jobs;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+
+import org.bukkit.World;
+import org.bukkit.block.BlockFace;
+import org.bukkit.plugin.Plugin;
+
+/**
+ * The chunks a BuildJob is working in and the ones just ahead of it.
+ *
+ * Chunks ahead of the cursor are loaded (or generated) with Paper's async chunk
+ * loading and held with a plugin chunk ticket once they arrive, so they stay
+ * loaded while the job works in them. Tickets are released once the cursor has
+ * moved past a chunk. A job that reaches a chunk that isn't held yet waits for
+ * it instead of loading it on the main thread.
+ *
+ * Only used on the main thread (Paper completes async chunk loads there).
+ */
+public class ChunkWindow {
+
+    private final Plugin plugin;
+    private final int readAhead;
+    private final Set<Long> held = new HashSet<>();
+    private final Set<Long> loading = new HashSet<>();
+    private World world;
+    private long lastKey = Long.MIN_VALUE;
+    private boolean closed = false;
+
+    /**
+     * @param plugin
+     * @param readAhead number of blocks ahead of the cursor to load
+     */
+    public ChunkWindow(Plugin plugin, int readAhead) {
+        this.plugin = plugin;
+        this.readAhead = Math.max(0, readAhead);
+    }
+
+    private static long key(int chunkX, int chunkZ) {
+        return ((long) chunkX << 32) | (chunkZ & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Check that the chunk holding a block is ready to be worked in, and read ahead
+     * along the direction of travel.
+     * 
+     * @param world
+     * @param x
+     * @param z
+     * @param facing    direction of travel
+     * @param remaining number of blocks left to go in that direction
+     * @return true if the chunk is loaded and held
+     */
+    public boolean ready(World world, int x, int z, BlockFace facing, int remaining) {
+        if (closed) {
+            return false;
+        }
+        if (this.world != world) {
+            releaseAll();
+            loading.clear();
+            closed = false;
+            this.world = world;
+        }
+        int chunkX = x >> 4;
+        int chunkZ = z >> 4;
+        long key = key(chunkX, chunkZ);
+        if (key == lastKey) {
+            return true;
+        }
+
+        int ahead = Math.min(readAhead, Math.max(0, remaining));
+        for (int distance = 0;; distance += 16) {
+            int step = Math.min(distance, ahead);
+            request((x + facing.getModX() * step) >> 4, (z + facing.getModZ() * step) >> 4);
+            if (step == ahead) {
+                break;
+            }
+        }
+        if (!held.contains(key)) {
+            return false;
+        }
+        lastKey = key;
+        releaseBehind(x, z, facing);
+        return true;
+    }
+
+    private void request(int chunkX, int chunkZ) {
+        long key = key(chunkX, chunkZ);
+        if (held.contains(key) || loading.contains(key)) {
+            return;
+        }
+        if (world.isChunkLoaded(chunkX, chunkZ)) {
+            world.addPluginChunkTicket(chunkX, chunkZ, plugin);
+            held.add(key);
+            return;
+        }
+        loading.add(key);
+        World target = world;
+        target.getChunkAtAsync(chunkX, chunkZ).whenComplete((chunk, error) -> {
+            loading.remove(key);
+            if (error != null) {
+                plugin.getLogger().warning("Unable to load chunk " + chunkX + ", " + chunkZ + ": "
+                        + error.getMessage());
+                return;
+            }
+            if (!closed && target == world && plugin.isEnabled()) {
+                chunk.addPluginChunkTicket(plugin);
+                held.add(key);
+            }
+        });
+    }
+
+    /**
+     * Release every chunk that is more than a chunk behind the cursor
+     * 
+     * @param x
+     * @param z
+     * @param facing
+     */
+    private void releaseBehind(int x, int z, BlockFace facing) {
+        if (facing.getModX() == 0 && facing.getModZ() == 0) {
+            return;
+        }
+        Iterator<Long> iterator = held.iterator();
+        while (iterator.hasNext()) {
+            long key = iterator.next();
+            int chunkX = (int) (key >> 32);
+            int chunkZ = (int) key;
+            int along = ((chunkX << 4) + 8 - x) * facing.getModX() + ((chunkZ << 4) + 8 - z) * facing.getModZ();
+            if (along < -16) {
+                world.removePluginChunkTicket(chunkX, chunkZ, plugin);
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * Release every ticket. Chunks that are still loading are not held when they arrive.
+     */
+    public void releaseAll() {
+        closed = true;
+        if (world != null) {
+            for (long key : held) {
+                world.removePluginChunkTicket((int) (key >> 32), (int) key, plugin);
+            }
+        }
+        held.clear();
+        lastKey = Long.MIN_VALUE;
+    }
+
+    public int getHeldCount() {
+        return held.size();
+    }
+}
@@ -0,0 +1,179 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2024 HideTheMonkey
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.hidethemonkey.pathinator.jobs;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.block.BlockFace;
+
+import com.hidethemonkey.pathinator.helpers.BlockHelper;
+import com.hidethemonkey.pathinator.helpers.BukkitWorldAccess;
+import com.hidethemonkey.pathinator.helpers.CrossSection;
+import com.hidethemonkey.pathinator.helpers.PlayerHelper;
+import com.hidethemonkey.pathinator.helpers.SurvivalLedger;
+import com.hidethemonkey.pathinator.helpers.WorldAccess;
+
+/**
+ * Carves a width x height x length volume, one block per cell.
+ *
+ * AHEAD digs a level tunnel, UP and DOWN dig a stair step tunnel that rises or
+ * drops one block per step. VUP and VDOWN dig a width x width shaft in front of
+ * the player. Cells are generated from the cursor, so nothing is stored per block.
+ */
+public class DigJob extends BuildJob {
+
+    public enum Pattern {
+        AHEAD, UP, DOWN, VUP, VDOWN
+    }
+
+    private final World world;
+    private final WorldAccess access;
+    private final int originX;
+    private final int originY;
+    private final int originZ;
+    private final BlockFace facing;
+    private final BlockFace right;
+    private final Pattern pattern;
+    private final int width;
+    private final int height;
+    private final int length;
+    private final int blocksLeft;
+    private final int layerSize;
+    private final long total;
+    private long cursor = 0;
+
+    /**
+     * @param origin       the block at the player's feet
+     * @param facing
+     * @param pattern
+     * @param width
+     * @param height       ignored for vertical shafts
+     * @param length       number of steps (layers for vertical shafts)
+     * @param playerHelper
+     * @param ledger
+     */
+    public DigJob(Location origin, BlockFace facing, Pattern pattern, int width, int height, int length,
+            PlayerHelper playerHelper, SurvivalLedger ledger) {
+        this(new BukkitWorldAccess(origin.getWorld()), origin, facing, pattern, width, height, length, playerHelper,
+                ledger);
+    }
+
+    /**
+     * A job that isn't tied to a server, to be run with {@link #applyAll()}
+     * 
+     * @param access  usually a SparseWorld
+     * @param origin  the block at the player's feet, the world is ignored
+     * @param facing
+     * @param pattern
+     * @param width
+     * @param height
+     * @param length
+     * @param ledger
+     */
+    public DigJob(WorldAccess access, Location origin, BlockFace facing, Pattern pattern, int width, int height,
+            int length, SurvivalLedger ledger) {
+        this(access, origin, facing, pattern, width, height, length, null, ledger);
+    }
+
+    private DigJob(WorldAccess access, Location origin, BlockFace facing, Pattern pattern, int width, int height,
+            int length, PlayerHelper playerHelper, SurvivalLedger ledger) {
+        super(playerHelper, ledger);
+        this.world = origin.getWorld();
+        this.access = access;
+        this.originX = origin.getBlockX();
+        this.originY = origin.getBlockY();
+        this.originZ = origin.getBlockZ();
+        this.facing = facing;
+        this.right = BlockHelper.rotate90(facing, false);
+        this.pattern = pattern;
+        this.width = width;
+        this.height = isVertical() ? width : height;
+        this.length = length;
+        this.blocksLeft = CrossSection.getBlocksLeft(width);
+        this.layerSize = this.width * this.height;
+        this.total = (long) layerSize * length;
+    }
+
+    private boolean isVertical() {
+        return pattern == Pattern.VUP || pattern == Pattern.VDOWN;
+    }
+
+    @Override
+    protected boolean applyNext() {
+        if (cursor >= total) {
+            return false;
+        }
+        int step = (int) (cursor / layerSize);
+        int cell = (int) (cursor % layerSize);
+
+        int column = cell / height;
+        int inner = cell % height;
+        int lateral = column - blocksLeft;
+        int forward;
+        int y;
+        switch (pattern) {
+            case VUP:
+            case VDOWN:
+                // inner is the distance in front of the player
+                forward = inner + 1;
+                y = originY + (pattern == Pattern.VUP ? step : -step);
+                break;
+            default:
+                // inner counts rows from the top, so loose blocks above fall into space that is dug next
+                forward = step + 1;
+                int rise = pattern == Pattern.UP ? step + 1 : pattern == Pattern.DOWN ? -(step + 1) : 0;
+                y = originY + rise + height - 1 - inner;
+                break;
+        }
+        int x = originX + facing.getModX() * forward + right.getModX() * lateral;
+        int z = originZ + facing.getModZ() * forward + right.getModZ() * lateral;
+        if (!awaitCell(world, x, y, z, facing, isVertical() ? 0 : length - step)) {
+            return true;
+        }
+        cursor++;
+
+        if (!access.getType(x, y, z).isAir()) {
+            ledger.replace(null, access, x, y, z);
+        }
+        return true;
+    }
+
+    @Override
+    public long getTotal() {
+        return total;
+    }
+
+    @Override
+    public long getApplied() {
+        return cursor;
+    }
+
+    @Override
+    protected void onComplete() {
+        if (playerHelper != null && playerHelper.getPlayer().isOnline()) {
+            playerHelper.msg("Finished digging " + width + "x" + height + "x" + length + ".");
+        }
+    }
+}
@@ -0,0 +1,334 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2024 HideTheMonkey
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.hidethemonkey.pathinator.jobs;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+import org.bukkit.Bukkit;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+import org.bukkit.scheduler.BukkitTask;
+
+import com.hidethemonkey.pathinator.Pathinator;
+import com.hidethemonkey.pathinator.helpers.BlockHelper;
+import com.hidethemonkey.pathinator.helpers.PlayerHelper;
+import com.hidethemonkey.pathinator.helpers.RoutePlanner;
+import com.hidethemonkey.pathinator.helpers.RoutePlanner.RoutePlan;
+import com.hidethemonkey.pathinator.helpers.SurvivalLedger;
+
+/**
+ * Tracks running path jobs and persists them to the build log so that jobs
+ * interrupted by a shutdown or crash are resumed on the next start.
+ *
+ * Job state is only touched on the main thread. All file I/O happens on a single
+ * background thread so a slow disk never stalls a tick.
+ */
+public class JobManager {
+
+    private static final String LOG_NAME = "jobs.log";
+    // How often progress is written and fsynced (5 seconds)
+    private static final long CHECKPOINT_TICKS = 100;
+
+    private interface LogAction {
+        void run(BuildLog log) throws IOException;
+    }
+
+    private final Pathinator plugin;
+    private final Map<UUID, PathJob> active = new HashMap<>();
+    private final Map<UUID, Integer> checkpointed = new HashMap<>();
+    private final Map<UUID, List<PathJob>> pendingResume = new HashMap<>();
+
+    private ExecutorService io;
+    private BuildLog log;
+    private BukkitTask checkpointTask;
+
+    public JobManager(Pathinator plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * Open the build log and queue unfinished jobs for resuming once their owner is
+     * online.
+     */
+    public void start() {
+        io = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, plugin.getName() + "-BuildLog");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        plugin.getDataFolder().mkdirs();
+        log = new BuildLog(new File(plugin.getDataFolder(), LOG_NAME), plugin.getLogger());
+        try {
+            Collection<PathJob> unfinished = log.open();
+            for (PathJob job : unfinished) {
+                pendingResume.computeIfAbsent(job.getPlayerId(), id -> new ArrayList<>()).add(job);
+            }
+            if (!unfinished.isEmpty()) {
+                plugin.getLogger().info("Found " + unfinished.size()
+                        + " unfinished path job(s), they will resume when their owner is online.");
+            }
+        } catch (IOException e) {
+            plugin.getLogger().log(Level.SEVERE, "Unable to open " + LOG_NAME + ", jobs will not be persisted", e);
+            log = null;
+        }
+
+        checkpointTask = Bukkit.getScheduler().runTaskTimer(plugin, this::checkpoint, CHECKPOINT_TICKS,
+                CHECKPOINT_TICKS);
+
+        // Covers /reload while players are online
+        for (Player player : Bukkit.getOnlinePlayers()) {
+            resumeFor(player);
+        }
+    }
+
+    /**
+     * Write a final checkpoint and close the log. Jobs still running are left in the
+     * log and will resume on the next start.
+     */
+    public void stop() {
+        if (io == null) {
+            return;
+        }
+        if (checkpointTask != null) {
+            checkpointTask.cancel();
+        }
+        checkpoint();
+        write(BuildLog::close);
+        io.shutdown();
+        try {
+            if (!io.awaitTermination(5, TimeUnit.SECONDS)) {
+                plugin.getLogger().warning("Timed out writing " + LOG_NAME);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        io = null;
+        active.clear();
+        checkpointed.clear();
+        pendingResume.clear();
+    }
+
+    /**
+     * Record a new job and start placing it.
+     *
+     * @param job
+     * @param playerHelper
+     */
+    public void submit(PathJob job, PlayerHelper playerHelper) {
+        if (job.isComplete()) {
+            return;
+        }
+        active.put(job.getId(), job);
+        write(log -> log.start(job));
+        run(job, playerHelper);
+    }
+
+    /**
+     * Queue the remaining segments of a job on the build scheduler, starting at its
+     * cursor. Segments are generated as they are reached.
+     *
+     * @param job
+     * @param playerHelper
+     */
+    private void run(PathJob job, PlayerHelper playerHelper) {
+        World world = Bukkit.getWorld(job.getWorldId());
+        if (world == null) {
+            plugin.getLogger().warning("World for job " + job.getId() + " is not loaded, dropping it.");
+            finish(job);
+            return;
+        }
+        SurvivalLedger ledger = new SurvivalLedger(playerHelper, new BlockHelper(plugin));
+        plugin.getBuildScheduler().submit(new PathBuildJob(plugin, job, world, job.gatherExclusions(world),
+                playerHelper, ledger));
+    }
+
+    /**
+     * Park a job whose owner went offline, it resumes when they are back.
+     *
+     * @param job
+     */
+    public void suspend(PathJob job) {
+        if (active.remove(job.getId()) == null) {
+            return;
+        }
+        checkpointed.remove(job.getId());
+        int cursor = job.getCursor();
+        write(log -> log.progress(job.getId(), cursor));
+        pendingResume.computeIfAbsent(job.getPlayerId(), id -> new ArrayList<>()).add(job);
+    }
+
+    /**
+     * Called once every block of a segment has been handled.
+     *
+     * @param job
+     * @param index
+     */
+    public void segmentComplete(PathJob job, int index) {
+        if (index + 1 > job.getCursor()) {
+            job.setCursor(index + 1);
+        }
+        if (job.isComplete()) {
+            finish(job);
+            recordPath(job);
+        }
+    }
+
+    /**
+     * Resume any jobs owned by the player that were interrupted by a restart.
+     *
+     * @param player
+     */
+    public void resumeFor(Player player) {
+        List<PathJob> jobs = pendingResume.remove(player.getUniqueId());
+        if (jobs == null) {
+            return;
+        }
+        PlayerHelper playerHelper = new PlayerHelper(player, plugin);
+        for (PathJob job : jobs) {
+            active.put(job.getId(), job);
+            checkpointed.put(job.getId(), job.getCursor());
+            playerHelper.msg("Resuming " + job.getType().name().toLowerCase() + " path at block "
+                    + job.getCursor() + " of " + job.getDistance() + ".");
+            run(job, playerHelper);
+        }
+    }
+
+    public int getActiveCount() {
+        return active.size();
+    }
+
+    private void finish(PathJob job) {
+        if (active.remove(job.getId()) != null) {
+            checkpointed.remove(job.getId());
+            write(log -> log.end(job.getId()));
+        }
+    }
+
+    /**
+     * Add a finished job to the path index
+     *
+     * @param job
+     */
+    private void recordPath(PathJob job) {
+        World world = Bukkit.getWorld(job.getWorldId());
+        if (world == null) {
+            return;
+        }
+        if (job.isRoute()) {
+            int[] xs = new int[job.getDistance()];
+            int[] ys = new int[job.getDistance()];
+            int[] zs = new int[job.getDistance()];
+            for (int i = 0; i < job.getDistance(); i++) {
+                xs[i] = job.getX(i);
+                ys[i] = job.getY(i);
+                zs[i] = job.getZ(i);
+            }
+            int[][] corners = RoutePlanner.corners(new RoutePlan(xs, ys, zs, 0, 0));
+            plugin.getPathIndex().record(world, job.getPlayerId(), "route", job.getMaterial().name(),
+                    job.getClearanceMaterial().name(), 1, job.getClearance() + 1, corners[0], corners[1], corners[2]);
+            return;
+        }
+        int modX = job.getFacing().getModX();
+        int modZ = job.getFacing().getModZ();
+        if (!job.getFollowsTerrain()) {
+            plugin.getPathIndex().recordStraight(world, job.getPlayerId(), job.getType().name().toLowerCase(),
+                    job.getMaterial().name(), job.getClearanceMaterial().name(), 1, job.getClearance() + 1,
+                    job.getStartX() + modX, job.getStartY(), job.getStartZ() + modZ,
+                    job.getStartX() + modX * job.getDistance(), job.getStartY(),
+                    job.getStartZ() + modZ * job.getDistance());
+            return;
+        }
+        // keep the ends plus both sides of every change in height
+        List<Integer> points = new ArrayList<>();
+        for (int i = 0; i < job.getDistance(); i++) {
+            if (i == 0 || i == job.getDistance() - 1 || job.getY(i) != job.getY(i - 1)
+                    || job.getY(i) != job.getY(i + 1)) {
+                points.add(i);
+            }
+        }
+        int[] xs = new int[points.size()];
+        int[] ys = new int[points.size()];
+        int[] zs = new int[points.size()];
+        for (int p = 0; p < points.size(); p++) {
+            int step = points.get(p) + 1;
+            xs[p] = job.getStartX() + modX * step;
+            ys[p] = job.getY(points.get(p));
+            zs[p] = job.getStartZ() + modZ * step;
+        }
+        plugin.getPathIndex().record(world, job.getPlayerId(), job.getType().name().toLowerCase(),
+                job.getMaterial().name(), job.getClearanceMaterial().name(), 1, job.getClearance() + 1, xs, ys, zs);
+    }
+
+    /**
+     * Write the cursor of every job that moved since the last checkpoint and fsync.
+     */
+    private void checkpoint() {
+        Map<UUID, Integer> changed = new HashMap<>();
+        for (PathJob job : active.values()) {
+            int cursor = job.getCursor();
+            Integer previous = checkpointed.put(job.getId(), cursor);
+            if (previous == null || previous != cursor) {
+                changed.put(job.getId(), cursor);
+            }
+        }
+        write(log -> {
+            for (Map.Entry<UUID, Integer> entry : changed.entrySet()) {
+                log.progress(entry.getKey(), entry.getValue());
+            }
+            log.checkpoint();
+        });
+    }
+
+    /**
+     * Hand an action to the I/O thread
+     *
+     * @param action
+     */
+    private void write(LogAction action) {
+        if (log == null || io == null) {
+            return;
+        }
+        BuildLog target = log;
+        io.execute(() -> {
+            try {
+                action.run(target);
+            } catch (IOException e) {
+                plugin.getLogger().log(Level.WARNING, "Unable to write " + LOG_NAME, e);
+            }
+        });
+    }
+}
@@ -0,0 +1,254 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2024 HideTheMonkey
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.hidethemonkey.pathinator.jobs;
+
+import java.util.List;
+
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.inventory.ItemStack;
+
+import com.hidethemonkey.pathinator.Pathinator;
+import com.hidethemonkey.pathinator.helpers.BukkitWorldAccess;
+import com.hidethemonkey.pathinator.helpers.ExclusionVolumes;
+import com.hidethemonkey.pathinator.helpers.PlayerHelper;
+import com.hidethemonkey.pathinator.helpers.SegmentData;
+import com.hidethemonkey.pathinator.helpers.SurvivalLedger;
+import com.hidethemonkey.pathinator.helpers.WorldAccess;
+
+/**
+ * Places a basic, track or route path one cell at a time from the BuildScheduler.
+ *
+ * Segments are generated from the PathJob's cursor when they are reached, and
+ * the cells of a segment are placed in order: the path block, the clearance
+ * above it, the light and then the rail. Only the current segment is held, so a
+ * job costs the same amount of memory no matter how long the path is.
+ *
+ * Blocks are read and written through a WorldAccess, so a job can also be run
+ * headless against a SparseWorld with {@link #applyAll()}.
+ */
+public class PathBuildJob extends BuildJob {
+
+    private final Pathinator plugin;
+    private final PathJob job;
+    private final World world;
+    private final WorldAccess access;
+    private final ExclusionVolumes exclusions;
+    private final long total;
+
+    private SegmentData segment;
+    private int index;
+    private int step;
+    // the base for a light or redstone torch couldn't be placed
+    private boolean skipRest;
+    private long applied = 0;
+
+    /**
+     * @param plugin
+     * @param job          the path to place, starting at its cursor
+     * @param world
+     * @param exclusions
+     * @param playerHelper
+     * @param ledger
+     */
+    public PathBuildJob(Pathinator plugin, PathJob job, World world, ExclusionVolumes exclusions,
+            PlayerHelper playerHelper, SurvivalLedger ledger) {
+        this(plugin, job, world, new BukkitWorldAccess(world), exclusions, playerHelper, ledger);
+    }
+
+    /**
+     * A job that isn't tied to a server, to be run with {@link #applyAll()}
+     * 
+     * @param job
+     * @param access     usually a SparseWorld
+     * @param exclusions
+     * @param ledger
+     */
+    public PathBuildJob(PathJob job, WorldAccess access, ExclusionVolumes exclusions, SurvivalLedger ledger) {
+        this(null, job, null, access, exclusions, null, ledger);
+    }
+
+    private PathBuildJob(Pathinator plugin, PathJob job, World world, WorldAccess access,
+            ExclusionVolumes exclusions, PlayerHelper playerHelper, SurvivalLedger ledger) {
+        super(playerHelper, ledger);
+        this.plugin = plugin;
+        this.job = job;
+        this.world = world;
+        this.access = access;
+        this.exclusions = exclusions;
+        this.index = job.getCursor();
+        this.total = job.countCells(index);
+    }
+
+    @Override
+    protected boolean applyNext() {
+        while (index < job.getDistance()) {
+            if (segment == null) {
+                segment = job.segmentAt(index, world);
+                step = 0;
+                skipRest = false;
+                // keep the sections checked by segmentReady until the last cell is placed
+                pinSections = true;
+            }
+            if (step == 0 && !segmentReady()) {
+                return true;
+            }
+            if (applyStep(step++)) {
+                applied++;
+                return true;
+            }
+            // every cell of the segment has been handled
+            segment = null;
+            pinSections = false;
+            if (plugin != null) {
+                plugin.getJobManager().segmentComplete(job, index);
+            }
+            index++;
+        }
+        return false;
+    }
+
+    /**
+     * Check that every chunk section the current segment touches is ready. Lights and
+     * redstone torches sit beside the path, which may be across a chunk border.
+     * 
+     * @return
+     */
+    private boolean segmentReady() {
+        Location base = segment.getBaseLocation();
+        int top = base.getBlockY() + Math.max(segment.getClearance(), segment.getUseRails() ? 1 : 0);
+        if (!columnReady(base, top)) {
+            return false;
+        }
+        if (segment.getUseLighting()) {
+            Location lighting = segment.getLightingLocation();
+            if (!columnReady(lighting, lighting.getBlockY() + segment.getLightingStacks().size())) {
+                return false;
+            }
+        }
+        if (segment.getUseRails() && segment.getUsePower()) {
+            Location power = segment.getPowerLocation();
+            return columnReady(power, power.getBlockY() + 1);
+        }
+        return true;
+    }
+
+    private boolean columnReady(Location bottom, int top) {
+        int remaining = job.getDistance() - index;
+        for (int y = bottom.getBlockY(); y <= top + 15; y += 16) {
+            if (!awaitCell(world, bottom.getBlockX(), Math.min(y, top), bottom.getBlockZ(), job.getFacing(index),
+                    remaining)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Place one cell of the current segment
+     * 
+     * @param step
+     * @return false once the segment has no more cells
+     */
+    private boolean applyStep(int step) {
+        Location location = segment.getBaseLocation();
+        int x = location.getBlockX();
+        int y = location.getBlockY();
+        int z = location.getBlockZ();
+
+        if (step == 0) {
+            ledger.replace(segment.getBaseMaterial(), access, x, y, z);
+            return true;
+        }
+        step--;
+
+        // Clear the air, without burying anyone standing in it
+        int clearance = segment.getClearance();
+        if (step < clearance) {
+            if (!exclusions.contains(x, y + step + 1, z)) {
+                ledger.replace(segment.getClearanceMaterial(), access, x, y + step + 1, z);
+            }
+            return true;
+        }
+        step -= clearance;
+
+        if (segment.getUseLighting()) {
+            List<ItemStack> stack = segment.getLightingStacks();
+            if (step <= stack.size()) {
+                Location lighting = segment.getLightingLocation();
+                if (step == 0) {
+                    // Make sure it has a base to stand on
+                    skipRest = !replace(segment.getBaseMaterial(), lighting, 0);
+                } else if (!skipRest) {
+                    replace(stack.get(step - 1).getType(), lighting, step);
+                }
+                return true;
+            }
+            step -= stack.size() + 1;
+            skipRest = false;
+        }
+
+        if (segment.getUseRails()) {
+            if (step == 0) {
+                ledger.replace(segment.getUsePower() ? Material.POWERED_RAIL : Material.RAIL, access, x, y + 1, z);
+                return true;
+            }
+            if (segment.getUsePower() && step <= 2) {
+                Location power = segment.getPowerLocation();
+                if (step == 1) {
+                    // Make sure the REDSTONE_TORCH has a base to stand on
+                    skipRest = !replace(segment.getBaseMaterial(), power, 0);
+                } else if (!skipRest) {
+                    replace(Material.REDSTONE_TORCH, power, 1);
+                }
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean replace(Material material, Location location, int above) {
+        return ledger.replace(material, access, location.getBlockX(), location.getBlockY() + above,
+                location.getBlockZ());
+    }
+
+    @Override
+    protected void onCancelled() {
+        if (plugin != null) {
+            plugin.getJobManager().suspend(job);
+        }
+    }
+
+    @Override
+    public long getTotal() {
+        return total;
+    }
+
+    @Override
+    public long getApplied() {
+        return applied;
+    }
+}
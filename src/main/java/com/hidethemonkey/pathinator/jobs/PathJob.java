@@ -0,0 +1,548 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2024 HideTheMonkey
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.hidethemonkey.pathinator.jobs;
+
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.UUID;
+
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.block.BlockFace;
+import org.bukkit.inventory.ItemStack;
+
+import com.hidethemonkey.pathinator.helpers.ExclusionVolumes;
+import com.hidethemonkey.pathinator.helpers.SegmentData;
+
+/**
+ * Everything needed to (re)generate a straight path or a planned route, plus a
+ * progress cursor.
+ *
+ * Config values are copied in when the job is created so that a job resumed after a
+ * restart produces exactly the same segments as it would have before.
+ */
+public class PathJob {
+
+    public enum Type {
+        BASIC, TRACKS, ROUTE
+    }
+
+    private final UUID id;
+    private final Type type;
+    private final UUID playerId;
+    private final UUID worldId;
+    private final int startX;
+    private final int startY;
+    private final int startZ;
+    private final BlockFace facing;
+    private final Material material;
+    private final int distance;
+
+    private Material clearanceMaterial = Material.AIR;
+    private int clearance;
+    private boolean withLights;
+    private int lightingInterval;
+    private List<Material> lightingStack = new ArrayList<>();
+    private boolean withPower;
+    private int poweredInterval;
+    // Y of every segment when following the terrain, null for a level path
+    private int[] profile;
+    // steps that get a light when placed by light level, null to use the interval
+    private BitSet lightSteps;
+    // X and Z of every segment of a planned route (Y is the profile), null for a straight path
+    private int[] routeXs;
+    private int[] routeZs;
+
+    // index of the next segment that has not been completed yet
+    private volatile int cursor;
+
+    /**
+     * @param type
+     * @param playerId
+     * @param start    location of the block the path starts from (not placed)
+     * @param facing
+     * @param material
+     * @param distance number of segments to place
+     */
+    public PathJob(Type type, UUID playerId, Location start, BlockFace facing, Material material, int distance) {
+        this(UUID.randomUUID(), type, playerId, start.getWorld().getUID(), start.getBlockX(), start.getBlockY(),
+                start.getBlockZ(), facing, material, distance);
+    }
+
+    private PathJob(UUID id, Type type, UUID playerId, UUID worldId, int x, int y, int z, BlockFace facing,
+            Material material, int distance) {
+        this.id = id;
+        this.type = type;
+        this.playerId = playerId;
+        this.worldId = worldId;
+        this.startX = x;
+        this.startY = y;
+        this.startZ = z;
+        this.facing = facing;
+        this.material = material;
+        this.distance = distance;
+    }
+
+    /**
+     * Build the segment at the given index. This mirrors the order the commands have
+     * always placed segments in: index 0 is one block in front of the start block.
+     *
+     * @param index
+     * @param world
+     * @return
+     */
+    public SegmentData segmentAt(int index, World world) {
+        Location location = new Location(world, getX(index), getY(index), getZ(index));
+
+        SegmentData segmentData = new SegmentData();
+        segmentData.setWorld(world);
+        segmentData.setBaseFacing(getFacing(index));
+        segmentData.setBaseMaterial(material);
+        segmentData.setBaseLocation(location);
+        segmentData.setClearance(clearance);
+        segmentData.setClearanceMaterial(clearanceMaterial);
+        segmentData.setUseRails(type == Type.TRACKS);
+
+        if (hasPowerAt(index)) {
+            segmentData.addPower();
+        }
+
+        if (hasLightAt(index)) {
+            ArrayList<ItemStack> stack = new ArrayList<ItemStack>(lightingStack.size());
+            for (Material light : lightingStack) {
+                stack.add(new ItemStack(light));
+            }
+            segmentData.addLightingStacks(stack);
+            segmentData.addLighting();
+        }
+        return segmentData;
+    }
+
+    /**
+     * Collect the exclusion volumes for the remaining segments: everyone standing
+     * in the way of the path
+     *
+     * @param world
+     * @return
+     */
+    public ExclusionVolumes gatherExclusions(World world) {
+        int minY = Integer.MAX_VALUE;
+        int maxY = Integer.MIN_VALUE;
+        for (int i = cursor; i < distance; i++) {
+            minY = Math.min(minY, getY(i));
+            maxY = Math.max(maxY, getY(i));
+        }
+        if (minY > maxY) {
+            return new ExclusionVolumes();
+        }
+        int minX = Integer.MAX_VALUE;
+        int minZ = Integer.MAX_VALUE;
+        int maxX = Integer.MIN_VALUE;
+        int maxZ = Integer.MIN_VALUE;
+        for (int i = cursor; i < distance; i++) {
+            minX = Math.min(minX, getX(i));
+            minZ = Math.min(minZ, getZ(i));
+            maxX = Math.max(maxX, getX(i));
+            maxZ = Math.max(maxZ, getZ(i));
+        }
+        return ExclusionVolumes.gather(world, minX, minY, minZ, maxX, maxY + clearance, maxZ);
+    }
+
+    public UUID getId() {
+        return id;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public UUID getPlayerId() {
+        return playerId;
+    }
+
+    public UUID getWorldId() {
+        return worldId;
+    }
+
+    public int getStartX() {
+        return startX;
+    }
+
+    public int getStartY() {
+        return startY;
+    }
+
+    public int getStartZ() {
+        return startZ;
+    }
+
+    public BlockFace getFacing() {
+        return facing;
+    }
+
+    public Material getMaterial() {
+        return material;
+    }
+
+    public int getDistance() {
+        return distance;
+    }
+
+    public int getClearance() {
+        return clearance;
+    }
+
+    public Material getClearanceMaterial() {
+        return clearanceMaterial;
+    }
+
+    /**
+     * Sets the clearance height and material.
+     *
+     * @param height
+     * @param clearanceMaterial
+     */
+    public void setClearance(int height, Material clearanceMaterial) {
+        this.clearance = height;
+        this.clearanceMaterial = clearanceMaterial != null ? clearanceMaterial : Material.AIR;
+    }
+
+    /**
+     * Enables lighting every interval blocks.
+     *
+     * @param interval
+     * @param stack    the materials to stack, bottom first
+     */
+    public void setLighting(int interval, List<ItemStack> stack) {
+        this.withLights = interval > 0;
+        this.lightingInterval = interval;
+        this.lightingStack = new ArrayList<>(stack.size());
+        for (ItemStack item : stack) {
+            lightingStack.add(item.getType());
+        }
+    }
+
+    public boolean getWithLights() {
+        return withLights;
+    }
+
+    /**
+     * Place lights at exactly these steps instead of every interval blocks.
+     *
+     * @param steps
+     */
+    public void setLightSteps(int[] steps) {
+        withLights = true;
+        lightSteps = new BitSet(distance);
+        for (int step : steps) {
+            lightSteps.set(step);
+        }
+    }
+
+    /**
+     * Gets the stack of lighting materials, bottom first.
+     *
+     * @return
+     */
+    public List<Material> getLightingStack() {
+        return lightingStack;
+    }
+
+    /**
+     * Count the blocks placed by the segments from the given index to the end.
+     *
+     * @param from
+     * @return
+     */
+    public long countCells(int from) {
+        long cells = 0;
+        int lights = lightingStack.size();
+        for (int i = from; i < distance; i++) {
+            cells += 1 + clearance;
+            if (hasLightAt(i)) {
+                cells += 1 + lights;
+            }
+            if (type == Type.TRACKS) {
+                cells += hasPowerAt(i) ? 3 : 1;
+            }
+        }
+        return cells;
+    }
+
+    boolean hasLightAt(int index) {
+        if (!withLights) {
+            return false;
+        }
+        if (lightSteps != null) {
+            return lightSteps.get(index);
+        }
+        return index != 0 && (index % lightingInterval) == 0;
+    }
+
+    boolean hasPowerAt(int index) {
+        return withPower && index != 0 && (index % poweredInterval) == 0;
+    }
+
+    /**
+     * Enables powered rails every interval blocks.
+     *
+     * @param interval
+     */
+    public void setPower(int interval) {
+        this.withPower = interval > 0;
+        this.poweredInterval = interval;
+    }
+
+    public boolean getWithPower() {
+        return withPower;
+    }
+
+    /**
+     * Makes the path follow the given heights instead of staying level.
+     *
+     * @param profile the Y of each segment, one per block of distance
+     */
+    public void setProfile(int[] profile) {
+        if (profile != null && profile.length != distance) {
+            throw new IllegalArgumentException("Profile length " + profile.length + " != distance " + distance);
+        }
+        this.profile = profile;
+    }
+
+    public boolean getFollowsTerrain() {
+        return profile != null;
+    }
+
+    /**
+     * Makes the job follow a planned route instead of going straight ahead.
+     *
+     * @param xs X of every segment, one per block of distance
+     * @param ys Y of every segment
+     * @param zs Z of every segment
+     */
+    public void setRoute(int[] xs, int[] ys, int[] zs) {
+        if (xs.length != distance || zs.length != distance) {
+            throw new IllegalArgumentException("Route length " + xs.length + " != distance " + distance);
+        }
+        setProfile(ys);
+        this.routeXs = xs;
+        this.routeZs = zs;
+    }
+
+    public boolean isRoute() {
+        return routeXs != null;
+    }
+
+    /**
+     * Gets the X of the segment at the given index.
+     *
+     * @param index
+     * @return
+     */
+    public int getX(int index) {
+        return routeXs != null ? routeXs[index] : startX + facing.getModX() * (index + 1);
+    }
+
+    /**
+     * Gets the Z of the segment at the given index.
+     *
+     * @param index
+     * @return
+     */
+    public int getZ(int index) {
+        return routeZs != null ? routeZs[index] : startZ + facing.getModZ() * (index + 1);
+    }
+
+    /**
+     * Gets the direction of travel into the segment at the given index.
+     *
+     * @param index
+     * @return
+     */
+    public BlockFace getFacing(int index) {
+        if (routeXs == null) {
+            return facing;
+        }
+        int dx = getX(index) - (index == 0 ? startX : getX(index - 1));
+        int dz = getZ(index) - (index == 0 ? startZ : getZ(index - 1));
+        if (dx > 0) {
+            return BlockFace.EAST;
+        }
+        if (dx < 0) {
+            return BlockFace.WEST;
+        }
+        return dz > 0 ? BlockFace.SOUTH : dz < 0 ? BlockFace.NORTH : facing;
+    }
+
+    /**
+     * Gets the Y of the segment at the given index.
+     *
+     * @param index
+     * @return
+     */
+    public int getY(int index) {
+        return profile != null ? profile[index] : startY;
+    }
+
+    public int getCursor() {
+        return cursor;
+    }
+
+    public void setCursor(int cursor) {
+        this.cursor = cursor;
+    }
+
+    public boolean isComplete() {
+        return cursor >= distance;
+    }
+
+    /**
+     * Serialize the job (including the cursor)
+     *
+     * @param out
+     * @throws IOException
+     */
+    public void write(DataOutput out) throws IOException {
+        out.writeLong(id.getMostSignificantBits());
+        out.writeLong(id.getLeastSignificantBits());
+        out.writeByte(type.ordinal());
+        out.writeLong(playerId.getMostSignificantBits());
+        out.writeLong(playerId.getLeastSignificantBits());
+        out.writeLong(worldId.getMostSignificantBits());
+        out.writeLong(worldId.getLeastSignificantBits());
+        out.writeInt(startX);
+        out.writeInt(startY);
+        out.writeInt(startZ);
+        out.writeUTF(facing.name());
+        out.writeUTF(material.name());
+        out.writeInt(distance);
+        out.writeInt(clearance);
+        out.writeUTF(clearanceMaterial.name());
+        out.writeInt(withLights ? lightingInterval : 0);
+        out.writeByte(lightingStack.size());
+        for (Material light : lightingStack) {
+            out.writeUTF(light.name());
+        }
+        out.writeInt(withPower ? poweredInterval : 0);
+        out.writeInt(cursor);
+        // optional sections are written last so that older logs still replay
+        out.writeInt(profile != null ? profile.length : 0);
+        if (profile != null) {
+            for (int y : profile) {
+                out.writeInt(y);
+            }
+        }
+        if (lightSteps != null || routeXs != null) {
+            // -1 when there are no light steps but a route follows
+            out.writeInt(lightSteps != null ? lightSteps.cardinality() : -1);
+            if (lightSteps != null) {
+                for (int step = lightSteps.nextSetBit(0); step >= 0; step = lightSteps.nextSetBit(step + 1)) {
+                    out.writeInt(step);
+                }
+            }
+        }
+        if (routeXs != null) {
+            for (int i = 0; i < distance; i++) {
+                out.writeInt(routeXs[i]);
+                out.writeInt(routeZs[i]);
+            }
+        }
+    }
+
+    /**
+     * Deserialize a job written with {@link #write(DataOutput)}
+     *
+     * @param in a stream holding exactly one job
+     * @return
+     * @throws IOException if the data is truncated or references unknown materials
+     */
+    public static PathJob read(DataInputStream in) throws IOException {
+        UUID id = new UUID(in.readLong(), in.readLong());
+        Type type = Type.values()[in.readByte()];
+        UUID playerId = new UUID(in.readLong(), in.readLong());
+        UUID worldId = new UUID(in.readLong(), in.readLong());
+        int x = in.readInt();
+        int y = in.readInt();
+        int z = in.readInt();
+        BlockFace facing = BlockFace.valueOf(in.readUTF());
+        Material material = readMaterial(in);
+        int distance = in.readInt();
+
+        PathJob job = new PathJob(id, type, playerId, worldId, x, y, z, facing, material, distance);
+        int clearance = in.readInt();
+        job.setClearance(clearance, readMaterial(in));
+        job.lightingInterval = in.readInt();
+        job.withLights = job.lightingInterval > 0;
+        int stackSize = in.readByte();
+        for (int i = 0; i < stackSize; i++) {
+            job.lightingStack.add(readMaterial(in));
+        }
+        job.setPower(in.readInt());
+        job.cursor = in.readInt();
+        if (in.available() > 0) {
+            int[] profile = new int[in.readInt()];
+            for (int i = 0; i < profile.length; i++) {
+                profile[i] = in.readInt();
+            }
+            job.setProfile(profile.length > 0 ? profile : null);
+        }
+        if (in.available() > 0) {
+            int count = in.readInt();
+            if (count >= 0) {
+                int[] steps = new int[count];
+                for (int i = 0; i < steps.length; i++) {
+                    steps[i] = in.readInt();
+                }
+                job.setLightSteps(steps);
+            }
+        }
+        if (in.available() > 0) {
+            int[] xs = new int[distance];
+            int[] zs = new int[distance];
+            for (int i = 0; i < distance; i++) {
+                xs[i] = in.readInt();
+                zs[i] = in.readInt();
+            }
+            job.routeXs = xs;
+            job.routeZs = zs;
+        }
+        return job;
+    }
+
+    private static Material readMaterial(DataInput in) throws IOException {
+        String name = in.readUTF();
+        Material material = Material.getMaterial(name);
+        if (material == null) {
+            throw new IOException("Unknown material " + name);
+        }
+        return material;
+    }
+}
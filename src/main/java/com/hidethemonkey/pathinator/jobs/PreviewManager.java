@@ -0,0 +1,206 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2024 HideTheMonkey
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.hidethemonkey.pathinator.jobs;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import org.bukkit.World;
+import org.bukkit.block.data.BlockData;
+import org.bukkit.entity.Player;
+import org.bukkit.scheduler.BukkitTask;
+
+import com.hidethemonkey.pathinator.Pathinator;
+
+import io.papermc.paper.math.Position;
+import net.kyori.adventure.text.Component;
+
+/**
+ * Client side previews of planned builds.
+ *
+ * While a player has preview mode on, their builds are sent to their client only
+ * as fake block changes instead of being built. The preview is turned into a real
+ * build with /path:confirm, or reverted once it times out. Each player has at most
+ * one preview at a time; a new one replaces the last. A preview that is not built
+ * runs its dropped callback, so whatever was held for the build can be given back.
+ *
+ * Only ever used on the main thread.
+ */
+public class PreviewManager {
+
+    private record Preview(UUID worldId, Map<Position, BlockData> changes, Runnable build, Runnable dropped,
+            BukkitTask expiry) {}
+
+    private final Pathinator plugin;
+    private final Set<UUID> previewing = new HashSet<>();
+    private final Map<UUID, Preview> pending = new HashMap<>();
+
+    public PreviewManager(Pathinator plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * Turn preview mode on or off for a player. Turning it off reverts any pending preview.
+     *
+     * @param player
+     * @return true if preview mode is now on
+     */
+    public boolean toggle(Player player) {
+        if (previewing.remove(player.getUniqueId())) {
+            clear(player);
+            return false;
+        }
+        previewing.add(player.getUniqueId());
+        return true;
+    }
+
+    public boolean isPreviewing(Player player) {
+        return previewing.contains(player.getUniqueId());
+    }
+
+    /**
+     * Show a planned build to the player, replacing their previous preview.
+     *
+     * @param player
+     * @param changes the blocks the build would place
+     * @param build   starts the real build on /path:confirm
+     * @param dropped run instead if the preview is cleared, replaced or expires
+     * @return false if the build is too large to preview
+     */
+    public boolean show(Player player, Map<Position, BlockData> changes, Runnable build, Runnable dropped) {
+        if (changes.size() > plugin.getPConfig().getPreviewMaxBlocks()) {
+            return false;
+        }
+        clear(player);
+        // the client batches these per chunk section
+        player.sendMultiBlockChange(changes);
+        UUID playerId = player.getUniqueId();
+        BukkitTask expiry = plugin.getServer().getScheduler().runTaskLater(plugin, () -> expire(playerId),
+                plugin.getPConfig().getPreviewTimeout() * 20L);
+        pending.put(playerId, new Preview(player.getWorld().getUID(), changes, build, dropped, expiry));
+        return true;
+    }
+
+    /**
+     * Build the player's pending preview for real.
+     *
+     * @param player
+     * @return false if there was nothing to confirm
+     */
+    public boolean confirm(Player player) {
+        Preview preview = pending.remove(player.getUniqueId());
+        if (preview == null) {
+            return false;
+        }
+        preview.expiry().cancel();
+        revert(player, preview);
+        preview.build().run();
+        return true;
+    }
+
+    /**
+     * Drop the player's pending preview and show them the real blocks again.
+     *
+     * @param player
+     */
+    public void clear(Player player) {
+        Preview preview = pending.remove(player.getUniqueId());
+        if (preview != null) {
+            preview.expiry().cancel();
+            revert(player, preview);
+            preview.dropped().run();
+        }
+    }
+
+    /**
+     * Forget everything about a player, without sending them anything
+     *
+     * @param player
+     */
+    public void remove(Player player) {
+        previewing.remove(player.getUniqueId());
+        Preview preview = pending.remove(player.getUniqueId());
+        if (preview != null) {
+            preview.expiry().cancel();
+            preview.dropped().run();
+        }
+    }
+
+    /**
+     * Revert every pending preview
+     */
+    public void stop() {
+        for (UUID playerId : pending.keySet().toArray(new UUID[0])) {
+            Player player = plugin.getServer().getPlayer(playerId);
+            if (player != null) {
+                clear(player);
+            }
+        }
+        pending.values().forEach(preview -> preview.dropped().run());
+        pending.clear();
+        previewing.clear();
+    }
+
+    private void expire(UUID playerId) {
+        Player player = plugin.getServer().getPlayer(playerId);
+        if (player == null) {
+            Preview preview = pending.remove(playerId);
+            if (preview != null) {
+                preview.dropped().run();
+            }
+            return;
+        }
+        if (pending.containsKey(playerId)) {
+            clear(player);
+            player.sendMessage(Component.text("[" + plugin.getName() + "]: Your preview has expired."));
+        }
+    }
+
+    /**
+     * Send the real blocks back for everything that was previewed. Chunks that are
+     * no longer loaded are skipped, the client has already dropped them.
+     *
+     * @param player
+     * @param preview
+     */
+    private void revert(Player player, Preview preview) {
+        World world = player.getWorld();
+        if (!world.getUID().equals(preview.worldId())) {
+            return;
+        }
+        Map<Position, BlockData> real = new HashMap<>(preview.changes().size() * 4 / 3 + 1);
+        for (Position position : preview.changes().keySet()) {
+            int x = position.blockX();
+            int z = position.blockZ();
+            if (world.isChunkLoaded(x >> 4, z >> 4)) {
+                real.put(position, world.getBlockAt(x, position.blockY(), z).getBlockData());
+            }
+        }
+        player.sendMultiBlockChange(real);
+    }
+}
@@ -0,0 +1,259 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2024 HideTheMonkey
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.hidethemonkey.pathinator.jobs;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import org.bukkit.entity.Player;
+
+import com.hidethemonkey.pathinator.Pathinator;
+import com.hidethemonkey.pathinator.PathinatorConfig;
+
+/**
+ * Per-player build limits, checked when a build is submitted.
+ *
+ * Every player has a token bucket that fills at blocksPerSecond up to burst.
+ * A build is allowed while the bucket isn't empty and takes all of its blocks
+ * from it once it actually starts, going into debt if it is bigger than what is
+ * left, so the next build has to wait for the debt to be paid off. Builds that
+ * are only previewed, or never get past planning, cost nothing. On top of that a
+ * player may only have maxJobs builds and maxQueuedCells blocks waiting in the
+ * BuildScheduler. A build holds its slot and blocks from the moment it is
+ * allowed, so builds that are still being planned or previewed count as well.
+ *
+ * Limits come from the first group in limits.groups the player has the
+ * pathinator.limits.<group> permission for, or limits.default otherwise.
+ * Only used on the main thread, so the counters are plain fields.
+ */
+public class QuotaManager {
+
+    public static final String PERM_BYPASS = "pathinator.limits.bypass";
+    public static final String PERM_GROUP_PREFIX = "pathinator.limits.";
+
+    public record Limits(double blocksPerSecond, long burst, int maxJobs, long maxQueuedCells) {}
+
+    private static final class Bucket {
+        double tokens;
+        long updated;
+        // limits the bucket was last filled with
+        Limits limits;
+    }
+
+    // builds that were allowed but are not in the BuildScheduler yet
+    private static final class Pending {
+        int jobs;
+        long cells;
+    }
+
+    /**
+     * The outcome of {@link QuotaManager#acquire(Player, long)}. A granted build is
+     * charged with {@link #start()} right before it is queued, or dropped with
+     * {@link #release()} if it never is.
+     */
+    public final class Reservation {
+        private final UUID playerId;
+        private final long cells;
+        private final Limits limits;
+        private final String refusal;
+        private boolean open;
+
+        private Reservation(UUID playerId, long cells, Limits limits, String refusal) {
+            this.playerId = playerId;
+            this.cells = cells;
+            this.limits = limits;
+            this.refusal = refusal;
+            this.open = refusal == null;
+        }
+
+        /**
+         * @return null if the build may go ahead, otherwise why not and how long to wait
+         */
+        public String getRefusal() {
+            return refusal;
+        }
+
+        /**
+         * Take the build's blocks from the player's bucket and hand its slot over to
+         * the BuildScheduler, which counts it from now on. Does nothing if the
+         * reservation was already started or released.
+         */
+        public void start() {
+            if (close()) {
+                refill(playerId, limits).tokens -= cells;
+            }
+        }
+
+        /**
+         * Drop the build without charging for it, freeing its slot and blocks
+         */
+        public void release() {
+            close();
+        }
+
+        /**
+         * @return true if the reservation held a slot and blocks until now
+         */
+        private boolean close() {
+            if (!open) {
+                return false;
+            }
+            open = false;
+            if (limits == null) {
+                return false;
+            }
+            unreserve(playerId, cells);
+            return true;
+        }
+    }
+
+    private final Pathinator plugin;
+    private final Map<UUID, Bucket> buckets = new HashMap<>();
+    private final Map<UUID, Pending> pending = new HashMap<>();
+
+    public QuotaManager(Pathinator plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * Check a build against the player's quota. Nothing is charged until the
+     * reservation is started.
+     * 
+     * @param player
+     * @param cells number of blocks the build changes
+     * @return the reservation, refused if the build may not go ahead
+     */
+    public Reservation acquire(Player player, long cells) {
+        String refusal = check(player, cells);
+        if (refusal != null) {
+            return new Reservation(player.getUniqueId(), cells, null, refusal);
+        }
+        PathinatorConfig config = plugin.getPConfig();
+        if (!config.getLimitsEnabled() || player.hasPermission(PERM_BYPASS)) {
+            return new Reservation(player.getUniqueId(), cells, null, null);
+        }
+        Pending held = pending.computeIfAbsent(player.getUniqueId(), id -> new Pending());
+        held.jobs++;
+        held.cells += cells;
+        return new Reservation(player.getUniqueId(), cells, limitsFor(player, config), null);
+    }
+
+    private void unreserve(UUID playerId, long cells) {
+        Pending reserved = pending.get(playerId);
+        if (reserved != null) {
+            reserved.jobs--;
+            reserved.cells -= cells;
+            if (reserved.jobs <= 0) {
+                pending.remove(playerId);
+            }
+        }
+    }
+
+    private String check(Player player, long cells) {
+        PathinatorConfig config = plugin.getPConfig();
+        if (!config.getLimitsEnabled() || player.hasPermission(PERM_BYPASS)) {
+            return null;
+        }
+        Limits limits = limitsFor(player, config);
+        BuildScheduler scheduler = plugin.getBuildScheduler();
+        UUID playerId = player.getUniqueId();
+
+        Pending reserved = pending.getOrDefault(playerId, new Pending());
+
+        int jobs = scheduler.getActiveCount(playerId) + reserved.jobs;
+        if (jobs >= limits.maxJobs()) {
+            return "You already have " + jobs + " builds running, try again in about "
+                    + formatSeconds(scheduler.estimateSeconds(scheduler.getSmallestRemaining(playerId))) + ".";
+        }
+        long queued = scheduler.getQueuedCells(playerId) + reserved.cells;
+        if (queued + cells > limits.maxQueuedCells()) {
+            if (cells > limits.maxQueuedCells()) {
+                return "That build is too big, you may build at most " + limits.maxQueuedCells()
+                        + " blocks at a time.";
+            }
+            return "You already have " + queued + " blocks waiting to be built, try again in about "
+                    + formatSeconds(scheduler.estimateSeconds(queued + cells - limits.maxQueuedCells())) + ".";
+        }
+
+        // blocks of builds that haven't started yet are as good as spent
+        double tokens = refill(playerId, limits).tokens - reserved.cells;
+        if (tokens <= 0) {
+            return "You are building too fast, try again in about "
+                    + formatSeconds((-tokens + 1) / limits.blocksPerSecond()) + ".";
+        }
+        return null;
+    }
+
+    /**
+     * Forget every bucket that has filled up again, a full bucket is no different
+     * from a new one. Buckets that are still refilling are kept, also for players
+     * who have left, so logging out and back in doesn't reset a player's quota.
+     */
+    public void prune() {
+        long now = System.nanoTime();
+        buckets.entrySet().removeIf(entry -> {
+            Bucket bucket = entry.getValue();
+            double elapsed = (now - bucket.updated) / 1_000_000_000.0;
+            return !pending.containsKey(entry.getKey())
+                    && bucket.tokens + elapsed * bucket.limits.blocksPerSecond() >= bucket.limits.burst();
+        });
+    }
+
+    private Limits limitsFor(Player player, PathinatorConfig config) {
+        for (String group : config.getLimitGroups()) {
+            if (player.hasPermission(PERM_GROUP_PREFIX + group)) {
+                return config.getLimits("limits.groups." + group);
+            }
+        }
+        return config.getLimits("limits.default");
+    }
+
+    private Bucket refill(UUID playerId, Limits limits) {
+        long now = System.nanoTime();
+        Bucket bucket = buckets.get(playerId);
+        if (bucket == null) {
+            bucket = new Bucket();
+            bucket.tokens = limits.burst();
+            bucket.updated = now;
+            bucket.limits = limits;
+            buckets.put(playerId, bucket);
+            return bucket;
+        }
+        double elapsed = (now - bucket.updated) / 1_000_000_000.0;
+        bucket.tokens = Math.min(limits.burst(), bucket.tokens + elapsed * limits.blocksPerSecond());
+        bucket.updated = now;
+        bucket.limits = limits;
+        return bucket;
+    }
+
+    private static String formatSeconds(double seconds) {
+        long rounded = Math.max(1, (long) Math.ceil(seconds));
+        if (rounded < 120) {
+            return rounded + " seconds";
+        }
+        return ((rounded + 59) / 60) + " minutes";
+    }
+}
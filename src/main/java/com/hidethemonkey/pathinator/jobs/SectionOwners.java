@@ -0,0 +1,98 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2024 HideTheMonkey
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.hidethemonkey.pathinator.jobs;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Which BuildJob is working in each chunk section (16x16x16 blocks).
+ *
+ * A job claims the section of a cell before applying it. If another job owns
+ * the section, the job lets go of every section it holds and waits, so two jobs
+ * never work on the same blocks in the same tick, and since a waiting job holds
+ * nothing two jobs can't end up waiting on each other. Each job keeps at most
+ * MAX_HELD sections, the oldest is released when it claims another, unless the
+ * job has pinned them (a path segment keeps every section it checked until the
+ * whole segment has been placed).
+ *
+ * Keys are packed chunk section coordinates; worlds are not part of the key, so
+ * jobs in the same place in different worlds are serialized too, which is harmless.
+ */
+public class SectionOwners {
+
+    private static final int MAX_HELD = 8;
+    static final long NONE = Long.MIN_VALUE;
+
+    private final ConcurrentHashMap<Long, BuildJob> owners = new ConcurrentHashMap<>();
+
+    private static long key(int sectionX, int sectionY, int sectionZ) {
+        return ((long) (sectionX & 0x3FFFFF) << 42) | ((long) (sectionZ & 0x3FFFFF) << 20) | (sectionY & 0xFFFFF);
+    }
+
+    /**
+     * Claim the section holding a block for a job
+     * 
+     * @param job
+     * @param x
+     * @param y
+     * @param z
+     * @return false if another job owns it
+     */
+    public boolean claim(BuildJob job, int x, int y, int z) {
+        long key = key(x >> 4, y >> 4, z >> 4);
+        if (job.lastSection == key) {
+            return true;
+        }
+        BuildJob owner = owners.putIfAbsent(key, job);
+        if (owner == null) {
+            job.heldSections.addLast(key);
+            while (!job.pinSections && job.heldSections.size() > MAX_HELD) {
+                owners.remove(job.heldSections.removeFirst(), job);
+            }
+        } else if (owner != job) {
+            releaseAll(job);
+            return false;
+        }
+        job.lastSection = key;
+        return true;
+    }
+
+    /**
+     * Release every section a job holds
+     * 
+     * @param job
+     */
+    public void releaseAll(BuildJob job) {
+        for (long key : job.heldSections) {
+            owners.remove(key, job);
+        }
+        job.heldSections.clear();
+        job.lastSection = NONE;
+    }
+
+    public int size() {
+        return owners.size();
+    }
+}
@@ -0,0 +1,357 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2024 HideTheMonkey
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.hidethemonkey.pathinator.jobs;
+
+import java.util.BitSet;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BiConsumer;
+
+import org.bukkit.ChunkSnapshot;
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.block.BlockFace;
+import org.bukkit.block.data.BlockData;
+
+import com.hidethemonkey.pathinator.Pathinator;
+import com.hidethemonkey.pathinator.helpers.BlockHelper;
+import com.hidethemonkey.pathinator.helpers.BukkitWorldAccess;
+import com.hidethemonkey.pathinator.helpers.CrossSection;
+import com.hidethemonkey.pathinator.helpers.ExclusionVolumes;
+import com.hidethemonkey.pathinator.helpers.OpsMetrics;
+import com.hidethemonkey.pathinator.helpers.PlayerHelper;
+import com.hidethemonkey.pathinator.helpers.SurvivalLedger;
+import com.hidethemonkey.pathinator.helpers.TerrainSampler;
+import com.hidethemonkey.pathinator.helpers.WorldAccess;
+
+import io.papermc.paper.math.Position;
+
+/**
+ * Sweeps a compiled CrossSection along the direction of travel.
+ *
+ * Before the job is queued, {@link #prune(Pathinator)} can compare every cell
+ * against chunk snapshots and mark the ones that already hold what would be
+ * placed. Pruned cells are skipped without using any of the tick budget.
+ *
+ * A slice only counts as built once its path row is in place, so a survival job
+ * that runs out of blocks or a job that is dropped part way only reports the
+ * slices that were really placed.
+ */
+public class SweepJob extends BuildJob {
+
+    private final CrossSection section;
+    private final World world;
+    private final WorldAccess access;
+    private final int firstX;
+    private final int firstY;
+    private final int firstZ;
+    private final BlockFace facing;
+    private final BlockFace right;
+    private final int slices;
+    private final int width;
+    private final int height;
+    private final int blocksLeft;
+    private final int total;
+    private final Material[] materials;
+
+    private final ExclusionVolumes exclusions;
+
+    // cells that are already as they should be
+    private final BitSet pruned = new BitSet();
+    private int prunedCount = 0;
+    private int cursor = 0;
+    private int applied = 0;
+    // slices whose path row couldn't be placed
+    private final BitSet missing = new BitSet();
+    private BiConsumer<Integer, Integer> onPlaced;
+
+    /**
+     * @param section
+     * @param first          location of the centre of the path row of the first slice
+     * @param facing
+     * @param slices         number of slices to place
+     * @param exclusions     blocks above the path row that are never replaced
+     * @param playerHelper
+     * @param ledger
+     */
+    public SweepJob(CrossSection section, Location first, BlockFace facing, int slices, ExclusionVolumes exclusions,
+            PlayerHelper playerHelper, SurvivalLedger ledger) {
+        this(new BukkitWorldAccess(first.getWorld()), section, first, facing, slices, exclusions, playerHelper,
+                ledger);
+    }
+
+    /**
+     * A job that isn't tied to a server, to be run with {@link #applyAll()}. It
+     * can't be pruned, and exact sections are placed by material only.
+     * 
+     * @param access     usually a SparseWorld
+     * @param section
+     * @param first      location of the centre of the path row of the first slice, the world is ignored
+     * @param facing
+     * @param slices
+     * @param exclusions
+     * @param ledger
+     */
+    public SweepJob(WorldAccess access, CrossSection section, Location first, BlockFace facing, int slices,
+            ExclusionVolumes exclusions, SurvivalLedger ledger) {
+        this(access, section, first, facing, slices, exclusions, null, ledger);
+    }
+
+    private SweepJob(WorldAccess access, CrossSection section, Location first, BlockFace facing, int slices,
+            ExclusionVolumes exclusions, PlayerHelper playerHelper, SurvivalLedger ledger) {
+        super(playerHelper, ledger);
+        this.section = section;
+        this.world = first.getWorld();
+        this.access = access;
+        this.firstX = first.getBlockX();
+        this.firstY = first.getBlockY();
+        this.firstZ = first.getBlockZ();
+        this.facing = facing;
+        this.right = BlockHelper.rotate90(facing, false);
+        this.slices = Math.max(0, slices);
+        this.width = section.getWidth();
+        this.height = section.getHeight();
+        this.blocksLeft = section.getBlocksLeft();
+        this.total = this.slices * width * height;
+
+        BlockData[] palette = section.getPalette();
+        this.materials = new Material[palette.length];
+        for (int i = 0; i < palette.length; i++) {
+            materials[i] = palette[i].getMaterial();
+        }
+        this.exclusions = exclusions;
+    }
+
+    private int columnX(int slice, int column) {
+        return firstX + facing.getModX() * slice + right.getModX() * (column - blocksLeft);
+    }
+
+    private int columnZ(int slice, int column) {
+        return firstZ + facing.getModZ() * slice + right.getModZ() * (column - blocksLeft);
+    }
+
+    private boolean isProtected(int x, int y, int z, int row) {
+        return row > 0 && exclusions.contains(x, y, z);
+    }
+
+    /**
+     * Collect the exclusion volumes for a sweep: everyone standing in or next to it
+     * 
+     * @param section
+     * @param first
+     * @param facing
+     * @param slices
+     * @return
+     */
+    public static ExclusionVolumes gatherExclusions(CrossSection section, Location first, BlockFace facing,
+            int slices) {
+        BlockFace right = BlockHelper.rotate90(facing, false);
+        int blocksLeft = section.getBlocksLeft();
+        int last = Math.max(0, slices - 1);
+        int x1 = first.getBlockX() - right.getModX() * blocksLeft;
+        int z1 = first.getBlockZ() - right.getModZ() * blocksLeft;
+        int x2 = first.getBlockX() + facing.getModX() * last + right.getModX() * (section.getWidth() - 1 - blocksLeft);
+        int z2 = first.getBlockZ() + facing.getModZ() * last + right.getModZ() * (section.getWidth() - 1 - blocksLeft);
+        return ExclusionVolumes.gather(first.getWorld(), Math.min(x1, x2), first.getBlockY(), Math.min(z1, z2),
+                Math.max(x1, x2), first.getBlockY() + section.getHeight() - 1, Math.max(z1, z2));
+    }
+
+    /**
+     * Mark every cell that already matches the plan (or can never be changed) as
+     * pruned. Must be called before the job is submitted.
+     * 
+     * @param plugin
+     * @return a future completed (off the main thread) with the number of pruned cells
+     */
+    public CompletableFuture<Integer> prune(Pathinator plugin) {
+        int lastSlice = Math.max(0, slices - 1);
+        int x1 = Math.min(columnX(0, 0), columnX(lastSlice, width - 1));
+        int x2 = Math.max(columnX(0, 0), columnX(lastSlice, width - 1));
+        int z1 = Math.min(columnZ(0, 0), columnZ(lastSlice, width - 1));
+        int z2 = Math.max(columnZ(0, 0), columnZ(lastSlice, width - 1));
+        int worldMin = world.getMinHeight();
+        int worldMax = world.getMaxHeight();
+        return TerrainSampler.forEachSnapshot(plugin, world, x1, z1, x2, z2, snapshot -> {
+            BitSet local = pruneChunk(snapshot, worldMin, worldMax);
+            synchronized (pruned) {
+                pruned.or(local);
+            }
+        }).thenApply(ignored -> {
+            synchronized (pruned) {
+                prunedCount = pruned.cardinality();
+                return prunedCount;
+            }
+        });
+    }
+
+    private BitSet pruneChunk(ChunkSnapshot snapshot, int worldMin, int worldMax) {
+        BitSet local = new BitSet();
+        BlockData[] palette = section.getPalette();
+        for (int slice = 0; slice < slices; slice++) {
+            for (int column = 0; column < width; column++) {
+                int x = columnX(slice, column);
+                int z = columnZ(slice, column);
+                if (x >> 4 != snapshot.getX() || z >> 4 != snapshot.getZ()) {
+                    continue;
+                }
+                int base = (slice * width + column) * height;
+                for (int row = 0; row < height; row++) {
+                    int y = firstY + row;
+                    if (y < worldMin || y >= worldMax || isProtected(x, y, z, row)) {
+                        local.set(base + row);
+                        continue;
+                    }
+                    int id = section.getId(column, row);
+                    boolean same = section.isExact()
+                            ? snapshot.getBlockData(x & 15, y, z & 15).equals(palette[id])
+                            : snapshot.getBlockType(x & 15, y, z & 15) == materials[id];
+                    if (same) {
+                        local.set(base + row);
+                    }
+                }
+            }
+        }
+        return local;
+    }
+
+    /**
+     * Collect the blocks this job would place, for a preview. Pruned and protected
+     * cells are left out.
+     * 
+     * @param changes
+     */
+    public void preview(Map<Position, BlockData> changes) {
+        BlockData[] palette = section.getPalette();
+        BlockData[] plain = new BlockData[materials.length];
+        for (int i = 0; i < materials.length; i++) {
+            plain[i] = materials[i].createBlockData();
+        }
+        for (int cell = pruned.nextClearBit(cursor); cell < total; cell = pruned.nextClearBit(cell + 1)) {
+            int row = cell % height;
+            int column = (cell / height) % width;
+            int slice = cell / height / width;
+            int x = columnX(slice, column);
+            int y = firstY + row;
+            int z = columnZ(slice, column);
+            if (!isProtected(x, y, z, row)) {
+                int id = section.getId(column, row);
+                changes.put(Position.block(x, y, z), section.isExact() ? palette[id] : plain[id]);
+            }
+        }
+    }
+
+    @Override
+    protected boolean applyNext() {
+        int cell = pruned.nextClearBit(cursor);
+        if (cell >= total) {
+            cursor = total;
+            return false;
+        }
+        int row = cell % height;
+        int column = (cell / height) % width;
+        int slice = cell / height / width;
+        int x = columnX(slice, column);
+        int y = firstY + row;
+        int z = columnZ(slice, column);
+        if (!awaitCell(world, x, y, z, facing, slices - slice)) {
+            return true;
+        }
+        cursor = cell + 1;
+        applied++;
+
+        if (isProtected(x, y, z, row)) {
+            return true;
+        }
+        int id = section.getId(column, row);
+        if (section.isExact()) {
+            if (access instanceof BukkitWorldAccess) {
+                // no physics, so stairs, slabs, etc. keep exactly the captured state
+                world.getBlockAt(x, y, z).setBlockData(section.getPalette()[id], false);
+            } else {
+                access.setType(x, y, z, materials[id]);
+            }
+            OpsMetrics.BLOCKS_PLACED.increment();
+        } else {
+            ledger.replace(materials[id], access, x, y, z);
+            if (row == 0 && access.getType(x, y, z) != materials[id]) {
+                // out of blocks, or no tool to mine what was there
+                missing.set(slice);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Set what to tell about the slices that were built, once the job finishes or
+     * is dropped. It is called once for each unbroken run of built slices.
+     * 
+     * @param onPlaced given the first and last slice of a run
+     */
+    public void setOnPlaced(BiConsumer<Integer, Integer> onPlaced) {
+        this.onPlaced = onPlaced;
+    }
+
+    @Override
+    protected void onComplete() {
+        reportPlaced(slices);
+    }
+
+    @Override
+    protected void onCancelled() {
+        // only slices the cursor has moved past were handled
+        reportPlaced(width * height > 0 ? cursor / (width * height) : 0);
+    }
+
+    private void reportPlaced(int reached) {
+        if (onPlaced == null) {
+            return;
+        }
+        for (int from = missing.nextClearBit(0); from < reached; from = missing.nextClearBit(from)) {
+            int to = missing.nextSetBit(from);
+            to = to < 0 ? reached : Math.min(to, reached);
+            onPlaced.accept(from, to - 1);
+            from = to;
+        }
+    }
+
+    /**
+     * Cells left to place once pruned cells are taken out, so progress reaches the
+     * total and queue estimates don't count work that will be skipped
+     */
+    @Override
+    public long getTotal() {
+        return total - prunedCount;
+    }
+
+    @Override
+    public long getApplied() {
+        return applied;
+    }
+
+    public int getPrunedCount() {
+        return prunedCount;
+    }
+}
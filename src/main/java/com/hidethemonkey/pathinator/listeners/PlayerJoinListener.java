@@ -17,6 +17,7 @@ public class PlayerJoinListener implements Listener {
 
     @EventHandler
     public void onPlayerJoin(PlayerJoinEvent event) {
+        plugin.getJobManager().resumeFor(event.getPlayer());
         plugin.getMetrics().addCustomChart(
                 new SimplePie("player_locale",
                         () -> String.valueOf(event.getPlayer().locale().toString())));
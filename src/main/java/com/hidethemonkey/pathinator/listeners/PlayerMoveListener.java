@@ -34,7 +34,10 @@ import org.bukkit.event.player.PlayerMoveEvent;
 
 import com.hidethemonkey.pathinator.Pathinator;
 import com.hidethemonkey.pathinator.helpers.BlockHelper;
+import com.hidethemonkey.pathinator.helpers.FlightEvents;
 import com.hidethemonkey.pathinator.helpers.FollowRegistry;
+import com.hidethemonkey.pathinator.helpers.OpsMetrics;
+import com.hidethemonkey.pathinator.helpers.FollowRegistry.FollowState;
 
 public class PlayerMoveListener implements Listener {
 
@@ -50,17 +53,25 @@ public class PlayerMoveListener implements Listener {
 
     @EventHandler
     public void onPlayerMove(PlayerMoveEvent e) {
-        if (followRegistry.size() > 0 && followRegistry.isRegistered(e.getPlayer())) {
-            if (e.getFrom().getBlockX() != e.getTo().getBlockX() || e.getFrom().getBlockZ() != e.getTo().getBlockZ()) {
-                Player player = e.getPlayer();
-                Block block = blockHelper.getBlockUnderPlayer(player);
-                if (block.getType().isSolid()) {
-                    int radius = followRegistry.getRadius(player);
-                    Material material = followRegistry.getMaterial(player);
-                    Bukkit.getScheduler().runTaskLater(this.plugin, task -> {
-                        blockHelper.setBlocksInRadius(block, radius, material);
-                    }, 1);
-                }
+        if (followRegistry.isEmpty()) {
+            return;
+        }
+        if (e.getFrom().getBlockX() == e.getTo().getBlockX() && e.getFrom().getBlockZ() == e.getTo().getBlockZ()) {
+            return;
+        }
+        Player player = e.getPlayer();
+        FollowState state = followRegistry.get(player);
+        if (state != null) {
+            Block block = blockHelper.getBlockUnderPlayer(player);
+            if (block.getType().isSolid()) {
+                int radius = state.radius();
+                Material material = state.material();
+                Bukkit.getScheduler().runTaskLater(this.plugin, task -> {
+                    FlightEvents.FollowPaint event = FlightEvents.beginFollowPaint();
+                    int painted = blockHelper.setBlocksInRadius(block, radius, material);
+                    FlightEvents.endFollowPaint(event, player.getName(), radius, painted);
+                    OpsMetrics.FOLLOW_BLOCKS.observe(painted);
+                }, 1);
             }
         }
     }
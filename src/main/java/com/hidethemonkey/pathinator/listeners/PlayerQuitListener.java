@@ -5,17 +5,26 @@ import org.bukkit.event.Listener;
 import org.bukkit.event.player.PlayerQuitEvent;
 
 import com.hidethemonkey.pathinator.helpers.FollowRegistry;
+import com.hidethemonkey.pathinator.jobs.PreviewManager;
+import com.hidethemonkey.pathinator.jobs.QuotaManager;
 
 public class PlayerQuitListener implements Listener {
 
     private final FollowRegistry followRegistry;
+    private final PreviewManager previewManager;
+    private final QuotaManager quotaManager;
 
-    public PlayerQuitListener(FollowRegistry followRegistry) {
+    public PlayerQuitListener(FollowRegistry followRegistry, PreviewManager previewManager,
+            QuotaManager quotaManager) {
         this.followRegistry = followRegistry;
+        this.previewManager = previewManager;
+        this.quotaManager = quotaManager;
     }
 
     @EventHandler
     public void onPlayerQuit(PlayerQuitEvent event) {
         followRegistry.remove(event.getPlayer());
+        previewManager.remove(event.getPlayer());
+        quotaManager.prune();
     }
 }
@@ -0,0 +1,87 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2024 HideTheMonkey
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.hidethemonkey.pathinator.helpers;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+import org.bukkit.block.data.BlockData;
+import org.junit.jupiter.api.Test;
+
+class CrossSectionTest {
+
+    @Test
+    void widerSectionsLeanLeft() {
+        assertEquals(0, CrossSection.getBlocksLeft(1));
+        assertEquals(1, CrossSection.getBlocksLeft(2));
+        assertEquals(1, CrossSection.getBlocksLeft(3));
+        assertEquals(2, CrossSection.getBlocksLeft(4));
+        assertEquals(2, CrossSection.getBlocksLeft(5));
+    }
+
+    @Test
+    void blocksLeftPlusRightIsWidthWithoutCentre() {
+        for (int width = 1; width <= 15; width++) {
+            int left = CrossSection.getBlocksLeft(width);
+            int right = width - 1 - left;
+            assertTrue(left - right == 0 || left - right == 1, "width " + width);
+        }
+    }
+
+    @Test
+    void cellsAreStoredRowByRow() {
+        BlockData path = mock(BlockData.class);
+        BlockData air = mock(BlockData.class);
+        // 3 wide, path row plus two rows of clearance
+        short[] cells = { 0, 0, 0, 1, 1, 1, 1, 0, 1 };
+        CrossSection section = new CrossSection(3, 3, new BlockData[] { path, air }, cells, false);
+
+        assertEquals(3, section.getWidth());
+        assertEquals(3, section.getHeight());
+        assertEquals(1, section.getBlocksLeft());
+        assertEquals(9, section.size());
+        assertFalse(section.isExact());
+        for (int column = 0; column < 3; column++) {
+            assertEquals(0, section.getId(column, 0));
+            assertEquals(1, section.getId(column, 1));
+        }
+        assertEquals(1, section.getId(0, 2));
+        assertEquals(0, section.getId(1, 2));
+        assertEquals(1, section.getId(2, 2));
+        assertSame(air, section.getPalette()[section.getId(2, 1)]);
+    }
+
+    @Test
+    void exactSectionsKeepTheirPalette() {
+        BlockData stairs = mock(BlockData.class);
+        CrossSection section = new CrossSection(1, 1, new BlockData[] { stairs }, new short[] { 0 }, true);
+
+        assertTrue(section.isExact());
+        assertSame(stairs, section.getPalette()[section.getId(0, 0)]);
+    }
+}
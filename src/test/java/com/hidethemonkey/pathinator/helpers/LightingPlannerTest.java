@@ -0,0 +1,120 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2024 HideTheMonkey
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.hidethemonkey.pathinator.helpers;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+class LightingPlannerTest {
+
+    private static int[] level(int steps, int y) {
+        int[] ys = new int[steps];
+        Arrays.fill(ys, y);
+        return ys;
+    }
+
+    /**
+     * Light at the feet of every step with lights at the given steps, on a level
+     * path: a light beside the path reaches it at one less than it emits, then
+     * loses one per step.
+     */
+    private static int[] feetLevels(int steps, int[] lights, int emission) {
+        int[] levels = new int[steps];
+        for (int light : lights) {
+            for (int i = 0; i < steps; i++) {
+                levels[i] = Math.max(levels[i], emission - 1 - Math.abs(i - light));
+            }
+        }
+        return levels;
+    }
+
+    @Test
+    void darkPathGetsEvenlySpacedLights() {
+        int[] lights = new LightingPlanner(level(40, 64), 2, new int[] { 15 }).plan(new byte[40], 8);
+
+        // each light covers six steps either side at level 8 or more
+        assertArrayEquals(new int[] { 6, 19, 32, 39 }, lights);
+        for (int level : feetLevels(40, lights, 15)) {
+            assertTrue(level >= 8);
+        }
+    }
+
+    @Test
+    void alreadyLitStepsNeedNoLights() {
+        byte[] existing = new byte[20];
+        Arrays.fill(existing, (byte) 12);
+
+        assertEquals(0, new LightingPlanner(level(20, 64), 2, new int[] { 14 }).plan(existing, 8).length);
+    }
+
+    @Test
+    void onlyDarkStretchesAreLit() {
+        byte[] existing = new byte[30];
+        Arrays.fill(existing, 0, 15, (byte) 10);
+
+        int[] lights = new LightingPlanner(level(30, 64), 2, new int[] { 15 }).plan(existing, 8);
+
+        assertTrue(lights.length > 0);
+        for (int light : lights) {
+            assertTrue(light >= 15, "no light is needed where it is already bright");
+        }
+    }
+
+    @Test
+    void targetIsCappedByTheBrightestLight() {
+        // a light emitting 8 can only get the path to 7
+        int[] lights = new LightingPlanner(level(10, 64), 2, new int[] { 8 }).plan(new byte[10], 15);
+
+        int[] levels = feetLevels(10, lights, 8);
+        for (int level : levels) {
+            assertTrue(level >= 7);
+        }
+    }
+
+    @Test
+    void tooDimToHelp() {
+        assertEquals(0, new LightingPlanner(level(10, 64), 2, new int[] { 1 }).plan(new byte[10], 8).length);
+        assertEquals(0, new LightingPlanner(new int[0], 2, new int[] { 15 }).plan(new byte[0], 8).length);
+    }
+
+    @Test
+    void stepsAreAscending() {
+        int[] ys = new int[50];
+        for (int i = 0; i < ys.length; i++) {
+            ys[i] = 64 + i / 5;
+        }
+        int[] lights = new LightingPlanner(ys, 3, new int[] { 0, 15 }).plan(new byte[50], 10);
+
+        assertTrue(lights.length > 0);
+        for (int i = 1; i < lights.length; i++) {
+            assertTrue(lights[i] > lights[i - 1]);
+        }
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2024 HideTheMonkey
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.hidethemonkey.pathinator.helpers;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import com.hidethemonkey.pathinator.helpers.RoutePlanner.RoutePlan;
+
+class RoutePlannerTest {
+
+    private static final RoutePlanner.Settings SETTINGS = new RoutePlanner.Settings(10_000, 1, 2, 8, 4);
+
+    private static TerrainGrid flat(int size, int height) {
+        TerrainGrid grid = new TerrainGrid(0, 0, size - 1, size - 1);
+        for (int x = 0; x < size; x++) {
+            for (int z = 0; z < size; z++) {
+                grid.set(x, z, height, TerrainGrid.LAND);
+            }
+        }
+        return grid;
+    }
+
+    @Test
+    void straightLineOnFlatGround() {
+        RoutePlan plan = new RoutePlanner(flat(16, 64), SETTINGS).plan(2, 64, 5, 10, 5);
+
+        assertTrue(plan.found());
+        assertEquals(8, plan.getLength());
+        for (int i = 0; i < plan.getLength(); i++) {
+            assertEquals(3 + i, plan.xs()[i]);
+            assertEquals(64, plan.ys()[i]);
+            assertEquals(5, plan.zs()[i]);
+        }
+    }
+
+    @Test
+    void everyStepIsOneCardinalMove() {
+        RoutePlan plan = new RoutePlanner(flat(16, 64), SETTINGS).plan(1, 64, 1, 12, 9);
+
+        assertTrue(plan.found());
+        // Manhattan distance is the shortest possible route on flat ground
+        assertEquals(11 + 8, plan.getLength());
+        int x = 1;
+        int z = 1;
+        for (int i = 0; i < plan.getLength(); i++) {
+            assertEquals(1, Math.abs(plan.xs()[i] - x) + Math.abs(plan.zs()[i] - z));
+            x = plan.xs()[i];
+            z = plan.zs()[i];
+        }
+        assertEquals(12, x);
+        assertEquals(9, z);
+    }
+
+    @Test
+    void goesAroundLava() {
+        TerrainGrid grid = flat(16, 64);
+        // a wall of lava across x = 8 with a gap at z = 14
+        for (int z = 0; z < 14; z++) {
+            grid.set(8, z, 64, TerrainGrid.LAVA);
+        }
+        RoutePlan plan = new RoutePlanner(grid, SETTINGS).plan(2, 64, 2, 13, 2);
+
+        assertTrue(plan.found());
+        for (int i = 0; i < plan.getLength(); i++) {
+            if (plan.xs()[i] == 8) {
+                assertEquals(14, plan.zs()[i], "the route may only cross the wall at the gap");
+            }
+        }
+    }
+
+    @Test
+    void slopesNeverExceedMaxStep() {
+        TerrainGrid grid = flat(16, 64);
+        // a cliff five blocks high
+        for (int x = 8; x < 16; x++) {
+            for (int z = 0; z < 16; z++) {
+                grid.set(x, z, 69, TerrainGrid.LAND);
+            }
+        }
+        RoutePlan plan = new RoutePlanner(grid, SETTINGS).plan(2, 64, 4, 14, 4);
+
+        assertTrue(plan.found());
+        int y = 64;
+        for (int i = 0; i < plan.getLength(); i++) {
+            assertTrue(Math.abs(plan.ys()[i] - y) <= SETTINGS.maxStep());
+            y = plan.ys()[i];
+        }
+    }
+
+    @Test
+    void unknownColumnsAreImpassable() {
+        TerrainGrid grid = flat(16, 64);
+        for (int z = 0; z < 16; z++) {
+            grid.set(8, z, 64, TerrainGrid.UNKNOWN);
+        }
+        RoutePlan plan = new RoutePlanner(grid, SETTINGS).plan(2, 64, 2, 13, 2);
+
+        assertFalse(plan.found());
+        assertEquals(0, plan.getLength());
+    }
+
+    @Test
+    void givesUpAfterMaxNodes() {
+        RoutePlanner.Settings tight = new RoutePlanner.Settings(5, 1, 2, 8, 4);
+        RoutePlan plan = new RoutePlanner(flat(32, 64), tight).plan(0, 64, 0, 31, 31);
+
+        assertFalse(plan.found());
+        assertEquals(5, plan.expanded());
+    }
+
+    @Test
+    void goalOutsideTheGridIsNotFound() {
+        RoutePlan plan = new RoutePlanner(flat(8, 64), SETTINGS).plan(1, 64, 1, 20, 1);
+
+        assertFalse(plan.found());
+        assertEquals(0, plan.expanded());
+    }
+
+    @Test
+    void cornersKeepEndsAndTurns() {
+        RoutePlan plan = new RoutePlan(new int[] { 1, 2, 3, 3, 3 }, new int[] { 64, 64, 64, 65, 65 },
+                new int[] { 0, 0, 0, 1, 2 }, 0, 0);
+
+        int[][] corners = RoutePlanner.corners(plan);
+
+        assertArrayEquals(new int[] { 1, 3, 3, 3 }, corners[0]);
+        assertArrayEquals(new int[] { 64, 64, 65, 65 }, corners[1]);
+        assertArrayEquals(new int[] { 0, 0, 1, 2 }, corners[2]);
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2024 HideTheMonkey
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.hidethemonkey.pathinator.helpers;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.bukkit.Material;
+import org.junit.jupiter.api.Test;
+
+class SparseWorldTest {
+
+    private static List<Material> blocks(int count) {
+        List<Material> materials = new ArrayList<>(count);
+        for (Material material : Material.values()) {
+            if (materials.size() == count) {
+                break;
+            }
+            if (material != Material.AIR && material != Material.CAVE_AIR && material != Material.VOID_AIR
+                    && !material.name().startsWith("LEGACY_")) {
+                materials.add(material);
+            }
+        }
+        return materials;
+    }
+
+    private static long pack(int x, int y, int z) {
+        return ((long) x & 0x3FFFFFF) << 38 | ((long) z & 0x3FFFFFF) << 12 | (y & 0xFFF);
+    }
+
+    @Test
+    void startsOutAsAir() {
+        SparseWorld world = new SparseWorld();
+
+        assertEquals(Material.AIR, world.getType(0, 0, 0));
+        assertEquals(Material.AIR, world.getType(-12345, 200, 67890));
+        assertEquals(0, world.getSectionCount());
+    }
+
+    @Test
+    void outsideTheHeightIsVoid() {
+        SparseWorld world = new SparseWorld(0, 256);
+        world.setType(0, -1, 0, Material.STONE);
+        world.setType(0, 256, 0, Material.STONE);
+
+        assertEquals(Material.VOID_AIR, world.getType(0, -1, 0));
+        assertEquals(Material.VOID_AIR, world.getType(0, 256, 0));
+        assertEquals(Material.AIR, world.getType(0, 255, 0));
+        assertEquals(0, world.getSectionCount());
+        assertEquals(0, world.getMinHeight());
+        assertEquals(256, world.getMaxHeight());
+    }
+
+    @Test
+    void onlyAirAndLiquidsAreNotSolid() {
+        SparseWorld world = new SparseWorld();
+        world.setType(0, 0, 0, Material.STONE);
+        world.setType(1, 0, 0, Material.WATER);
+        world.setType(2, 0, 0, Material.LAVA);
+
+        assertTrue(world.isSolid(0, 0, 0));
+        assertFalse(world.isSolid(1, 0, 0));
+        assertFalse(world.isSolid(2, 0, 0));
+        assertFalse(world.isSolid(3, 0, 0));
+    }
+
+    @Test
+    void airDoesNotAllocate() {
+        SparseWorld world = new SparseWorld();
+        world.setType(5, 5, 5, Material.AIR);
+
+        assertEquals(0, world.getSectionCount());
+    }
+
+    @Test
+    void blocksAreKeptPerSection() {
+        SparseWorld world = new SparseWorld();
+        world.setType(0, 0, 0, Material.STONE);
+        world.setType(15, 15, 15, Material.DIRT);
+        world.setType(16, 0, 0, Material.STONE);
+        world.setType(-1, -1, -1, Material.DIRT);
+
+        assertEquals(Material.STONE, world.getType(0, 0, 0));
+        assertEquals(Material.DIRT, world.getType(15, 15, 15));
+        assertEquals(Material.STONE, world.getType(16, 0, 0));
+        assertEquals(Material.DIRT, world.getType(-1, -1, -1));
+        assertEquals(Material.AIR, world.getType(1, 0, 0));
+        assertEquals(3, world.getSectionCount());
+    }
+
+    @Test
+    void overwritingKeepsTheLatest() {
+        SparseWorld world = new SparseWorld();
+        world.setType(3, 70, 3, Material.STONE);
+        world.setType(3, 70, 3, Material.DIRT);
+        world.setType(3, 71, 3, Material.STONE);
+        world.setType(3, 71, 3, Material.AIR);
+
+        assertEquals(Material.DIRT, world.getType(3, 70, 3));
+        assertEquals(Material.AIR, world.getType(3, 71, 3));
+    }
+
+    @Test
+    void paletteGrowsPastSixteenAndTwoHundredFiftySixMaterials() {
+        List<Material> materials = blocks(300);
+        SparseWorld world = new SparseWorld();
+        // every block of one section, cycling through the materials
+        for (int i = 0; i < 16 * 16 * 16; i++) {
+            world.setType(i & 15, i >> 8, (i >> 4) & 15, materials.get(i % materials.size()));
+        }
+        for (int i = 0; i < 16 * 16 * 16; i++) {
+            assertEquals(materials.get(i % materials.size()), world.getType(i & 15, i >> 8, (i >> 4) & 15));
+        }
+        assertEquals(1, world.getSectionCount());
+    }
+
+    @Test
+    void matchesAMapUnderRandomWrites() {
+        List<Material> materials = blocks(40);
+        materials.add(Material.AIR);
+        Map<Long, Material> expected = new HashMap<>();
+        SparseWorld world = new SparseWorld();
+        Random random = new Random(42);
+
+        for (int i = 0; i < 200_000; i++) {
+            int x = random.nextInt(512) - 256;
+            int y = random.nextInt(384) - 64;
+            int z = random.nextInt(512) - 256;
+            Material material = materials.get(random.nextInt(materials.size()));
+            world.setType(x, y, z, material);
+            expected.put(pack(x, y, z), material);
+        }
+        for (Map.Entry<Long, Material> entry : expected.entrySet()) {
+            long key = entry.getKey();
+            int x = (int) (key >> 38);
+            int z = (int) (key << 26 >> 38);
+            int y = (int) (key << 52 >> 52);
+            assertEquals(entry.getValue(), world.getType(x, y, z));
+        }
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2024 HideTheMonkey
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.hidethemonkey.pathinator.jobs;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+class BudgetControllerTest {
+
+    private static final double TARGET = 40.0;
+
+    @Test
+    void growsAdditivelyUnderTarget() {
+        BudgetController controller = new BudgetController(100);
+
+        assertEquals(150, controller.adjust(20.0, TARGET, 50, 10, 1000));
+        assertEquals(200, controller.adjust(20.0, TARGET, 50, 10, 1000));
+        assertEquals(200, controller.getBudget());
+    }
+
+    @Test
+    void halvesOverTarget() {
+        BudgetController controller = new BudgetController(800);
+
+        assertEquals(400, controller.adjust(45.0, TARGET, 50, 10, 1000));
+        assertEquals(200, controller.adjust(45.0, TARGET, 50, 10, 1000));
+    }
+
+    @Test
+    void dropsToMinimumWhenBehind() {
+        BudgetController controller = new BudgetController(800);
+
+        assertEquals(10, controller.adjust(50.0, TARGET, 50, 10, 1000));
+        assertEquals(10, controller.adjust(75.0, TARGET, 50, 10, 1000));
+    }
+
+    @Test
+    void staysWithinBounds() {
+        BudgetController controller = new BudgetController(990);
+
+        assertEquals(1000, controller.adjust(5.0, TARGET, 50, 10, 1000));
+        assertEquals(1000, controller.adjust(5.0, TARGET, 50, 10, 1000));
+
+        BudgetController low = new BudgetController(15);
+        assertEquals(10, low.adjust(45.0, TARGET, 50, 10, 1000));
+    }
+
+    @Test
+    void recoversAfterASpike() {
+        BudgetController controller = new BudgetController(1000);
+        controller.adjust(60.0, TARGET, 100, 10, 1000);
+
+        int budget = controller.getBudget();
+        for (int i = 0; i < 5; i++) {
+            budget = controller.adjust(30.0, TARGET, 100, 10, 1000);
+        }
+        assertEquals(510, budget);
+    }
+}
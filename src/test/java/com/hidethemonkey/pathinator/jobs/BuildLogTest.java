@@ -0,0 +1,282 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2024 HideTheMonkey
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.hidethemonkey.pathinator.jobs;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.block.BlockFace;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class BuildLogTest {
+
+    private static final Logger LOGGER = Logger.getLogger(BuildLogTest.class.getName());
+
+    @TempDir
+    File folder;
+
+    private File file;
+    private World world;
+    private final UUID playerId = UUID.randomUUID();
+
+    @BeforeEach
+    void setUp() {
+        file = new File(folder, "jobs.log");
+        world = mock(World.class);
+        when(world.getUID()).thenReturn(UUID.randomUUID());
+    }
+
+    private PathJob job(PathJob.Type type, int distance) {
+        PathJob job = new PathJob(type, playerId, new Location(world, 10, 64, -20), BlockFace.EAST,
+                Material.DIRT_PATH, distance);
+        job.setClearance(2, Material.AIR);
+        return job;
+    }
+
+    private static List<PathJob> reopen(File file) throws IOException {
+        BuildLog log = new BuildLog(file, LOGGER);
+        List<PathJob> jobs = new ArrayList<>(log.open());
+        log.close();
+        return jobs;
+    }
+
+    @Test
+    void unfinishedJobsAreReplayedWithTheirCursor() throws IOException {
+        PathJob running = job(PathJob.Type.BASIC, 30);
+        PathJob finished = job(PathJob.Type.TRACKS, 10);
+
+        BuildLog log = new BuildLog(file, LOGGER);
+        assertTrue(log.open().isEmpty());
+        log.start(running);
+        log.start(finished);
+        log.progress(running.getId(), 7);
+        log.progress(running.getId(), 12);
+        log.end(finished.getId());
+        log.close();
+
+        List<PathJob> jobs = reopen(file);
+        assertEquals(1, jobs.size());
+        PathJob replayed = jobs.get(0);
+        assertEquals(running.getId(), replayed.getId());
+        assertEquals(12, replayed.getCursor());
+        assertEquals(PathJob.Type.BASIC, replayed.getType());
+        assertEquals(playerId, replayed.getPlayerId());
+        assertEquals(world.getUID(), replayed.getWorldId());
+        assertEquals(10, replayed.getStartX());
+        assertEquals(64, replayed.getStartY());
+        assertEquals(-20, replayed.getStartZ());
+        assertEquals(BlockFace.EAST, replayed.getFacing());
+        assertEquals(Material.DIRT_PATH, replayed.getMaterial());
+        assertEquals(30, replayed.getDistance());
+        assertEquals(2, replayed.getClearance());
+        assertEquals(Material.AIR, replayed.getClearanceMaterial());
+        assertEquals(running.countCells(12), replayed.countCells(12));
+    }
+
+    @Test
+    void optionalSectionsSurviveTheRoundTrip() throws IOException {
+        PathJob route = job(PathJob.Type.ROUTE, 4);
+        route.setRoute(new int[] { 11, 12, 12, 12 }, new int[] { 64, 65, 65, 66 }, new int[] { -20, -20, -19, -18 });
+        route.setLightSteps(new int[] { 1, 3 });
+        PathJob track = job(PathJob.Type.TRACKS, 20);
+        track.setPower(8);
+        track.setProfile(new int[20]);
+
+        BuildLog log = new BuildLog(file, LOGGER);
+        log.open();
+        log.start(route);
+        log.start(track);
+        log.close();
+
+        List<PathJob> jobs = reopen(file);
+        assertEquals(2, jobs.size());
+        PathJob replayed = jobs.get(0);
+        assertTrue(replayed.isRoute());
+        for (int i = 0; i < 4; i++) {
+            assertEquals(route.getX(i), replayed.getX(i));
+            assertEquals(route.getY(i), replayed.getY(i));
+            assertEquals(route.getZ(i), replayed.getZ(i));
+            assertEquals(route.getFacing(i), replayed.getFacing(i));
+            assertEquals(route.hasLightAt(i), replayed.hasLightAt(i));
+        }
+        assertEquals(BlockFace.SOUTH, replayed.getFacing(2));
+
+        PathJob powered = jobs.get(1);
+        assertFalse(powered.isRoute());
+        assertTrue(powered.getWithPower());
+        assertTrue(powered.getFollowsTerrain());
+        assertEquals(track.countCells(0), powered.countCells(0));
+    }
+
+    @Test
+    void compactionKeepsOnlyUnfinishedJobs() throws IOException {
+        BuildLog log = new BuildLog(file, LOGGER);
+        log.open();
+        for (int i = 0; i < 50; i++) {
+            PathJob done = job(PathJob.Type.BASIC, 5);
+            log.start(done);
+            log.progress(done.getId(), 3);
+            log.end(done.getId());
+        }
+        PathJob kept = job(PathJob.Type.BASIC, 5);
+        log.start(kept);
+        log.close();
+        long before = file.length();
+
+        assertEquals(1, reopen(file).size());
+        assertTrue(file.length() < before);
+        // compacting twice changes nothing
+        long compacted = file.length();
+        assertEquals(kept.getId(), reopen(file).get(0).getId());
+        assertEquals(compacted, file.length());
+    }
+
+    @Test
+    void completedCursorDropsTheJob() throws IOException {
+        PathJob job = job(PathJob.Type.BASIC, 5);
+        BuildLog log = new BuildLog(file, LOGGER);
+        log.open();
+        log.start(job);
+        log.progress(job.getId(), 5);
+        log.close();
+
+        assertTrue(reopen(file).isEmpty());
+    }
+
+    @Test
+    void tornWriteIsIgnored() throws IOException {
+        PathJob first = job(PathJob.Type.BASIC, 30);
+        PathJob second = job(PathJob.Type.BASIC, 30);
+        BuildLog log = new BuildLog(file, LOGGER);
+        log.open();
+        log.start(first);
+        log.progress(first.getId(), 4);
+        log.start(second);
+        log.close();
+
+        // cut the last record in half, as a crash mid-write would
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(raf.length() - 10);
+        }
+
+        List<PathJob> jobs = reopen(file);
+        assertEquals(1, jobs.size());
+        assertEquals(first.getId(), jobs.get(0).getId());
+        assertEquals(4, jobs.get(0).getCursor());
+    }
+
+    @Test
+    void damagedRecordStopsTheReplay() throws IOException {
+        PathJob first = job(PathJob.Type.BASIC, 30);
+        BuildLog log = new BuildLog(file, LOGGER);
+        log.open();
+        log.start(first);
+        log.progress(first.getId(), 4);
+        log.progress(first.getId(), 9);
+        log.close();
+
+        // flip a byte in the cursor of the last progress record
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            long at = raf.length() - 5;
+            raf.seek(at);
+            int value = raf.read();
+            raf.seek(at);
+            raf.write(value ^ 0xFF);
+        }
+
+        List<PathJob> jobs = reopen(file);
+        assertEquals(1, jobs.size());
+        assertEquals(4, jobs.get(0).getCursor());
+    }
+
+    @Test
+    void undecodableJobOnlyLosesItself() throws IOException {
+        PathJob unknown = job(PathJob.Type.BASIC, 30);
+        PathJob second = job(PathJob.Type.TRACKS, 30);
+        BuildLog log = new BuildLog(file, LOGGER);
+        log.open();
+        log.start(unknown);
+        log.progress(unknown.getId(), 3);
+        log.start(second);
+        log.progress(second.getId(), 8);
+        log.close();
+
+        // rename the first job's material, as a server update removing it would, and
+        // keep the frame's checksum valid
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            byte type = raf.readByte();
+            byte[] payload = new byte[raf.readInt()];
+            raf.readFully(payload);
+            String text = new String(payload, StandardCharsets.ISO_8859_1).replace("DIRT_PATH", "DIRT_PATX");
+            payload = text.getBytes(StandardCharsets.ISO_8859_1);
+            CRC32 crc = new CRC32();
+            crc.update(type);
+            crc.update(payload);
+            raf.seek(5);
+            raf.write(payload);
+            raf.writeInt((int) crc.getValue());
+        }
+
+        List<PathJob> jobs = reopen(file);
+        assertEquals(1, jobs.size());
+        assertEquals(second.getId(), jobs.get(0).getId());
+        assertEquals(8, jobs.get(0).getCursor());
+    }
+
+    @Test
+    void routeCursorStepsArePreserved() throws IOException {
+        PathJob route = job(PathJob.Type.ROUTE, 3);
+        route.setRoute(new int[] { 11, 12, 13 }, new int[] { 64, 64, 64 }, new int[] { -20, -20, -20 });
+        route.setCursor(1);
+
+        BuildLog log = new BuildLog(file, LOGGER);
+        log.open();
+        log.start(route);
+        log.close();
+
+        PathJob replayed = reopen(file).get(0);
+        assertEquals(1, replayed.getCursor());
+        assertArrayEquals(new int[] { 12, 13 }, new int[] { replayed.getX(1), replayed.getX(2) });
+    }
+}
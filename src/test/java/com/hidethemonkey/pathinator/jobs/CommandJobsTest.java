@@ -0,0 +1,312 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2024 HideTheMonkey
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.hidethemonkey.pathinator.jobs;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Function;
+
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.block.BlockFace;
+import org.bukkit.block.data.BlockData;
+import org.junit.jupiter.api.Test;
+
+import com.hidethemonkey.pathinator.helpers.BlockHelper;
+import com.hidethemonkey.pathinator.helpers.CrossSection;
+import com.hidethemonkey.pathinator.helpers.ExclusionVolumes;
+import com.hidethemonkey.pathinator.helpers.MemoryInventory;
+import com.hidethemonkey.pathinator.helpers.SparseWorld;
+import com.hidethemonkey.pathinator.helpers.SurvivalLedger;
+
+/**
+ * Runs the job behind each command against a SparseWorld and a MemoryInventory
+ * the way the BuildScheduler does, a budget of cells per tick with the ledger
+ * flushed after each tick, and checks the blocks, the inventory and the tick
+ * stats. The allocation limits are well above what the jobs need, they are only
+ * there to catch a job that suddenly allocates per block.
+ */
+class CommandJobsTest {
+
+    private static final int BUDGET = 64;
+    private static final int WARMUP_RUNS = 3;
+    // path jobs allocate a SegmentData per segment
+    private static final double MAX_PATH_BYTES_PER_BLOCK = 512;
+    private static final double MAX_BYTES_PER_BLOCK = 64;
+
+    /**
+     * Apply a job to the end, one scheduler tick at a time
+     * 
+     * @param job
+     * @return the stats the scheduler would have kept
+     */
+    private static BuildStats run(BuildJob job) {
+        BuildStats stats = new BuildStats();
+        boolean finished = false;
+        while (!finished) {
+            stats.begin();
+            int used = 0;
+            while (used < BUDGET) {
+                if (!job.applyNext()) {
+                    finished = true;
+                    break;
+                }
+                used++;
+            }
+            job.getLedger().flush();
+            stats.end(used);
+        }
+        job.markDone();
+        job.onComplete();
+
+        assertEquals(job.getTotal(), stats.getBlocks());
+        assertTrue(stats.getPeakBlocksPerTick() <= BUDGET);
+        assertTrue(stats.getBusyTicks() <= job.getTotal() / BUDGET + 1,
+                () -> stats.getBusyTicks() + " ticks for " + job.getTotal() + " cells");
+        return stats;
+    }
+
+    private static void assertAllocations(Function<SparseWorld, BuildJob> create, double limit) {
+        for (int i = 0; i < WARMUP_RUNS; i++) {
+            run(create.apply(new SparseWorld()));
+        }
+        BuildStats stats = run(create.apply(new SparseWorld()));
+        assumeTrue(stats.getBytesPerBlock() >= 0, "thread allocation counting is not available");
+        assertTrue(stats.getBytesPerBlock() <= limit, () -> stats.getBytesPerBlock() + " bytes/block");
+    }
+
+    private static PathJob path(PathJob.Type type, int distance) {
+        World world = mock(World.class);
+        when(world.getUID()).thenReturn(UUID.randomUUID());
+        PathJob job = new PathJob(type, UUID.randomUUID(), new Location(world, 0, 64, 0), BlockFace.EAST,
+                Material.COBBLESTONE, distance);
+        job.setClearance(2, Material.AIR);
+        return job;
+    }
+
+    private static PathBuildJob basic(SparseWorld world, int distance, MemoryInventory inventory) {
+        // stone to pave over, with dirt above it to clear
+        for (int x = 1; x <= distance; x++) {
+            world.setType(x, 64, 0, Material.STONE);
+            world.setType(x, 65, 0, Material.DIRT);
+            world.setType(x, 66, 0, Material.DIRT);
+        }
+        return new PathBuildJob(path(PathJob.Type.BASIC, distance), world, new ExclusionVolumes(),
+                new SurvivalLedger(inventory));
+    }
+
+    private static PathBuildJob tracks(SparseWorld world, int distance, MemoryInventory inventory) {
+        PathJob job = path(PathJob.Type.TRACKS, distance);
+        job.setPower(10);
+        return new PathBuildJob(job, world, new ExclusionVolumes(), new SurvivalLedger(inventory));
+    }
+
+    private static SweepJob custom(SparseWorld world, int distance, MemoryInventory inventory) {
+        BlockData path = mock(BlockData.class);
+        when(path.getMaterial()).thenReturn(Material.COBBLESTONE);
+        BlockData air = mock(BlockData.class);
+        when(air.getMaterial()).thenReturn(Material.AIR);
+        // 3 wide, a path row and two rows of clearance, as path:custom <distance> 3 3
+        CrossSection section = new CrossSection(3, 3, new BlockData[] { path, air },
+                new short[] { 0, 0, 0, 1, 1, 1, 1, 1, 1 }, false);
+        for (int x = 0; x < distance; x++) {
+            for (int z = -1; z <= 1; z++) {
+                world.setType(x, 64, z, Material.STONE);
+                world.setType(x, 65, z, Material.DIRT);
+            }
+        }
+        return new SweepJob(world, section, new Location(null, 0, 64, 0), BlockFace.EAST, distance,
+                new ExclusionVolumes(), new SurvivalLedger(inventory));
+    }
+
+    private static DigJob dig(SparseWorld world, int distance, MemoryInventory inventory) {
+        // a solid block of stone to tunnel through, as path:dig ahead <distance> 3 3
+        for (int x = -1; x <= 1; x++) {
+            for (int y = 64; y <= 66; y++) {
+                for (int z = 1; z <= distance; z++) {
+                    world.setType(x, y, z, Material.STONE);
+                }
+            }
+        }
+        return new DigJob(world, new Location(null, 0, 64, 0), BlockFace.SOUTH, DigJob.Pattern.AHEAD, 3, 3,
+                distance, new SurvivalLedger(inventory));
+    }
+
+    @Test
+    void basicPathUsesTheInventoryAndWearsTools() {
+        SparseWorld world = new SparseWorld();
+        MemoryInventory inventory = new MemoryInventory(true);
+        inventory.give(Material.COBBLESTONE, 15);
+        inventory.giveTool(Material.IRON_PICKAXE, 100, Material.STONE);
+        inventory.giveTool(Material.IRON_SHOVEL, 100, Material.DIRT);
+
+        run(basic(world, 20, inventory));
+
+        for (int x = 1; x <= 20; x++) {
+            assertEquals(x <= 15 ? Material.COBBLESTONE : Material.STONE, world.getType(x, 64, 0));
+            assertEquals(Material.AIR, world.getType(x, 65, 0));
+            assertEquals(Material.AIR, world.getType(x, 66, 0));
+        }
+        assertEquals(0, inventory.count(Material.COBBLESTONE));
+        // only the stone that was paved over was mined
+        assertEquals(85, inventory.getDurability(Material.IRON_PICKAXE));
+        assertEquals(60, inventory.getDurability(Material.IRON_SHOVEL));
+    }
+
+    @Test
+    void tracksPlaceRailsAndPower() {
+        SparseWorld world = new SparseWorld();
+        MemoryInventory inventory = new MemoryInventory(false);
+        inventory.giveTool(Material.IRON_PICKAXE, 100, Material.STONE);
+
+        run(tracks(world, 40, inventory));
+
+        for (int x = 1; x <= 40; x++) {
+            // segment x - 1, powered every 10 segments
+            boolean powered = x > 1 && (x - 1) % 10 == 0;
+            assertEquals(Material.COBBLESTONE, world.getType(x, 64, 0));
+            assertEquals(powered ? Material.POWERED_RAIL : Material.RAIL, world.getType(x, 65, 0));
+            assertEquals(Material.AIR, world.getType(x, 66, 0));
+            // the torch is to the left of the track
+            assertEquals(powered ? Material.COBBLESTONE : Material.AIR, world.getType(x, 64, -1));
+            assertEquals(powered ? Material.REDSTONE_TORCH : Material.AIR, world.getType(x, 65, -1));
+        }
+        // creative takes nothing and wears nothing
+        assertEquals(0, inventory.count(Material.COBBLESTONE));
+        assertEquals(100, inventory.getDurability(Material.IRON_PICKAXE));
+    }
+
+    @Test
+    void customPathStopsPavingWhenTheInventoryRunsOut() {
+        SparseWorld world = new SparseWorld();
+        MemoryInventory inventory = new MemoryInventory(true);
+        inventory.give(Material.COBBLESTONE, 20);
+        inventory.giveTool(Material.IRON_PICKAXE, 100, Material.STONE);
+        inventory.giveTool(Material.IRON_SHOVEL, 100, Material.DIRT);
+        SweepJob job = custom(world, 10, inventory);
+        List<int[]> runs = new ArrayList<>();
+        job.setOnPlaced((from, to) -> runs.add(new int[] { from, to }));
+
+        run(job);
+
+        int paved = 0;
+        for (int x = 0; x < 10; x++) {
+            for (int z = -1; z <= 1; z++) {
+                if (world.getType(x, 64, z) == Material.COBBLESTONE) {
+                    paved++;
+                }
+                assertEquals(Material.AIR, world.getType(x, 65, z));
+            }
+        }
+        assertEquals(20, paved);
+        assertEquals(0, inventory.count(Material.COBBLESTONE));
+        assertEquals(80, inventory.getDurability(Material.IRON_PICKAXE));
+        assertEquals(70, inventory.getDurability(Material.IRON_SHOVEL));
+        // slice 6 only got two of its three blocks, so only slices 0 to 5 count
+        assertEquals(1, runs.size());
+        assertEquals(0, runs.get(0)[0]);
+        assertEquals(5, runs.get(0)[1]);
+    }
+
+    @Test
+    void followPaintsOnlySolidGround() {
+        SparseWorld world = new SparseWorld();
+        for (int x = -3; x <= 3; x++) {
+            for (int z = -3; z <= 3; z++) {
+                world.setType(x, 64, z, Material.GRASS_BLOCK);
+            }
+        }
+        world.setType(1, 64, 1, Material.WATER);
+        world.setType(-1, 64, 0, Material.AIR);
+        world.setType(2, 64, 2, Material.OAK_PLANKS);
+
+        int painted = new BlockHelper(null).setBlocksInRadius(world, 0, 64, 0, 2, Material.OAK_PLANKS);
+
+        assertEquals(25 - 3, painted);
+        assertEquals(Material.OAK_PLANKS, world.getType(-2, 64, -2));
+        assertEquals(Material.WATER, world.getType(1, 64, 1));
+        assertEquals(Material.AIR, world.getType(-1, 64, 0));
+        assertEquals(Material.GRASS_BLOCK, world.getType(3, 64, 0));
+        assertEquals(Material.AIR, world.getType(0, 65, 0));
+    }
+
+    @Test
+    void digStopsMiningWhenThePickaxeBreaks() {
+        SparseWorld world = new SparseWorld();
+        MemoryInventory inventory = new MemoryInventory(true);
+        inventory.giveTool(Material.WOODEN_PICKAXE, 50, Material.STONE);
+
+        run(dig(world, 10, inventory));
+
+        int mined = 0;
+        for (int x = -1; x <= 1; x++) {
+            for (int y = 64; y <= 66; y++) {
+                for (int z = 1; z <= 10; z++) {
+                    if (world.getType(x, y, z).isAir()) {
+                        mined++;
+                    }
+                }
+            }
+        }
+        assertEquals(50, mined);
+        // the first five steps are dug out completely
+        for (int z = 1; z <= 5; z++) {
+            assertEquals(Material.AIR, world.getType(-1, 64, z));
+            assertEquals(Material.AIR, world.getType(1, 66, z));
+        }
+        assertEquals(Material.STONE, world.getType(1, 66, 10));
+        assertEquals(0, inventory.getDurability(Material.WOODEN_PICKAXE));
+        // headless runs don't drop anything
+        assertEquals(0, inventory.count(Material.STONE));
+    }
+
+    @Test
+    void basicPathAllocations() {
+        assertAllocations(world -> basic(world, 2_000, new MemoryInventory(false)), MAX_PATH_BYTES_PER_BLOCK);
+    }
+
+    @Test
+    void tracksAllocations() {
+        assertAllocations(world -> tracks(world, 2_000, new MemoryInventory(false)), MAX_PATH_BYTES_PER_BLOCK);
+    }
+
+    @Test
+    void customAllocations() {
+        assertAllocations(world -> custom(world, 2_000, new MemoryInventory(false)), MAX_BYTES_PER_BLOCK);
+    }
+
+    @Test
+    void digAllocations() {
+        assertAllocations(world -> dig(world, 2_000, new MemoryInventory(false)), MAX_BYTES_PER_BLOCK);
+    }
+}
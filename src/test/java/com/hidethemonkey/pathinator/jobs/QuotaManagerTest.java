@@ -0,0 +1,180 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2024 HideTheMonkey
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.hidethemonkey.pathinator.jobs;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.Set;
+import java.util.UUID;
+
+import org.bukkit.entity.Player;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.hidethemonkey.pathinator.Pathinator;
+import com.hidethemonkey.pathinator.PathinatorConfig;
+
+class QuotaManagerTest {
+
+    private PathinatorConfig config;
+    private QuotaManager quota;
+    private Player player;
+
+    @BeforeEach
+    void setUp() {
+        Pathinator plugin = mock(Pathinator.class);
+        config = mock(PathinatorConfig.class);
+        when(plugin.getPConfig()).thenReturn(config);
+        when(plugin.getBuildScheduler()).thenReturn(mock(BuildScheduler.class));
+        when(config.getLimitsEnabled()).thenReturn(true);
+        when(config.getLimitGroups()).thenReturn(Set.of());
+        // refills so slowly that nothing comes back during a test
+        limits(new QuotaManager.Limits(0.001, 100, 2, 1000));
+
+        player = mock(Player.class);
+        when(player.getUniqueId()).thenReturn(UUID.randomUUID());
+        quota = new QuotaManager(plugin);
+    }
+
+    private void limits(QuotaManager.Limits limits) {
+        when(config.getLimits("limits.default")).thenReturn(limits);
+    }
+
+    private QuotaManager.Reservation granted(long cells) {
+        QuotaManager.Reservation reservation = quota.acquire(player, cells);
+        assertNull(reservation.getRefusal());
+        return reservation;
+    }
+
+    @Test
+    void releasedBuildsCostNothing() {
+        for (int i = 0; i < 10; i++) {
+            granted(90).release();
+        }
+        granted(90).start();
+    }
+
+    @Test
+    void startedBuildsAreCharged() {
+        // one more than the burst, so the bucket stays empty while it slowly refills
+        granted(101).start();
+
+        assertNotNull(quota.acquire(player, 1).getRefusal());
+    }
+
+    @Test
+    void aBuildMayGoIntoDebt() {
+        granted(10).start();
+        granted(250).start();
+
+        String refusal = quota.acquire(player, 1).getRefusal();
+        assertNotNull(refusal);
+        assertTrue(refusal.startsWith("You are building too fast"));
+    }
+
+    @Test
+    void startingTwiceChargesOnce() {
+        QuotaManager.Reservation reservation = granted(60);
+        reservation.start();
+        reservation.start();
+        reservation.release();
+
+        granted(30).start();
+    }
+
+    @Test
+    void pendingBuildsHoldAJobSlot() {
+        QuotaManager.Reservation first = granted(10);
+        granted(10);
+
+        String refusal = quota.acquire(player, 10).getRefusal();
+        assertNotNull(refusal);
+        assertTrue(refusal.startsWith("You already have 2 builds"));
+
+        first.release();
+        granted(10);
+    }
+
+    @Test
+    void pendingBuildsHoldTheirCells() {
+        limits(new QuotaManager.Limits(0.001, 10_000, 10, 100));
+        QuotaManager.Reservation first = granted(60);
+
+        String refusal = quota.acquire(player, 60).getRefusal();
+        assertNotNull(refusal);
+        assertTrue(refusal.startsWith("You already have 60 blocks waiting"));
+
+        first.release();
+        granted(60);
+    }
+
+    @Test
+    void pendingCellsCountAgainstTheBucket() {
+        granted(100);
+
+        assertTrue(quota.acquire(player, 1).getRefusal().startsWith("You are building too fast"));
+    }
+
+    @Test
+    void tooBigIsRefusedOutright() {
+        String refusal = quota.acquire(player, 5000).getRefusal();
+
+        assertNotNull(refusal);
+        assertTrue(refusal.startsWith("That build is too big"));
+    }
+
+    @Test
+    void bypassIgnoresTheLimits() {
+        when(player.hasPermission(QuotaManager.PERM_BYPASS)).thenReturn(true);
+
+        for (int i = 0; i < 5; i++) {
+            granted(5000);
+        }
+    }
+
+    @Test
+    void disabledLimitsIgnoreTheLimits() {
+        when(config.getLimitsEnabled()).thenReturn(false);
+
+        for (int i = 0; i < 5; i++) {
+            granted(5000).start();
+        }
+    }
+
+    @Test
+    void partlyUsedBucketSurvivesPruning() {
+        granted(90).start();
+
+        // as when the player logs out and back in, the 10 blocks left must carry over
+        quota.prune();
+        granted(50).start();
+
+        assertNotNull(quota.acquire(player, 1).getRefusal());
+    }
+}
@@ -0,0 +1,197 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2024 HideTheMonkey
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.hidethemonkey.pathinator.jobs;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.lang.management.ManagementFactory;
+import java.util.UUID;
+
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.block.BlockFace;
+import org.bukkit.block.data.BlockData;
+import org.junit.jupiter.api.Test;
+
+import com.hidethemonkey.pathinator.helpers.CrossSection;
+import com.hidethemonkey.pathinator.helpers.ExclusionVolumes;
+import com.hidethemonkey.pathinator.helpers.MemoryInventory;
+import com.hidethemonkey.pathinator.helpers.SparseWorld;
+import com.hidethemonkey.pathinator.helpers.SurvivalLedger;
+
+/**
+ * Runs the build engine headless against a SparseWorld and checks how much it
+ * allocates per cell. The limits are well above what the jobs need, they are only
+ * there to catch a job that suddenly allocates per block. Nothing here is timed,
+ * so a slow machine can't fail it.
+ */
+class SparseWorldBenchmarkTest {
+
+    private static final int WARMUP_RUNS = 3;
+    // bytes allocated per cell, mostly new SparseWorld sections. Path jobs also
+    // allocate a SegmentData per segment.
+    private static final long MAX_PATH_BYTES_PER_CELL = 512;
+    private static final long MAX_BYTES_PER_CELL = 64;
+
+    private interface Run {
+        BuildJob create(SparseWorld world);
+    }
+
+    private record Result(long cells, long bytesPerCell) {
+    }
+
+    private static Result measure(Run run) {
+        for (int i = 0; i < WARMUP_RUNS; i++) {
+            run.create(new SparseWorld()).applyAll();
+        }
+        SparseWorld world = new SparseWorld();
+        BuildJob job = run.create(world);
+        long allocatedBefore = allocatedBytes();
+        long cells = job.applyAll();
+        long allocated = allocatedBytes() - allocatedBefore;
+        assertTrue(job.isDone());
+        return new Result(cells, allocatedBefore < 0 ? -1 : allocated / cells);
+    }
+
+    /**
+     * @return bytes allocated by this thread so far, or -1 if the JVM doesn't say
+     */
+    private static long allocatedBytes() {
+        if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean threads
+                && threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled()) {
+            return threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return -1;
+    }
+
+    private static PathJob path(int distance) {
+        World world = mock(World.class);
+        when(world.getUID()).thenReturn(UUID.randomUUID());
+        PathJob job = new PathJob(PathJob.Type.BASIC, UUID.randomUUID(), new Location(world, 0, 64, 0),
+                BlockFace.EAST, Material.DIRT_PATH, distance);
+        job.setClearance(3, Material.AIR);
+        return job;
+    }
+
+    @Test
+    void pathJobPlacesEveryCell() {
+        SparseWorld world = new SparseWorld();
+        // solid ground for the clearance to dig through
+        for (int x = 1; x <= 100; x++) {
+            for (int y = 64; y <= 67; y++) {
+                world.setType(x, y, 0, Material.STONE);
+            }
+        }
+        PathJob job = path(100);
+        PathBuildJob build = new PathBuildJob(job, world, new ExclusionVolumes(),
+                new SurvivalLedger(new MemoryInventory(false)));
+
+        assertEquals(job.countCells(0), build.applyAll());
+        for (int x = 1; x <= 100; x++) {
+            assertEquals(Material.DIRT_PATH, world.getType(x, 64, 0));
+            for (int y = 65; y <= 67; y++) {
+                assertEquals(Material.AIR, world.getType(x, y, 0));
+            }
+        }
+        assertEquals(Material.AIR, world.getType(101, 64, 0));
+    }
+
+    @Test
+    void survivalPathStopsWhenTheInventoryRunsOut() {
+        SparseWorld world = new SparseWorld();
+        MemoryInventory inventory = new MemoryInventory(true);
+        inventory.give(Material.DIRT_PATH, 10);
+
+        new PathBuildJob(path(30), world, new ExclusionVolumes(), new SurvivalLedger(inventory)).applyAll();
+
+        int placed = 0;
+        for (int x = 1; x <= 30; x++) {
+            if (world.getType(x, 64, 0) == Material.DIRT_PATH) {
+                placed++;
+            }
+        }
+        assertEquals(10, placed);
+        assertEquals(0, inventory.count(Material.DIRT_PATH));
+    }
+
+    @Test
+    void pathAllocations() {
+        Result result = measure(world -> new PathBuildJob(path(20_000), world, new ExclusionVolumes(),
+                new SurvivalLedger(new MemoryInventory(false))));
+
+        assertEquals(80_000, result.cells());
+        assumeTrue(result.bytesPerCell() >= 0, "thread allocation counting is not available");
+        assertTrue(result.bytesPerCell() <= MAX_PATH_BYTES_PER_CELL, () -> "path: " + result.bytesPerCell()
+                + " bytes/cell");
+    }
+
+    @Test
+    void digAllocations() {
+        Result result = measure(world -> {
+            // a solid block of stone to tunnel through
+            for (int x = -2; x <= 2; x++) {
+                for (int y = 64; y < 68; y++) {
+                    for (int z = 1; z <= 2_000; z++) {
+                        world.setType(x, y, z, Material.STONE);
+                    }
+                }
+            }
+            return new DigJob(world, new Location(null, 0, 64, 0), BlockFace.SOUTH, DigJob.Pattern.AHEAD, 5, 4,
+                    2_000, new SurvivalLedger(new MemoryInventory(false)));
+        });
+
+        assertEquals(5 * 4 * 2_000, result.cells());
+        assumeTrue(result.bytesPerCell() >= 0, "thread allocation counting is not available");
+        assertTrue(result.bytesPerCell() <= MAX_BYTES_PER_CELL, () -> "dig: " + result.bytesPerCell()
+                + " bytes/cell");
+    }
+
+    @Test
+    void sweepAllocations() {
+        BlockData path = mock(BlockData.class);
+        when(path.getMaterial()).thenReturn(Material.COBBLESTONE);
+        BlockData air = mock(BlockData.class);
+        when(air.getMaterial()).thenReturn(Material.AIR);
+        // 5 wide, 3 rows of clearance
+        short[] cells = new short[5 * 4];
+        for (int i = 5; i < cells.length; i++) {
+            cells[i] = 1;
+        }
+        CrossSection section = new CrossSection(5, 4, new BlockData[] { path, air }, cells, false);
+
+        Result result = measure(world -> new SweepJob(world, section, new Location(null, 0, 64, 0), BlockFace.NORTH,
+                5_000, new ExclusionVolumes(), new SurvivalLedger(new MemoryInventory(false))));
+
+        assertEquals(5 * 4 * 5_000, result.cells());
+        assumeTrue(result.bytesPerCell() >= 0, "thread allocation counting is not available");
+        assertTrue(result.bytesPerCell() <= MAX_BYTES_PER_CELL, () -> "sweep: " + result.bytesPerCell()
+                + " bytes/cell");
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2024 HideTheMonkey
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NON-INFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.hidethemonkey.pathinator.jobs;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.block.BlockFace;
+import org.bukkit.block.data.BlockData;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.hidethemonkey.pathinator.helpers.CrossSection;
+import com.hidethemonkey.pathinator.helpers.ExclusionVolumes;
+import com.hidethemonkey.pathinator.helpers.MemoryInventory;
+import com.hidethemonkey.pathinator.helpers.SparseWorld;
+import com.hidethemonkey.pathinator.helpers.SurvivalLedger;
+
+class SweepJobTest {
+
+    private SparseWorld world;
+    private CrossSection section;
+    private final List<int[]> runs = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        world = new SparseWorld();
+        BlockData path = mock(BlockData.class);
+        when(path.getMaterial()).thenReturn(Material.COBBLESTONE);
+        BlockData air = mock(BlockData.class);
+        when(air.getMaterial()).thenReturn(Material.AIR);
+        // one wide, a path row and two rows of clearance
+        section = new CrossSection(1, 3, new BlockData[] { path, air }, new short[] { 0, 1, 1 }, false);
+    }
+
+    private SweepJob job(int slices, MemoryInventory inventory) {
+        SweepJob job = new SweepJob(world, section, new Location(null, 0, 64, 0), BlockFace.EAST, slices,
+                new ExclusionVolumes(), new SurvivalLedger(inventory));
+        job.setOnPlaced((from, to) -> runs.add(new int[] { from, to }));
+        return job;
+    }
+
+    @Test
+    void finishedJobReportsEverySlice() {
+        job(10, new MemoryInventory(false)).applyAll();
+
+        assertEquals(1, runs.size());
+        assertEquals(0, runs.get(0)[0]);
+        assertEquals(9, runs.get(0)[1]);
+    }
+
+    @Test
+    void slicesWithoutBlocksAreLeftOut() {
+        MemoryInventory inventory = new MemoryInventory(true);
+        inventory.give(Material.COBBLESTONE, 6);
+        // slice 8 is already paved, so it doesn't need a block
+        world.setType(8, 64, 0, Material.COBBLESTONE);
+
+        job(10, inventory).applyAll();
+
+        assertEquals(2, runs.size());
+        assertEquals(0, runs.get(0)[0]);
+        assertEquals(5, runs.get(0)[1]);
+        assertEquals(8, runs.get(1)[0]);
+        assertEquals(8, runs.get(1)[1]);
+        assertEquals(Material.AIR, world.getType(7, 64, 0));
+    }
+
+    @Test
+    void droppedJobReportsTheSlicesItGotThrough() {
+        SweepJob job = job(10, new MemoryInventory(false));
+        // all of slices 0 to 3, and the path row of slice 4
+        for (int i = 0; i < 4 * 3 + 1; i++) {
+            job.applyNext();
+        }
+        job.cancel();
+        job.onCancelled();
+
+        assertEquals(1, runs.size());
+        assertEquals(0, runs.get(0)[0]);
+        assertEquals(3, runs.get(0)[1]);
+    }
+}